@@ -0,0 +1,54 @@
+package engine.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.math.EMath;
+
+/**
+ * The EMath helpers that run for every object every frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EMathBenchmark {
+
+    // Not final, so the JIT can't fold the calls into constants
+    private double inside = 123.0;
+    private double outside = -1234.5;
+    private double min = 0.0;
+    private double max = 800.0;
+
+    @Benchmark
+    public double wrapInside() {
+        return EMath.wrap(inside, min, max);
+    }
+
+    @Benchmark
+    public double wrapOutside() {
+        return EMath.wrap(outside, min, max);
+    }
+
+    @Benchmark
+    public double clamp() {
+        return EMath.clamp(outside, min, max);
+    }
+
+    @Benchmark
+    public double rand() {
+        return EMath.rand(min, max);
+    }
+
+}
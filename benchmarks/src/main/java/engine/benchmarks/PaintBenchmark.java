@@ -0,0 +1,106 @@
+package engine.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.core.Application;
+import engine.core.ScreenMode;
+import engine.graphics.Image;
+import engine.graphics.Sprite;
+
+/**
+ * Application.paint() of a whole frame with many sprites, spread over an area
+ * four times the size of the screen so that culling has work to do.
+ * "scrolling" moves the camera every frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PaintBenchmark {
+
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    /**
+     * An application that does nothing but hold the drawables.
+     */
+    private static final class BenchApplication extends Application {
+        BenchApplication() {
+            super(WIDTH, HEIGHT, ScreenMode.OFFSCREEN);
+        }
+
+        @Override
+        public void update(double delta) {
+        }
+    }
+
+    @Param({ "1000", "10000", "100000" })
+    public int drawables;
+
+    private BenchApplication app;
+    private BufferedImage target;
+    private Graphics2D g;
+    private int frame = 0;
+
+    @Setup
+    public void setup() {
+        app = new BenchApplication();
+        target = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = target.createGraphics();
+        g.setClip(0, 0, WIDTH, HEIGHT);
+
+        BufferedImage ball = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D bg = ball.createGraphics();
+        bg.setColor(Color.CYAN);
+        bg.fillOval(0, 0, 16, 16);
+        bg.dispose();
+        Image img = new Image(Image.toCompatible(ball));
+
+        Random random = new Random(42);
+        for (int i = 0; i < drawables; ++i) {
+            Sprite s = new Sprite(img);
+            s.setPosition(random.nextDouble() * WIDTH * 2, random.nextDouble() * HEIGHT * 2);
+            app.addDrawable(s);
+        }
+        app.getCamera().setPosition(WIDTH, HEIGHT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void paint() {
+        app.getDisplayList().resetCounts();
+        app.paint(g);
+    }
+
+    @Benchmark
+    public void paintScrolling() {
+        frame = (frame + 1) & 511;
+        app.getCamera().setPosition(WIDTH * 0.5 + frame, HEIGHT);
+        app.getDisplayList().resetCounts();
+        app.paint(g);
+    }
+
+}
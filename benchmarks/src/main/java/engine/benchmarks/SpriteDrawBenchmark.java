@@ -0,0 +1,96 @@
+package engine.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.graphics.Image;
+import engine.graphics.Sprite;
+
+/**
+ * Sprite.draw() of a 32 by 32 pixel sprite into an offscreen image, for source
+ * images of different types. "COMPATIBLE" is the image converted with
+ * Image.toCompatible(), as Image.load() does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpriteDrawBenchmark {
+
+    @Param({ "INT_RGB", "INT_ARGB", "INT_ARGB_PRE", "INT_BGR", "3BYTE_BGR", "4BYTE_ABGR",
+            "USHORT_565_RGB", "BYTE_INDEXED", "COMPATIBLE" })
+    public String imageType;
+
+    private BufferedImage target;
+    private Graphics2D g;
+    private Sprite sprite;
+    private int frame = 0;
+
+    @Setup
+    public void setup() {
+        target = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        g = target.createGraphics();
+
+        BufferedImage src;
+        if (imageType.equals("COMPATIBLE")) {
+            src = Image.toCompatible(drawBall(new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB)));
+        } else {
+            src = drawBall(new BufferedImage(32, 32, typeOf(imageType)));
+        }
+        sprite = new Sprite(new Image(src));
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void draw() {
+        // Move around a little so the sprite isn't always pixel aligned the same way
+        frame = (frame + 1) & 255;
+        sprite.setPosition(100 + frame, 100 + (frame >> 2));
+        sprite.draw(g, null);
+    }
+
+    private static BufferedImage drawBall(BufferedImage img) {
+        Graphics2D ig = img.createGraphics();
+        ig.setColor(Color.ORANGE);
+        ig.fillOval(2, 2, 28, 28);
+        ig.dispose();
+        return img;
+    }
+
+    private static int typeOf(String name) {
+        switch (name) {
+        case "INT_RGB":        return BufferedImage.TYPE_INT_RGB;
+        case "INT_ARGB":       return BufferedImage.TYPE_INT_ARGB;
+        case "INT_ARGB_PRE":   return BufferedImage.TYPE_INT_ARGB_PRE;
+        case "INT_BGR":        return BufferedImage.TYPE_INT_BGR;
+        case "3BYTE_BGR":      return BufferedImage.TYPE_3BYTE_BGR;
+        case "4BYTE_ABGR":     return BufferedImage.TYPE_4BYTE_ABGR;
+        case "USHORT_565_RGB": return BufferedImage.TYPE_USHORT_565_RGB;
+        case "BYTE_INDEXED":   return BufferedImage.TYPE_BYTE_INDEXED;
+        default:
+            throw new IllegalArgumentException("Unknown image type " + name);
+        }
+    }
+
+}
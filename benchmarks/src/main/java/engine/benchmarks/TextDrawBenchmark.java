@@ -0,0 +1,74 @@
+package engine.benchmarks;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.graphics.BitmapFont;
+import engine.graphics.Text;
+
+/**
+ * Text.draw() of a score line into an offscreen image, with a Java font ("awt")
+ * and with a BitmapFont ("bitmap"), and the cost of changing the text every
+ * frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextDrawBenchmark {
+
+    @Param({ "awt", "bitmap" })
+    public String font;
+
+    private BufferedImage target;
+    private Graphics2D g;
+    private Text text;
+    private int score = 0;
+
+    @Setup
+    public void setup() {
+        target = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        g = target.createGraphics();
+
+        Font f = new Font(Font.SANS_SERIF, Font.BOLD, 20);
+        text = font.equals("bitmap") ? new Text(BitmapFont.create(f)) : new Text(f);
+        text.setColor(Color.WHITE);
+        text.setPosition(20, 40);
+        text.setText("Score 0001234");
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void draw() {
+        text.draw(g, null);
+    }
+
+    @Benchmark
+    public void setTextAndDraw() {
+        text.setText(++score);
+        text.draw(g, null);
+    }
+
+}
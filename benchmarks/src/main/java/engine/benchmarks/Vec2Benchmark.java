@@ -0,0 +1,60 @@
+package engine.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.math.MutableVec2;
+import engine.math.Vec2;
+
+/**
+ * Chains of vector operations as they appear in game code, e.g. steering
+ * towards a target, with the immutable Vec2 and the in-place MutableVec2.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Vec2Benchmark {
+
+    private double px = 10.0, py = 20.0;
+    private double tx = 300.0, ty = -45.0;
+    private final MutableVec2 tmp = new MutableVec2();
+
+    @Benchmark
+    public Vec2 steerImmutable() {
+        Vec2 pos = new Vec2(px, py);
+        Vec2 target = new Vec2(tx, ty);
+        return target.sub(pos).normalize().mul(120.0).add(pos);
+    }
+
+    @Benchmark
+    public MutableVec2 steerMutable() {
+        return tmp.set(tx, ty).sub(px, py).normalize().mul(120.0).add(px, py);
+    }
+
+    @Benchmark
+    public Vec2 reflectImmutable() {
+        Vec2 v = new Vec2(tx, ty);
+        Vec2 n = new Vec2(0.0, 1.0);
+        return v.reflect(n).add(px, py).mul(0.5);
+    }
+
+    @Benchmark
+    public double lengthAndDot() {
+        Vec2 a = new Vec2(px, py);
+        Vec2 b = new Vec2(tx, ty);
+        return a.length() + b.length2() + a.dot(b);
+    }
+
+}
@@ -0,0 +1,96 @@
+package engine.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Input.update() and looking up the state of every binding, once per frame, with
+ * different numbers of bindings. Lives in engine.core because update() and
+ * feeding key events are only open to the engine itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InputBenchmark {
+
+    @Param({ "8", "64", "512" })
+    public int bindings;
+
+    private Input input;
+    private String[] names;
+    private Input.Action[] actions;
+    private long time = 0;
+
+    @Setup
+    public void setup() {
+        input = new Input(null);
+        names = new String[bindings];
+        actions = new Input.Action[bindings];
+        for (int i = 0; i < bindings; ++i) {
+            names[i] = "ACTION_" + i;
+            input.bind(names[i], 32 + i);
+            actions[i] = input.action(names[i]);
+        }
+    }
+
+    /**
+     * An idle frame: no key events.
+     */
+    @Benchmark
+    public void update() {
+        input.update();
+    }
+
+    /**
+     * A frame with a key press and release, then a lookup of every binding by name.
+     */
+    @Benchmark
+    public int updateAndLookupByName() {
+        frameWithEvents();
+        int down = 0;
+        for (int i = 0; i < bindings; ++i) {
+            if (input.isDown(names[i]) || input.isPressed(names[i])) {
+                ++down;
+            }
+        }
+        return down;
+    }
+
+    /**
+     * The same as {@link #updateAndLookupByName()}, through Action handles.
+     */
+    @Benchmark
+    public int updateAndLookupByAction() {
+        frameWithEvents();
+        int down = 0;
+        for (int i = 0; i < bindings; ++i) {
+            if (actions[i].isDown() || actions[i].isPressed()) {
+                ++down;
+            }
+        }
+        return down;
+    }
+
+    private void frameWithEvents() {
+        input.update();
+        int key = 32 + (int) (time % bindings);
+        input.handleEvent(key, true, time);
+        input.handleEvent(key, false, time + 1);
+        time += 2;
+    }
+
+}
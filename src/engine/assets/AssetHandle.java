@@ -0,0 +1,121 @@
+package engine.assets;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A reference to an asset that is being loaded, or has been loaded, by an
+ * {@link AssetManager}. Check {@link #isReady()} each frame, or call
+ * {@link #await()} at a point where blocking is fine (e.g. behind a loading
+ * screen).
+ * 
+ * Every handle received from the manager must eventually be given back with
+ * {@link AssetManager#release(AssetHandle)} so the asset can be unloaded.
+ * 
+ * @param <T> the asset type
+ */
+public class AssetHandle<T> {
+
+    final String key;
+    final String path;
+    final AssetLoader<T> loader;
+    final CompletableFuture<T> future = new CompletableFuture<>();
+
+    int references = 0;
+    long size = 0;
+    long lastReleased = 0;
+    volatile boolean unloaded = false;
+
+    AssetHandle(String key, String path, AssetLoader<T> loader) {
+        this.key = key;
+        this.path = path;
+        this.loader = loader;
+    }
+
+    /**
+     * Get the path the asset is loaded from.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Return true if the asset has finished loading successfully.
+     */
+    public boolean isReady() {
+        return future.isDone() && !future.isCompletedExceptionally() && !unloaded;
+    }
+
+    /**
+     * Return true if loading the asset failed. See {@link #getError()}.
+     */
+    public boolean isFailed() {
+        return future.isCompletedExceptionally();
+    }
+
+    /**
+     * Return true if the asset is still being loaded.
+     */
+    public boolean isLoading() {
+        return !future.isDone();
+    }
+
+    /**
+     * Get the asset without waiting.
+     * 
+     * @return the asset, or null if it is not ready
+     */
+    public T get() {
+        return isReady() ? future.getNow(null) : null;
+    }
+
+    /**
+     * Wait until the asset has finished loading.
+     * 
+     * @return the asset, or null if loading failed or the wait was interrupted
+     */
+    public T await() {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Get the reason loading failed.
+     * 
+     * @return the exception thrown by the loader, or null if loading didn't fail
+     */
+    public Throwable getError() {
+        if (!future.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            future.getNow(null);
+        } catch (Exception e) {
+            return e.getCause() != null ? e.getCause() : e;
+        }
+        return null;
+    }
+
+    /**
+     * Get the future that completes when the asset has loaded, for chaining
+     * work onto it.
+     */
+    public CompletableFuture<T> getFuture() {
+        return future;
+    }
+
+    /**
+     * Get the estimated memory use of the asset in bytes, or 0 if it is not
+     * loaded.
+     */
+    public long getSize() {
+        return size;
+    }
+
+}
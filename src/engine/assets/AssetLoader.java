@@ -0,0 +1,39 @@
+package engine.assets;
+
+/**
+ * Knows how to load one kind of asset for the {@link AssetManager}.
+ * Loaders are called from the manager's worker threads, so they must not
+ * touch game state.
+ * 
+ * @param <T> the asset type
+ */
+public interface AssetLoader<T> {
+
+    /**
+     * Load and decode an asset.
+     * 
+     * @param path path to the asset file
+     * @return the loaded asset
+     * @throws Exception if the asset cannot be loaded
+     */
+    public T load(String path) throws Exception;
+
+    /**
+     * Estimate how much memory an asset uses. This is what counts against the
+     * manager's memory budget.
+     * 
+     * @param asset a loaded asset
+     * @return size in bytes
+     */
+    public long sizeOf(T asset);
+
+    /**
+     * Free whatever an asset holds on to when it is unloaded. Does nothing by
+     * default.
+     * 
+     * @param asset a loaded asset
+     */
+    public default void unload(T asset) {
+    }
+
+}
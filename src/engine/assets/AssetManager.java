@@ -0,0 +1,354 @@
+package engine.assets;
+
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import engine.audio.Sound;
+import engine.graphics.Image;
+import engine.graphics.Text;
+
+/**
+ * Loads game assets in the background and keeps track of them.
+ * 
+ * Assets are identified by their type and file path. Asking for the same
+ * asset twice gives back the same handle and loads the file only once. Files
+ * are read and decoded on a small pool of worker threads, so the game loop
+ * keeps running while a level loads:
+ * 
+ * <pre>
+ * AssetHandle&lt;Image&gt; ship = assets.loadImage("gfx/ship.png");
+ * ...
+ * if (ship.isReady()) {
+ *     sprite = new Sprite(ship.get());
+ * }
+ * </pre>
+ * 
+ * Handles are reference counted. An asset whose handles have all been
+ * released stays cached, in case it is needed again, until the memory
+ * budget is exceeded or {@link #unloadUnused()} is called; the assets released
+ * longest ago go first.
+ * 
+ * Failed loads do not stop the program; the error is printed and can be read
+ * from the handle.
+ */
+public class AssetManager {
+
+    private final ExecutorService executor;
+    private final HashMap<Class<?>, AssetLoader<?>> loaders = new HashMap<>();
+    private final HashMap<String, AssetHandle<?>> assets = new HashMap<>();
+
+    private long memoryBudget;
+    private long memoryUsage = 0;
+    private long releaseCounter = 0;
+    private int pending = 0;
+
+    /**
+     * Create a new AssetManager with one worker per processor core and an
+     * unlimited memory budget.
+     */
+    public AssetManager() {
+        this(Runtime.getRuntime().availableProcessors(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a new AssetManager.
+     * 
+     * @param threads      number of worker threads loading assets
+     * @param memoryBudget memory in bytes that loaded assets may use before
+     *                     unused ones are unloaded
+     */
+    public AssetManager(int threads, long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), r -> {
+                    Thread t = new Thread(r, "Asset loader");
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+
+        registerLoader(Image.class, new AssetLoader<Image>() {
+            @Override
+            public Image load(String path) throws Exception {
+                return Image.load(path);
+            }
+
+            @Override
+            public long sizeOf(Image asset) {
+                return (long) asset.getData().getWidth() * asset.getData().getHeight() * 4;
+            }
+
+            @Override
+            public void unload(Image asset) {
+                asset.setAccelerated(false);
+                asset.getData().flush();
+            }
+        });
+
+        registerLoader(Font.class, new AssetLoader<Font>() {
+            @Override
+            public Font load(String path) throws Exception {
+                return Text.readFont(path);
+            }
+
+            @Override
+            public long sizeOf(Font asset) {
+                return 0;
+            }
+        });
+
+        registerLoader(Sound.class, new AssetLoader<Sound>() {
+            @Override
+            public Sound load(String path) throws Exception {
+                return Sound.load(path);
+            }
+
+            @Override
+            public long sizeOf(Sound asset) {
+                // Decoded samples live in the SoundBank, which has a
+                // budget of its own
+                return 0;
+            }
+        });
+    }
+
+    /**
+     * Register a loader for a type of asset, replacing any previous loader for
+     * that type. Loaders for Image, Font and Sound are registered by default.
+     * 
+     * @param type   the asset class
+     * @param loader an AssetLoader for that class
+     */
+    public synchronized <T> void registerLoader(Class<T> type, AssetLoader<T> loader) {
+        loaders.put(type, loader);
+    }
+
+    /**
+     * Start loading an asset, or get the handle of an asset that is already
+     * loading or loaded. Each call adds one reference to the asset.
+     * 
+     * @param type the asset class, e.g. {@code Image.class}
+     * @param path path to the asset file
+     * @return a handle to the asset
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> AssetHandle<T> load(Class<T> type, String path) {
+        String key = type.getName() + ":" + path;
+        AssetHandle<T> handle = (AssetHandle<T>) assets.get(key);
+
+        if (handle == null) {
+            AssetLoader<T> loader = (AssetLoader<T>) loaders.get(type);
+            if (loader == null) {
+                throw new IllegalArgumentException("No loader registered for " + type.getName());
+            }
+            handle = new AssetHandle<>(key, path, loader);
+            assets.put(key, handle);
+            submit(handle);
+        }
+
+        ++handle.references;
+        return handle;
+    }
+
+    /**
+     * Start loading an image. See {@link #load(Class, String)}.
+     */
+    public AssetHandle<Image> loadImage(String path) {
+        return load(Image.class, path);
+    }
+
+    /**
+     * Start loading a TrueType font. See {@link #load(Class, String)}.
+     */
+    public AssetHandle<Font> loadFont(String path) {
+        return load(Font.class, path);
+    }
+
+    /**
+     * Start loading a sound. See {@link #load(Class, String)}.
+     */
+    public AssetHandle<Sound> loadSound(String path) {
+        return load(Sound.class, path);
+    }
+
+    /**
+     * Give back a handle. When all handles of an asset have been released,
+     * the asset may be unloaded.
+     * 
+     * @param handle a handle received from this manager
+     */
+    public synchronized void release(AssetHandle<?> handle) {
+        if (handle.references <= 0) {
+            return;
+        }
+        if (--handle.references == 0) {
+            handle.lastReleased = ++releaseCounter;
+            enforceBudget();
+        }
+    }
+
+    /**
+     * Unload every asset that has no references left.
+     */
+    public synchronized void unloadUnused() {
+        ArrayList<AssetHandle<?>> unused = new ArrayList<>();
+        for (AssetHandle<?> h : assets.values()) {
+            if (h.references == 0 && !h.isLoading()) {
+                unused.add(h);
+            }
+        }
+        for (AssetHandle<?> h : unused) {
+            unload(h);
+        }
+    }
+
+    /**
+     * Set the memory budget. Unused assets are unloaded straight away if the
+     * budget is already exceeded.
+     * 
+     * @param bytes memory in bytes that loaded assets may use
+     */
+    public synchronized void setMemoryBudget(long bytes) {
+        memoryBudget = bytes;
+        enforceBudget();
+    }
+
+    /**
+     * Get the estimated memory used by loaded assets, in bytes.
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * Get the number of assets still being loaded.
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Return true if no assets are being loaded.
+     */
+    public boolean isIdle() {
+        return getPendingCount() == 0;
+    }
+
+    /**
+     * Stop the worker threads. Loads in progress are interrupted, which may
+     * make them fail; queued loads are abandoned: their handles fail (so await() returns null), and later
+     * calls to load() return handles that have failed straight away.
+     */
+    public void shutdown() {
+        List<Runnable> abandoned = executor.shutdownNow();
+        for (Runnable r : abandoned) {
+            if (r instanceof LoadTask) {
+                AssetHandle<?> handle = ((LoadTask<?>) r).handle;
+                failed(handle);
+                handle.future.completeExceptionally(new IllegalStateException("Asset manager was shut down"));
+            }
+        }
+    }
+
+    /**
+     * Loads one asset on a worker thread.
+     */
+    private final class LoadTask<T> implements Runnable {
+        final AssetHandle<T> handle;
+
+        LoadTask(AssetHandle<T> handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void run() {
+            T asset;
+            long size;
+            try {
+                asset = handle.loader.load(handle.path);
+                size = handle.loader.sizeOf(asset);
+            } catch (Throwable t) {
+                failed(handle);
+                System.err.println("Error loading asset " + handle.path);
+                System.err.println(t.getMessage());
+                handle.future.completeExceptionally(t);
+                return;
+            }
+
+            // The asset is loaded at this point, whatever happens while
+            // making room for it
+            try {
+                loaded(handle, size);
+            } finally {
+                handle.future.complete(asset);
+            }
+        }
+    }
+
+    private <T> void submit(AssetHandle<T> handle) {
+        ++pending;
+        try {
+            executor.execute(new LoadTask<>(handle));
+        } catch (RejectedExecutionException e) {
+            // Shut down: don't leave a handle behind that never finishes
+            failed(handle);
+            handle.future.completeExceptionally(e);
+        }
+    }
+
+    private synchronized void loaded(AssetHandle<?> handle, long size) {
+        --pending;
+        handle.size = size;
+        memoryUsage += size;
+        enforceBudget();
+    }
+
+    private synchronized void failed(AssetHandle<?> handle) {
+        --pending;
+
+        // Forget failed assets so a later load() can try again
+        assets.remove(handle.key, handle);
+    }
+
+    /**
+     * Unload unused assets, least recently released first, until memory use
+     * is within the budget or nothing unused is left.
+     */
+    private void enforceBudget() {
+        while (memoryUsage > memoryBudget) {
+            AssetHandle<?> oldest = null;
+            for (AssetHandle<?> h : assets.values()) {
+                if (h.references == 0 && !h.isLoading()
+                        && (oldest == null || h.lastReleased < oldest.lastReleased)) {
+                    oldest = h;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            unload(oldest);
+        }
+    }
+
+    private <T> void unload(AssetHandle<T> handle) {
+        assets.remove(handle.key);
+        memoryUsage -= handle.size;
+        handle.size = 0;
+        handle.unloaded = true;
+
+        T asset = handle.future.getNow(null);
+        if (asset != null) {
+            handle.loader.unload(asset);
+        }
+    }
+
+}
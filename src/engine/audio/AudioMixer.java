@@ -0,0 +1,586 @@
+package engine.audio;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Software audio mixer. Plays any number of sounds at the same time by adding
+ * them together into one output stream, which goes to a single
+ * {@link AudioSink} (normally the sound card).
+ * 
+ * Each playing sound is a voice with its own gain and pan. The number of
+ * voices is limited; when a new sound is started while all voices are busy,
+ * the oldest voice is stopped to make room for it.
+ * 
+ * The game talks to the mixer through a lock-free command queue, so
+ * {@link #play(SoundData, float, float)} returns straight away and never
+ * waits for the mixer thread. The mixer thread mixes small blocks of audio and
+ * writes them to the sink, which blocks until the sound card wants more.
+ * 
+ * Sounds can also be scheduled to start at an exact sample frame on the
+ * mixer's clock, see {@link #playAt(SoundData, float, float, long)}. The
+ * clock counts frames from the moment the mixer started; use
+ * {@link #getPlaybackFramePosition()} or {@link #getTime()} to find out
+ * where playback currently is.
+ * 
+ * Streaming {@link Music} is mixed in on top of the voices; music does not
+ * count against the voice limit.
+ * 
+ * For tests, the mixer can also be run without its thread by calling
+ * {@link #process()} by hand, e.g. with a {@link MemorySink}.
+ */
+public class AudioMixer {
+
+	/**
+	 * Sample rate of the mixer output, in frames per second.
+	 */
+	public static final int SAMPLE_RATE = 44100;
+
+	/**
+	 * Format of the mixer output: 16 bit signed little endian stereo.
+	 */
+	public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+
+	private static final int MAX_MUSIC = 4;
+
+	private final AudioSink sink;
+	private final int blockFrames;
+	private final int[] accum;
+	private final byte[] output;
+	private final CommandQueue commands = new CommandQueue(256);
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	// Voices; the active ones are packed at the front of the arrays
+	private final int capacity;
+	private final SoundData[] voiceData;
+	private final int[] voicePos;
+	private final long[] voiceStart;
+	private final int[] voiceId;
+	private final float[] voiceGainL;
+	private final float[] voiceGainR;
+	private int active = 0;
+
+	// Music streams currently being mixed
+	private final Music[] music = new Music[MAX_MUSIC];
+	private int musicCount = 0;
+	private final short[] musicBuffer;
+
+	private volatile int maxVoices;
+	private volatile int stolen = 0;
+	private volatile int activeVoices = 0;
+	private volatile long framePosition = 0;
+	// The playback clock: System.nanoTime() at which playback frame 0 was (or
+	// would have been) heard. Kept in one long so it can be read without locking.
+	private volatile long clockOrigin = 0;
+	private volatile boolean clockSynced = false;
+
+	private Thread thread = null;
+	private volatile boolean running = false;
+
+	/**
+	 * Create a new AudioMixer.
+	 * 
+	 * @param sink        where to send the mixed audio
+	 * @param voices      maximum number of sounds playing at the same time
+	 * @param blockFrames number of frames mixed at a time. Smaller blocks mean
+	 *                    less delay, but more overhead.
+	 */
+	public AudioMixer(AudioSink sink, int voices, int blockFrames) {
+		this.sink = sink;
+		this.blockFrames = blockFrames;
+		accum = new int[blockFrames * 2];
+		output = new byte[blockFrames * 4];
+		musicBuffer = new short[blockFrames * 2];
+
+		capacity = voices;
+		maxVoices = voices;
+		voiceData = new SoundData[voices];
+		voicePos = new int[voices];
+		voiceStart = new long[voices];
+		voiceId = new int[voices];
+		voiceGainL = new float[voices];
+		voiceGainR = new float[voices];
+	}
+
+	/**
+	 * Start playing a sound.
+	 * 
+	 * @param data the sound to play
+	 * @param gain volume, 1.0 for unchanged
+	 * @param pan  -1.0 for left only, 0.0 for center, 1.0 for right only
+	 * @return an id for changing or stopping the voice later, or -1 if the
+	 *         command queue was full
+	 */
+	public int play(SoundData data, float gain, float pan) {
+		return playAt(data, gain, pan, 0);
+	}
+
+	/**
+	 * Start playing a sound at an exact frame on the mixer clock. The sound
+	 * starts at exactly that sample, provided the call is made before the
+	 * mixer has mixed that part of the output; it starts straight away if the
+	 * frame has already passed. Schedule a few blocks ahead of
+	 * {@link #getFramePosition()} to be safe.
+	 * 
+	 * @param data  the sound to play
+	 * @param gain  volume, 1.0 for unchanged
+	 * @param pan   -1.0 for left only, 0.0 for center, 1.0 for right only
+	 * @param frame the mixer clock frame to start at
+	 * @return an id for changing or stopping the voice later, or -1 if the
+	 *         command queue was full
+	 */
+	public int playAt(SoundData data, float gain, float pan, long frame) {
+		int id = nextId.incrementAndGet() & Integer.MAX_VALUE;
+		if (!commands.offer(CommandQueue.PLAY, id, data, gain, pan, frame)) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Get the mixer clock: the number of frames mixed so far. This is ahead of
+	 * what can be heard by the amount of audio buffered in the sink.
+	 */
+	public long getFramePosition() {
+		return framePosition;
+	}
+
+	/**
+	 * Get the frame that is being heard right now, i.e. the mixer clock minus
+	 * the audio still waiting in the sink's buffer.
+	 * 
+	 * The sink's buffer only changes in whole blocks, so while the mixer thread
+	 * is running this is worked out from the time since the last block was
+	 * written instead. That gives a clock that moves smoothly between blocks
+	 * rather than in steps.
+	 */
+	public long getPlaybackFramePosition() {
+		long mixed = framePosition;
+		long p;
+		if (running && clockSynced) {
+			p = (long) ((System.nanoTime() - clockOrigin) * (SAMPLE_RATE / 1e9));
+			// Never run ahead of what has actually been written
+			p = Math.min(p, mixed);
+		} else {
+			p = mixed - sink.getBufferedFrames();
+		}
+		return p < 0 ? 0 : p;
+	}
+
+	/**
+	 * Get how far mixing runs ahead of what can be heard, in seconds: the audio
+	 * waiting in the sink's buffer plus the block that may be being mixed right
+	 * now. A sound scheduled with {@link #playAt(SoundData, float, float, long)}
+	 * for less than this after {@link #getPlaybackFramePosition()} starts late.
+	 */
+	public double getLatency() {
+		long ahead = framePosition - getPlaybackFramePosition();
+		return (Math.max(0, ahead) + blockFrames) / (double) SAMPLE_RATE;
+	}
+
+	/**
+	 * Get the playback position in seconds. This is a clock that runs in step
+	 * with the sound card; see {@link #getPlaybackFramePosition()}.
+	 */
+	public double getTime() {
+		return getPlaybackFramePosition() / (double) SAMPLE_RATE;
+	}
+
+	/**
+	 * Change the gain and pan of a playing voice. Does nothing if the voice
+	 * has already stopped.
+	 * 
+	 * @param id   a voice id returned by play()
+	 * @param gain volume, 1.0 for unchanged
+	 * @param pan  -1.0 for left only, 0.0 for center, 1.0 for right only
+	 */
+	public void setVoiceGain(int id, float gain, float pan) {
+		commands.offer(CommandQueue.SET_GAIN, id, null, gain, pan, 0);
+	}
+
+	/**
+	 * Stop a playing voice.
+	 * 
+	 * @param id a voice id returned by play()
+	 */
+	public void stopVoice(int id) {
+		commands.offer(CommandQueue.STOP, id, null, 0, 0, 0);
+	}
+
+	/**
+	 * Stop all playing voices.
+	 */
+	public void stopAll() {
+		commands.offer(CommandQueue.STOP_ALL, 0, null, 0, 0, 0);
+	}
+
+	/**
+	 * Start mixing a music stream. Called by {@link Music#play(double)}.
+	 * 
+	 * @param m           a Music object whose decoder is running
+	 * @param fadeSeconds length of the fade in, 0 for none
+	 */
+	void startMusic(Music m, float fadeSeconds) {
+		commands.offer(CommandQueue.MUSIC_START, 0, m, 1.0f, fadeSeconds, 0);
+	}
+
+	/**
+	 * Fade a music stream to a new gain. Called by {@link Music}.
+	 * 
+	 * @param m       a Music object
+	 * @param target  gain to fade to
+	 * @param seconds length of the fade, 0 to change straight away
+	 * @param stop    true to stop the music once the fade is done
+	 */
+	void fadeMusic(Music m, float target, float seconds, boolean stop) {
+		commands.offer(CommandQueue.MUSIC_FADE, stop ? 1 : 0, m, target, seconds, 0);
+	}
+
+	/**
+	 * Limit the number of sounds playing at the same time. Lowering the limit
+	 * does not cut off sounds already playing.
+	 * 
+	 * @param voices a value between 1 and the number of voices the mixer was
+	 *               created with
+	 */
+	public void setMaxVoices(int voices) {
+		maxVoices = voices < 1 ? 1 : voices > capacity ? capacity : voices;
+	}
+
+	/**
+	 * Get the number of voices playing after the last mixed block.
+	 */
+	public int getActiveVoices() {
+		return activeVoices;
+	}
+
+	/**
+	 * Get the number of times a voice had to be stopped to make room for a new
+	 * sound.
+	 */
+	public int getStolenVoices() {
+		return stolen;
+	}
+
+	/**
+	 * Get the number of frames mixed at a time.
+	 */
+	public int getBlockFrames() {
+		return blockFrames;
+	}
+
+	/**
+	 * Start the mixer thread.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		clockSynced = false;
+		thread = new Thread(() -> {
+			while (running) {
+				process();
+			}
+		}, "Audio mixer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Stop the mixer thread and close the sink.
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		sink.close();
+	}
+
+	/**
+	 * Mix one block of audio and write it to the sink. This is what the mixer
+	 * thread does in a loop; call it by hand only if the thread is not
+	 * running.
+	 */
+	public void process() {
+		runCommands();
+
+		int[] acc = accum;
+		Arrays.fill(acc, 0);
+
+		int v = 0;
+		while (v < active) {
+			if (mixVoice(v)) {
+				++v;
+			} else {
+				// Voice finished; the last voice moves into this slot
+				removeVoice(v);
+			}
+		}
+		activeVoices = active;
+
+		int m = 0;
+		while (m < musicCount) {
+			if (mixMusic(music[m])) {
+				++m;
+			} else {
+				removeMusic(m);
+			}
+		}
+
+		// Clip and convert to little endian bytes
+		byte[] out = output;
+		for (int i = 0, o = 0; i < acc.length; ++i, o += 2) {
+			int s = acc[i];
+			s = s > Short.MAX_VALUE ? Short.MAX_VALUE : s < Short.MIN_VALUE ? Short.MIN_VALUE : s;
+			out[o] = (byte) s;
+			out[o + 1] = (byte) (s >> 8);
+		}
+
+		sink.write(out, 0, out.length);
+		framePosition += blockFrames;
+		syncClock();
+	}
+
+	/**
+	 * Line up the playback clock with the sink after writing a block. Small
+	 * differences are corrected a bit at a time, so the clock doesn't jump
+	 * back and forth; large ones (at the start, or after the sound card ran
+	 * dry) are taken over at once.
+	 */
+	private void syncClock() {
+		long now = System.nanoTime();
+		long heard = framePosition - sink.getBufferedFrames();
+		long origin = now - (long) (heard * (1e9 / SAMPLE_RATE));
+		long error = origin - clockOrigin;
+		long blockNanos = (long) (blockFrames * (1e9 / SAMPLE_RATE));
+		if (!clockSynced || Math.abs(error) > 4 * blockNanos) {
+			clockOrigin = origin;
+			clockSynced = true;
+		} else {
+			clockOrigin += error / 8;
+		}
+	}
+
+	/**
+	 * Add one voice to the accumulation buffer.
+	 * 
+	 * @return false if the voice has reached its end
+	 */
+	private boolean mixVoice(int v) {
+		// A scheduled voice starts somewhere inside this block, or not yet
+		int offset = 0;
+		long wait = voiceStart[v] - framePosition;
+		if (wait > 0) {
+			if (wait >= blockFrames) {
+				return true;
+			}
+			offset = (int) wait;
+			voiceStart[v] = 0;
+		}
+
+		SoundData d = voiceData[v];
+		short[] s = d.samples;
+		int pos = voicePos[v];
+		int n = Math.min(d.frames - pos, blockFrames - offset);
+		float gl = voiceGainL[v];
+		float gr = voiceGainR[v];
+		int[] acc = accum;
+
+		for (int i = 0, a = offset * 2, p = pos * 2; i < n; ++i, a += 2, p += 2) {
+			acc[a] += (int) (s[p] * gl);
+			acc[a + 1] += (int) (s[p + 1] * gr);
+		}
+
+		pos += n;
+		voicePos[v] = pos;
+		return pos < d.frames;
+	}
+
+	/**
+	 * Add one music stream to the accumulation buffer.
+	 * 
+	 * @return false if the music has ended or faded out
+	 */
+	private boolean mixMusic(Music mus) {
+		if (mus.isPausedForMixer()) {
+			return true;
+		}
+
+		int n = mus.read(musicBuffer, blockFrames);
+		short[] s = musicBuffer;
+		int[] acc = accum;
+		float volume = mus.getVolumeForMixer();
+		float g = mus.fadeGain;
+		float target = mus.fadeTarget;
+		float step = mus.fadeStep;
+
+		for (int i = 0, p = 0; i < n; ++i, p += 2) {
+			// Ramp the gain a little every frame so fades don't click
+			if (g != target) {
+				g += step;
+				if ((step > 0.0f && g > target) || (step < 0.0f && g < target)) {
+					g = target;
+				}
+			}
+			float gv = g * volume;
+			acc[p] += (int) (s[p] * gv);
+			acc[p + 1] += (int) (s[p + 1] * gv);
+		}
+		mus.fadeGain = g;
+
+		if (mus.stopWhenFaded && g == target) {
+			return false;
+		}
+		return !mus.isDrained();
+	}
+
+	private void addMusic(Music m, float fadeSeconds) {
+		for (int i = 0; i < musicCount; ++i) {
+			if (music[i] == m) {
+				// Played again while fading out: cancel the fade out and
+				// fade back in from where it is
+				m.startedByMixer();
+				m.stopWhenFaded = false;
+				setFade(m, 1.0f, fadeSeconds);
+				return;
+			}
+		}
+		if (musicCount == MAX_MUSIC) {
+			// Make room by dropping the oldest stream
+			removeMusic(0);
+		}
+		music[musicCount++] = m;
+		m.startedByMixer();
+		m.stopWhenFaded = false;
+		m.fadeGain = fadeSeconds > 0.0f ? 0.0f : 1.0f;
+		setFade(m, 1.0f, fadeSeconds);
+	}
+
+	private void setFade(Music m, float target, float seconds) {
+		m.fadeTarget = target;
+		if (seconds > 0.0f) {
+			m.fadeStep = (target - m.fadeGain) / (seconds * SAMPLE_RATE);
+		} else {
+			m.fadeGain = target;
+			m.fadeStep = 0.0f;
+		}
+	}
+
+	private void removeMusic(int i) {
+		Music m = music[i];
+		--musicCount;
+		System.arraycopy(music, i + 1, music, i, musicCount - i);
+		music[musicCount] = null;
+		m.stopped();
+	}
+
+	private void runCommands() {
+		CommandQueue q = commands;
+		while (q.poll()) {
+			switch (q.type) {
+			case CommandQueue.PLAY:
+				startVoice(q.id, (SoundData) q.ref, q.gain, q.pan, q.time);
+				break;
+			case CommandQueue.SET_GAIN: {
+				int v = findVoice(q.id);
+				if (v >= 0) {
+					setGain(v, q.gain, q.pan);
+				}
+				break;
+			}
+			case CommandQueue.STOP: {
+				int v = findVoice(q.id);
+				if (v >= 0) {
+					removeVoice(v);
+				}
+				break;
+			}
+			case CommandQueue.STOP_ALL:
+				while (active > 0) {
+					removeVoice(active - 1);
+				}
+				break;
+			case CommandQueue.MUSIC_START:
+				addMusic((Music) q.ref, q.pan);
+				break;
+			case CommandQueue.MUSIC_FADE: {
+				Music m = (Music) q.ref;
+				for (int i = 0; i < musicCount; ++i) {
+					if (music[i] == m) {
+						m.stopWhenFaded = q.id != 0;
+						setFade(m, q.gain, q.pan);
+						break;
+					}
+				}
+				break;
+			}
+			default:
+				break;
+			}
+		}
+	}
+
+	private void startVoice(int id, SoundData data, float gain, float pan, long start) {
+		if (data.frames == 0) {
+			return;
+		}
+
+		int v;
+		if (active < maxVoices) {
+			v = active++;
+		} else {
+			// Out of voices; steal the oldest one. Ids only grow (until they
+			// wrap after two billion sounds), so the smallest is the oldest.
+			v = 0;
+			for (int i = 1; i < active; ++i) {
+				if (voiceId[i] < voiceId[v]) {
+					v = i;
+				}
+			}
+			stolen = stolen + 1;
+		}
+
+		voiceData[v] = data;
+		voicePos[v] = 0;
+		voiceStart[v] = start;
+		voiceId[v] = id;
+		setGain(v, gain, pan);
+	}
+
+	private void setGain(int v, float gain, float pan) {
+		pan = pan < -1.0f ? -1.0f : pan > 1.0f ? 1.0f : pan;
+		voiceGainL[v] = gain * (pan > 0.0f ? 1.0f - pan : 1.0f);
+		voiceGainR[v] = gain * (pan < 0.0f ? 1.0f + pan : 1.0f);
+	}
+
+	private int findVoice(int id) {
+		for (int v = 0; v < active; ++v) {
+			if (voiceId[v] == id) {
+				return v;
+			}
+		}
+		return -1;
+	}
+
+	private void removeVoice(int v) {
+		int last = --active;
+		voiceData[v] = voiceData[last];
+		voicePos[v] = voicePos[last];
+		voiceStart[v] = voiceStart[last];
+		voiceId[v] = voiceId[last];
+		voiceGainL[v] = voiceGainL[last];
+		voiceGainR[v] = voiceGainR[last];
+		voiceData[last] = null;
+	}
+
+}
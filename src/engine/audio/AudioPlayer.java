@@ -1,102 +1,102 @@
 package engine.audio;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Queue;
-
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineEvent;
-import javax.sound.sampled.LineListener;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import javax.sound.sampled.LineEvent.Type;
 
+/**
+ * Owns the engine's audio output: a single {@link AudioMixer} playing through a
+ * single sound card line, and the {@link SoundBank} holding decoded sounds.
+ * Created the first time it is needed.
+ */
 public class AudioPlayer {
 
+	private static final int VOICES = 32;
+	private static final int BLOCK_FRAMES = 256;
+	private static final int LINE_BUFFER_FRAMES = BLOCK_FRAMES * 4;
+	private static final long SOUND_BANK_BUDGET = 32l * 1024 * 1024;
+
 	private static AudioPlayer instance = null;
 	
-	public static AudioPlayer get() {
+	public static synchronized AudioPlayer get() {
 		if(instance == null) {
 			instance = new AudioPlayer();
 		}
 		return instance;
 	}
-	
-	private class PlayerThread implements Runnable {
-	
-		private void closeStream(AudioInputStream stream) {
-			try {
-				stream.close();
-			} catch (IOException e) {
-				System.err.println("Error closing audio stream: " + e.getMessage());
-			}		
+
+	private final AudioMixer mixer;
+	private final SoundBank bank = new SoundBank(SOUND_BANK_BUDGET);
+	private final boolean audible;
+	private final long created = System.nanoTime();
+
+	private AudioPlayer() {
+		AudioSink sink = null;
+		try {
+			sink = new LineSink(LINE_BUFFER_FRAMES);
+		} catch (LineUnavailableException | IllegalArgumentException e) {
+			System.err.println("Line unavailable; audio disabled");
 		}
-		
-		private void playFile(File f) {
-			AudioInputStream ss = null;
-			
-			try {
-				final AudioInputStream stream = AudioSystem.getAudioInputStream(f);
-				ss = stream;
 
-				final Clip audio = AudioSystem.getClip();
-				audio.open(stream);
-				audio.addLineListener(new LineListener() {
-					@Override
-					public void update(LineEvent event) {
-						Type eventType = event.getType();
-						if (eventType == Type.STOP || eventType == Type.CLOSE) {
-							audio.close();
-							closeStream(stream);
-						}
-					}
-				});
-				audio.start();
-			
-			} catch(IOException ioex) {
-				System.err.println("Input/Output exception reading file " + f.getPath());
-				closeStream(ss);
-			} catch (UnsupportedAudioFileException uafe) {
-				System.err.println("Audio file format not supported");
-				uafe.printStackTrace();
-				closeStream(ss);
-			} catch (LineUnavailableException lue) {
-				System.err.println("Line unavailable; audio disabled");
-				lue.printStackTrace();
-				closeStream(ss);
-			}
+		audible = sink != null;
+		if (audible) {
+			mixer = new AudioMixer(sink, VOICES, BLOCK_FRAMES);
+			mixer.start();
+		} else {
+			// Keep a mixer around so callers don't need to care, but never
+			// run it; commands pile up in its queue until it's full.
+			mixer = new AudioMixer(new MemorySink(), VOICES, BLOCK_FRAMES);
 		}
-		
-		@Override
-		public void run() {
+	}
 
-			do {
-				if(!requests.isEmpty()) {
-					playFile(requests.remove());
-				}
-				
-				try {
-					Thread.sleep(16);
-				} catch (InterruptedException e) {
-					System.err.println("Audio player thread interrupted");
-				}
-			
-			} while(true);
+	/**
+	 * Get the mixer all sounds are played through.
+	 */
+	public AudioMixer getMixer() {
+		return mixer;
+	}
+
+	/**
+	 * Get the audio clock: the playback position of the mixer in seconds. It
+	 * runs in step with the sound card rather than the system clock, and is
+	 * the time base used by {@link Sound#playAt(double)}.
+	 * 
+	 * Pass it to Application.setTimeSource() to make the game run on the
+	 * audio clock, so that game time and sound stay in sync.
+	 * 
+	 * Without a sound card line (e.g. on a headless machine) the mixer never
+	 * runs, so this falls back to the system clock, counting from when the
+	 * AudioPlayer was created.
+	 */
+	public double getTime() {
+		if (!audible) {
+			return (System.nanoTime() - created) / 1e9;
 		}
+		return mixer.getTime();
 	}
-	
-	private Thread player = null;
-	private volatile Queue<File> requests = new LinkedList<>();
-		
-	private AudioPlayer() {
-		player = new Thread(new PlayerThread());
-		player.start();
+
+	/**
+	 * Get the smallest time ahead of {@link #getTime()} that a sound can be
+	 * scheduled for and still start exactly on time, in seconds. With the
+	 * default buffer sizes this is about 30 milliseconds.
+	 */
+	public double getLatency() {
+		return mixer.getLatency();
 	}
-	
+
+	/**
+	 * Get the sound bank holding decoded sounds. Use it to set the memory
+	 * budget for sounds and to read its hit/miss/eviction counters.
+	 */
+	public SoundBank getSoundBank() {
+		return bank;
+	}
+
+	/**
+	 * Play a sound file. The file is decoded through the sound bank, so it is
+	 * only read from disk the first time (or after being evicted).
+	 * 
+	 * @param file path to the sound file
+	 */
 	public void play(String file) {
-		requests.add(new File(file));
+		new Sound(file).play();
 	}
 }
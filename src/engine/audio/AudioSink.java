@@ -0,0 +1,34 @@
+package engine.audio;
+
+/**
+ * Where the {@link AudioMixer} sends its output. Normally this is the sound card
+ * (see {@link LineSink}), but it can also be memory (see {@link MemorySink}),
+ * e.g. for testing the mixer without any audio hardware.
+ * 
+ * Output is always in the {@link AudioMixer#FORMAT} format: 16 bit signed little
+ * endian stereo.
+ */
+public interface AudioSink {
+
+	/**
+	 * Write mixed audio. May block until there is room for the data; the
+	 * mixer thread relies on this for its pacing.
+	 * 
+	 * @param buffer audio bytes
+	 * @param offset offset of the first byte to write
+	 * @param length number of bytes to write
+	 */
+	public void write(byte[] buffer, int offset, int length);
+
+	/**
+	 * Get the number of frames written to the sink that have not been played
+	 * yet. Used to work out what can be heard right now.
+	 */
+	public int getBufferedFrames();
+
+	/**
+	 * Release the sink. No more data will be written after this.
+	 */
+	public void close();
+
+}
@@ -0,0 +1,124 @@
+package engine.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue carrying commands from any number of game threads
+ * to the mixer thread. Commands are stored in preallocated parallel arrays,
+ * so sending one does not allocate memory.
+ * 
+ * Each slot has a sequence number telling whether it is free for writing or
+ * holds a finished command; producers claim slots by bumping the tail counter
+ * with compare-and-set. Only the mixer thread may poll.
+ */
+class CommandQueue {
+
+	static final int PLAY = 1;
+	static final int SET_GAIN = 2;
+	static final int STOP = 3;
+	static final int STOP_ALL = 4;
+	static final int MUSIC_START = 5;
+	static final int MUSIC_FADE = 6;
+
+	private final int mask;
+	private final AtomicLongArray sequence;
+	private final AtomicLong tail = new AtomicLong();
+	private long head = 0;
+
+	private final int[] types;
+	private final int[] ids;
+	private final Object[] refs;
+	private final float[] gains;
+	private final float[] pans;
+	private final long[] times;
+
+	// The command most recently taken by poll()
+	int type;
+	int id;
+	Object ref;
+	float gain;
+	float pan;
+	long time;
+
+	/**
+	 * @param capacity maximum number of queued commands; rounded up to a power
+	 *                 of two
+	 */
+	CommandQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		mask = size - 1;
+		sequence = new AtomicLongArray(size);
+		for (int i = 0; i < size; ++i) {
+			sequence.set(i, i);
+		}
+		types = new int[size];
+		ids = new int[size];
+		refs = new Object[size];
+		gains = new float[size];
+		pans = new float[size];
+		times = new long[size];
+	}
+
+	/**
+	 * Send a command. Safe to call from any thread.
+	 * 
+	 * @return false if the queue is full
+	 */
+	boolean offer(int type, int id, Object ref, float gain, float pan, long time) {
+		long pos = tail.get();
+		while (true) {
+			long dif = sequence.get((int) pos & mask) - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+				pos = tail.get();
+			} else if (dif < 0) {
+				// The mixer hasn't caught up with the slot yet
+				return false;
+			} else {
+				pos = tail.get();
+			}
+		}
+
+		int i = (int) pos & mask;
+		types[i] = type;
+		ids[i] = id;
+		refs[i] = ref;
+		gains[i] = gain;
+		pans[i] = pan;
+		times[i] = time;
+
+		// Publish; the mixer won't look at the slot before this
+		sequence.set(i, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Take the next command into the type/id/ref/gain/pan/time fields. Mixer
+	 * thread only.
+	 * 
+	 * @return false if the queue is empty
+	 */
+	boolean poll() {
+		int i = (int) head & mask;
+		if (sequence.get(i) != head + 1) {
+			return false;
+		}
+
+		type = types[i];
+		id = ids[i];
+		ref = refs[i];
+		gain = gains[i];
+		pan = pans[i];
+		time = times[i];
+		refs[i] = null;
+
+		// Hand the slot back to the producers, one lap ahead
+		sequence.set(i, head + mask + 1);
+		++head;
+		return true;
+	}
+
+}
@@ -0,0 +1,52 @@
+package engine.audio;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Audio sink that plays sound through the sound card, using a single Java
+ * Sound SourceDataLine.
+ */
+public class LineSink implements AudioSink {
+
+	private final SourceDataLine line;
+
+	/**
+	 * Open and start a line.
+	 * 
+	 * @param bufferFrames size of the line's buffer in frames. Smaller buffers
+	 *                     mean less delay before a sound is heard, but too
+	 *                     small a buffer makes the sound crackle.
+	 * @throws LineUnavailableException if no line could be opened
+	 */
+	public LineSink(int bufferFrames) throws LineUnavailableException {
+		line = AudioSystem.getSourceDataLine(AudioMixer.FORMAT);
+		line.open(AudioMixer.FORMAT, bufferFrames * AudioMixer.FORMAT.getFrameSize());
+		line.start();
+	}
+
+	/**
+	 * Get direct access to the line.
+	 */
+	public SourceDataLine getLine() {
+		return line;
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int length) {
+		line.write(buffer, offset, length);
+	}
+
+	@Override
+	public int getBufferedFrames() {
+		return (line.getBufferSize() - line.available()) / AudioMixer.FORMAT.getFrameSize();
+	}
+
+	@Override
+	public void close() {
+		line.stop();
+		line.close();
+	}
+
+}
@@ -0,0 +1,68 @@
+package engine.audio;
+
+/**
+ * Audio sink that collects everything written to it in memory. Useful for
+ * testing the mixer, or for rendering sound to a file.
+ */
+public class MemorySink implements AudioSink {
+
+	private byte[] data = new byte[4096];
+	private int length = 0;
+
+	@Override
+	public void write(byte[] buffer, int offset, int len) {
+		if (length + len > data.length) {
+			byte[] n = new byte[Math.max(data.length * 2, length + len)];
+			System.arraycopy(data, 0, n, 0, length);
+			data = n;
+		}
+		System.arraycopy(buffer, offset, data, length, len);
+		length += len;
+	}
+
+	@Override
+	public int getBufferedFrames() {
+		// Memory "plays" everything the moment it is written
+		return 0;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Forget everything written so far.
+	 */
+	public void clear() {
+		length = 0;
+	}
+
+	/**
+	 * Get the number of frames written so far.
+	 */
+	public int getFrameCount() {
+		return length / AudioMixer.FORMAT.getFrameSize();
+	}
+
+	/**
+	 * Get one sample.
+	 * 
+	 * @param frame   frame number
+	 * @param channel 0 for left, 1 for right
+	 * @return the sample value
+	 */
+	public short getSample(int frame, int channel) {
+		int i = (frame * 2 + channel) * 2;
+		return (short) ((data[i] & 0xff) | (data[i + 1] << 8));
+	}
+
+	/**
+	 * Get a copy of all bytes written so far.
+	 */
+	public byte[] getBytes() {
+		byte[] b = new byte[length];
+		System.arraycopy(data, 0, b, 0, length);
+		return b;
+	}
+
+}
@@ -0,0 +1,397 @@
+package engine.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Background music. Unlike a {@link Sound}, music is never decoded into
+ * memory as a whole: a background thread decodes the file a little at a time
+ * into a small ring buffer, and the mixer plays from that buffer. Memory use
+ * is the same for a ten second jingle as for a ten minute track.
+ * 
+ * Music can loop, either the whole track or between two loop points (e.g. to
+ * play an intro once and then loop the rest), can be paused and resumed, and
+ * can fade or crossfade into another track:
+ * 
+ * <pre>
+ * Music level1 = new Music("music/level1.ogg");
+ * level1.setLooping(true);
+ * level1.play();
+ * ...
+ * level1.crossfadeTo(boss, 2.0);
+ * </pre>
+ */
+public class Music {
+
+	private static final int BUFFER_FRAMES = AudioMixer.SAMPLE_RATE / 2;
+	private static final int CHUNK_FRAMES = 2048;
+	private static final long IDLE_NANOS = 5000000l;
+
+	private final String file;
+
+	// Ring buffer; only the decoder thread moves 'written' and only the
+	// mixer thread moves 'consumed'
+	private final short[] ring = new short[BUFFER_FRAMES * 2];
+	private final short[] chunk = new short[CHUNK_FRAMES * 2];
+	private volatile long written = 0;
+	private volatile long consumed = 0;
+	private volatile boolean finished = false;
+	// Where the data of the current run starts in the ring buffer
+	private volatile long startMark = 0;
+
+	private volatile boolean looping = false;
+	private volatile long loopStart = 0;
+	private volatile long loopEnd = -1;
+
+	// 'playing' is what the game asked for; the mixer may still be fading out
+	// a stopped run. Every play() starts a new run, and a decoder or mixer
+	// stream that belongs to an older run stops by itself.
+	private volatile boolean playing = false;
+	private volatile boolean paused = false;
+	private volatile int run = 0;
+	private volatile int stoppedRun = -1;
+	private volatile float volume = 1.0f;
+	private volatile Thread decoder = null;
+
+	// Fading state, touched by the mixer thread only
+	float fadeGain = 1.0f;
+	float fadeTarget = 1.0f;
+	float fadeStep = 0.0f;
+	boolean stopWhenFaded = false;
+	int mixRun = -1;
+
+	/**
+	 * Create a new Music object. The file is not opened until the music is
+	 * played.
+	 * 
+	 * @param file path to the music file
+	 */
+	public Music(String file) {
+		this.file = file;
+	}
+
+	/**
+	 * Get the path of the music file.
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * Make the music start over when it reaches its end (or loop end point).
+	 * 
+	 * @param b true to loop
+	 */
+	public void setLooping(boolean b) {
+		looping = b;
+	}
+
+	/**
+	 * Return true if the music loops.
+	 */
+	public boolean isLooping() {
+		return looping;
+	}
+
+	/**
+	 * Set the part of the music that is looped. The music first plays from the
+	 * start to the loop end, then jumps back to the loop start. Only takes
+	 * effect if looping is enabled.
+	 * 
+	 * @param startSeconds where each repeat starts, in seconds
+	 * @param endSeconds   where each repeat ends, in seconds, or a negative
+	 *                     value for the end of the file
+	 * @throws IllegalArgumentException if the start is negative, or the end
+	 *                                  is not after the start
+	 */
+	public void setLoopPoints(double startSeconds, double endSeconds) {
+		if (startSeconds < 0.0 || (endSeconds >= 0.0 && endSeconds <= startSeconds)) {
+			throw new IllegalArgumentException("Bad loop points " + startSeconds + " - " + endSeconds);
+		}
+		loopStart = (long) (startSeconds * AudioMixer.SAMPLE_RATE);
+		loopEnd = endSeconds < 0.0 ? -1 : (long) (endSeconds * AudioMixer.SAMPLE_RATE);
+	}
+
+	/**
+	 * Set the volume of the music.
+	 * 
+	 * @param v volume, 1.0 for unchanged
+	 */
+	public void setVolume(double v) {
+		volume = (float) v;
+	}
+
+	/**
+	 * Get the volume of the music.
+	 */
+	public double getVolume() {
+		return volume;
+	}
+
+	/**
+	 * Start playing the music from the beginning. Does nothing if it is
+	 * already playing. Music that was stopped but is still fading out starts
+	 * over, fading back in from its current volume.
+	 */
+	public void play() {
+		play(0.0);
+	}
+
+	/**
+	 * Start playing the music from the beginning, fading in.
+	 * 
+	 * @param fadeSeconds length of the fade in, in seconds
+	 */
+	public synchronized void play(double fadeSeconds) {
+		if (playing) {
+			return;
+		}
+
+		// Make sure the decoder of an earlier run is gone
+		int r = run + 1;
+		run = r;
+		if (decoder != null) {
+			LockSupport.unpark(decoder);
+			try {
+				decoder.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// The new run is written after whatever is left in the ring buffer;
+		// the mixer skips ahead to it when it picks up the new run
+		startMark = written;
+		finished = false;
+		paused = false;
+
+		decoder = new Thread(() -> decode(r), "Music decoder");
+		decoder.setDaemon(true);
+		decoder.start();
+		playing = true;
+
+		AudioPlayer.get().getMixer().startMusic(this, (float) fadeSeconds);
+	}
+
+	/**
+	 * Stop the music straight away.
+	 */
+	public void stop() {
+		stop(0.0);
+	}
+
+	/**
+	 * Fade the music out and stop it. The music counts as stopped straight
+	 * away, so it can be played again while it is still fading out.
+	 * 
+	 * @param fadeSeconds length of the fade out, in seconds
+	 */
+	public synchronized void stop(double fadeSeconds) {
+		if (playing) {
+			playing = false;
+			AudioPlayer.get().getMixer().fadeMusic(this, 0.0f, (float) fadeSeconds, true);
+		}
+	}
+
+	/**
+	 * Fade this music out while fading another one in.
+	 * 
+	 * @param next    the music to switch to
+	 * @param seconds length of the crossfade, in seconds
+	 */
+	public void crossfadeTo(Music next, double seconds) {
+		stop(seconds);
+		next.play(seconds);
+	}
+
+	/**
+	 * Pause the music. It continues from the same spot when resumed.
+	 */
+	public void pause() {
+		paused = true;
+	}
+
+	/**
+	 * Continue paused music.
+	 */
+	public void resume() {
+		paused = false;
+	}
+
+	/**
+	 * Return true if the music is playing (including while paused).
+	 */
+	public boolean isPlaying() {
+		return playing;
+	}
+
+	/**
+	 * Return true if the music is paused.
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Copy decoded frames out of the ring buffer. Mixer thread only; never
+	 * blocks.
+	 * 
+	 * @return number of frames copied; fewer than asked for if the decoder
+	 *         has fallen behind or the music has ended
+	 */
+	int read(short[] out, int frames) {
+		long c = consumed;
+		int n = (int) Math.min(frames, written - c);
+		int start = (int) (c % BUFFER_FRAMES);
+		int first = Math.min(n, BUFFER_FRAMES - start);
+
+		System.arraycopy(ring, start * 2, out, 0, first * 2);
+		System.arraycopy(ring, 0, out, first * 2, (n - first) * 2);
+
+		consumed = c + n;
+		return n;
+	}
+
+	/**
+	 * Return true once the music has ended and everything decoded has been
+	 * played. Mixer thread only.
+	 */
+	boolean isDrained() {
+		return finished && consumed == written;
+	}
+
+	/**
+	 * Return true if the music should produce no output right now.
+	 */
+	boolean isPausedForMixer() {
+		return paused;
+	}
+
+	float getVolumeForMixer() {
+		return volume;
+	}
+
+	/**
+	 * Called by the mixer when it picks up a new run. Mixer thread only.
+	 */
+	void startedByMixer() {
+		mixRun = run;
+		// Skip what is left of an earlier run
+		consumed = Math.max(consumed, startMark);
+	}
+
+	/**
+	 * Called by the mixer once it has dropped this music. Mixer thread only.
+	 */
+	void stopped() {
+		stoppedRun = mixRun;
+		if (mixRun == run) {
+			playing = false;
+			// play() may have started a new run in the meantime
+			if (mixRun != run) {
+				playing = true;
+			}
+		}
+		LockSupport.unpark(decoder);
+	}
+
+	/**
+	 * Decoder thread: keep the ring buffer topped up until the music ends, or
+	 * its run is stopped or replaced by a new one.
+	 * 
+	 * @param myRun the run this decoder belongs to
+	 */
+	private void decode(int myRun) {
+		PcmReader reader = null;
+		try {
+			reader = new PcmReader(new File(file));
+			long position = 0;
+			// Where the current pass through the loop started; -1 during the
+			// first play from the start of the file
+			long passStart = -1;
+
+			while (run == myRun && stoppedRun != myRun) {
+				long free = BUFFER_FRAMES - (written - consumed);
+				if (free < CHUNK_FRAMES) {
+					LockSupport.parkNanos(IDLE_NANOS);
+					continue;
+				}
+
+				int want = CHUNK_FRAMES;
+				long end = looping ? loopEnd : -1;
+				if (end >= 0 && position + want > end) {
+					want = (int) Math.max(0, end - position);
+				}
+
+				int n = want > 0 ? reader.read(chunk, 0, want) : -1;
+				if (n < 0) {
+					if (!looping) {
+						break;
+					}
+					if (position == passStart) {
+						// A whole pass produced nothing, e.g. the loop start is
+						// past the end of the file; looping would only spin
+						System.err.println("Music " + file + " has nothing to loop");
+						break;
+					}
+					// Back to the loop start
+					reader.close();
+					reader = new PcmReader(new File(file));
+					position = skip(reader, loopStart);
+					passStart = position;
+					continue;
+				}
+
+				store(n);
+				position += n;
+			}
+		} catch (IOException | UnsupportedAudioFileException e) {
+			System.err.println("Error streaming music " + file);
+			System.err.println(e.getMessage());
+		} finally {
+			finished = true;
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					System.err.println("Error closing music stream: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy a decoded chunk into the ring buffer.
+	 */
+	private void store(int frames) {
+		long w = written;
+		int start = (int) (w % BUFFER_FRAMES);
+		int first = Math.min(frames, BUFFER_FRAMES - start);
+
+		System.arraycopy(chunk, 0, ring, start * 2, first * 2);
+		System.arraycopy(chunk, first * 2, ring, 0, (frames - first) * 2);
+
+		written = w + frames;
+	}
+
+	/**
+	 * Read and throw away frames.
+	 * 
+	 * @return number of frames skipped
+	 */
+	private long skip(PcmReader reader, long frames) throws IOException {
+		long skipped = 0;
+		while (skipped < frames) {
+			int n = reader.read(chunk, 0, (int) Math.min(CHUNK_FRAMES, frames - skipped));
+			if (n < 0) {
+				break;
+			}
+			skipped += n;
+		}
+		return skipped;
+	}
+
+}
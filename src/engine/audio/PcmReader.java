@@ -0,0 +1,131 @@
+package engine.audio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Reads an audio file as a stream of frames in the mixer's format: 16 bit
+ * stereo at {@link AudioMixer#SAMPLE_RATE}. Mono files are spread to both channels
+ * and other sample rates are converted with linear interpolation.
+ */
+class PcmReader implements Closeable {
+
+	private final AudioInputStream in;
+	private final int channels;
+	private final int frameSize;
+	private final double step;
+
+	private final byte[] buffer = new byte[4096];
+	private int bufferPos = 0;
+	private int bufferLen = 0;
+
+	// Resampling state: the two source frames we're between, and where
+	private int l0, r0, l1, r1;
+	private double frac = 0.0;
+	private boolean started = false;
+	private boolean ended = false;
+
+	PcmReader(File file) throws IOException, UnsupportedAudioFileException {
+		AudioInputStream src = AudioSystem.getAudioInputStream(file);
+		AudioFormat sf = src.getFormat();
+		channels = sf.getChannels();
+		frameSize = channels * 2;
+
+		AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sf.getSampleRate(), 16,
+				channels, frameSize, sf.getSampleRate(), false);
+		try {
+			in = AudioSystem.getAudioInputStream(target, src);
+		} catch (IllegalArgumentException e) {
+			src.close();
+			throw new UnsupportedAudioFileException("Cannot convert " + sf + " to 16 bit PCM");
+		}
+
+		step = sf.getSampleRate() / AudioMixer.SAMPLE_RATE;
+	}
+
+	/**
+	 * Read frames.
+	 * 
+	 * @param out    destination, interleaved left/right
+	 * @param offset index of the first frame to write
+	 * @param frames maximum number of frames to read
+	 * @return number of frames read, or -1 at the end of the file
+	 */
+	int read(short[] out, int offset, int frames) throws IOException {
+		if (!started) {
+			started = true;
+			if (!nextSourceFrame()) {
+				return -1;
+			}
+			l0 = l1;
+			r0 = r1;
+			if (!nextSourceFrame()) {
+				l1 = l0;
+				r1 = r0;
+			}
+		}
+		if (ended) {
+			return -1;
+		}
+
+		int n = 0;
+		int o = offset * 2;
+		while (n < frames) {
+			out[o++] = (short) (l0 + (l1 - l0) * frac);
+			out[o++] = (short) (r0 + (r1 - r0) * frac);
+			++n;
+
+			frac += step;
+			while (frac >= 1.0) {
+				frac -= 1.0;
+				l0 = l1;
+				r0 = r1;
+				if (!nextSourceFrame()) {
+					ended = true;
+					return n;
+				}
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Read the next source frame into l1/r1.
+	 * 
+	 * @return false at the end of the file
+	 */
+	private boolean nextSourceFrame() throws IOException {
+		if (bufferLen - bufferPos < frameSize) {
+			// Keep any partial frame and refill behind it
+			int rest = bufferLen - bufferPos;
+			System.arraycopy(buffer, bufferPos, buffer, 0, rest);
+			bufferLen = rest;
+			bufferPos = 0;
+			while (bufferLen < frameSize) {
+				int r = in.read(buffer, bufferLen, buffer.length - bufferLen);
+				if (r < 0) {
+					return false;
+				}
+				bufferLen += r;
+			}
+		}
+
+		int p = bufferPos;
+		l1 = (short) ((buffer[p] & 0xff) | (buffer[p + 1] << 8));
+		r1 = channels > 1 ? (short) ((buffer[p + 2] & 0xff) | (buffer[p + 3] << 8)) : l1;
+		bufferPos += frameSize;
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
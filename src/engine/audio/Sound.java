@@ -1,18 +1,136 @@
 package engine.audio;
 
+import java.io.IOException;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
 /**
  * Quick-and-dirty sound interface for playing single sound effects. 
+ * The sound file is decoded when the Sound is created, and the
+ * samples are kept in the {@link SoundBank}, where they are shared
+ * with other Sounds of the same file.
+ * 
+ * Playing never decodes on the calling thread. If the sound has been
+ * evicted from the bank since, that play is skipped while the sound is
+ * decoded again in the background.
  */
 public class Sound {
 
+	/**
+	 * Load a sound. Unlike the constructor, this reports failure with an
+	 * exception instead of printing an error.
+	 * 
+	 * @param file path to the sound file
+	 * @return a new Sound object
+	 * @throws IOException                   if the file cannot be read
+	 * @throws UnsupportedAudioFileException if the file format is not supported
+	 */
+	public static Sound load(String file) throws IOException, UnsupportedAudioFileException {
+		AudioPlayer.get().getSoundBank().get(file);
+		return new Sound(file, false);
+	}
+
 	private String file;
+	private boolean broken;
 	
+	/**
+	 * Create a new Sound. If the file cannot be loaded, an error message is
+	 * printed and the sound stays silent.
+	 * 
+	 * @param file path to the sound file
+	 */
 	public Sound(String file) {
 		this.file = file;
+		broken = getData() == null;
+	}
+
+	private Sound(String file, boolean broken) {
+		this.file = file;
+		this.broken = broken;
 	}
 	
 	public void play() {
-		AudioPlayer.get().play(file);
-	}	
+		play(1.0, 0.0);
+	}
+
+	/**
+	 * Play the sound with a given volume and stereo position.
+	 * 
+	 * @param gain volume, 1.0 for unchanged
+	 * @param pan  -1.0 for left only, 0.0 for center, 1.0 for right only
+	 * @return a voice id that can be passed to the AudioMixer to change or stop the
+	 *         sound, or -1 if the sound could not be played (e.g. because it
+	 *         is being decoded again after eviction)
+	 */
+	public int play(double gain, double pan) {
+		if (broken) {
+			return -1;
+		}
+		SoundData data = AudioPlayer.get().getSoundBank().getOrDecodeLater(file);
+		if (data == null) {
+			return -1;
+		}
+		return AudioPlayer.get().getMixer().play(data, (float) gain, (float) pan);
+	}
+
+	/**
+	 * Schedule the sound to start at an exact time on the audio clock (see
+	 * {@link AudioPlayer#getTime()}). The sound is placed at the matching
+	 * sample in the output, as long as it is scheduled before the mixer has
+	 * got that far. The mixer runs ahead of what can be heard by the sound
+	 * card's buffer, so schedule at least {@link AudioPlayer#getLatency()}
+	 * ahead of the audio clock (about 30 milliseconds); a sound scheduled
+	 * closer than that starts late.
+	 * 
+	 * @param time audio clock time in seconds
+	 * @return a voice id, or -1 if the sound could not be played
+	 */
+	public int playAt(double time) {
+		return playAtFrame((long) (time * AudioMixer.SAMPLE_RATE + 0.5), 1.0, 0.0);
+	}
+
+	/**
+	 * Schedule the sound to start at an exact sample frame on the mixer clock
+	 * (see {@link AudioMixer#getFramePosition()}).
+	 * 
+	 * @param frame mixer clock frame to start at
+	 * @param gain  volume, 1.0 for unchanged
+	 * @param pan   -1.0 for left only, 0.0 for center, 1.0 for right only
+	 * @return a voice id, or -1 if the sound could not be played
+	 */
+	public int playAtFrame(long frame, double gain, double pan) {
+		if (broken) {
+			return -1;
+		}
+		SoundData data = AudioPlayer.get().getSoundBank().getOrDecodeLater(file);
+		if (data == null) {
+			return -1;
+		}
+		return AudioPlayer.get().getMixer().playAt(data, (float) gain, (float) pan, frame);
+	}
+
+	/**
+	 * Get the path of the sound file.
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * Get the decoded sound from the sound bank, decoding it again if it has
+	 * been evicted. Unlike playing, this waits for the decoding.
+	 * 
+	 * @return decoded sound, or null if it could not be loaded
+	 */
+	public SoundData getData() {
+		try {
+			return AudioPlayer.get().getSoundBank().get(file);
+		} catch (IOException | UnsupportedAudioFileException e) {
+			System.err.println("Error reading sound " + file);
+			System.err.println(e.getMessage());
+			broken = true;
+			return null;
+		}
+	}
 	
 }
@@ -0,0 +1,263 @@
+package engine.audio;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Cache of decoded sounds. Each sound file is decoded once and the samples
+ * are shared by everything that plays it. When the decoded sounds take up
+ * more memory than the budget allows, the ones that were played least
+ * recently are dropped; they are decoded again if they are played later.
+ * 
+ * The hit, miss and eviction counters tell how well the budget fits a game:
+ * lots of misses after the first play of each sound means the budget is too
+ * small.
+ * 
+ * Sounds played during the game use {@link #getOrDecodeLater(String)}, which
+ * never decodes on the calling thread: an evicted sound is decoded again in
+ * the background, and is ready for the next time it is played.
+ */
+public class SoundBank {
+
+	private long budget;
+	private long usage = 0;
+
+	// Access ordered: iteration starts at the least recently played sound
+	private final LinkedHashMap<String, SoundData> sounds = new LinkedHashMap<>(64, 0.75f, true);
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	// Files being decoded in the background, and files that failed to decode
+	private final HashSet<String> decoding = new HashSet<>();
+	private final HashSet<String> failed = new HashSet<>();
+	private final ThreadPoolExecutor decoder;
+
+	/**
+	 * Create a new SoundBank.
+	 * 
+	 * @param budget memory in bytes that decoded sounds may use
+	 */
+	public SoundBank(long budget) {
+		this.budget = budget;
+
+		decoder = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					Thread t = new Thread(r, "Sound decoder");
+					t.setDaemon(true);
+					return t;
+				});
+		decoder.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Get the decoded samples of a sound file, decoding it if it is not in
+	 * the bank. Counts as the sound being played for deciding what to evict.
+	 * 
+	 * @param file path to the sound file
+	 * @return decoded sound
+	 * @throws IOException                   if the file cannot be read
+	 * @throws UnsupportedAudioFileException if the file format is not supported
+	 */
+	public SoundData get(String file) throws IOException, UnsupportedAudioFileException {
+		synchronized (this) {
+			SoundData d = sounds.get(file);
+			if (d != null) {
+				++hits;
+				return d;
+			}
+			++misses;
+		}
+
+		// Decode outside the lock so other sounds can still be played
+		// meanwhile; if two threads race here, the second result wins
+		// and the first is simply collected.
+		SoundData d = SoundData.decode(file);
+		store(file, d);
+		return d;
+	}
+
+	/**
+	 * Get the decoded samples of a sound file without waiting for it to be
+	 * decoded. If the sound is not in the bank, it is decoded on a background
+	 * thread and null is returned; it can be played once decoding is done.
+	 * Counts as the sound being played for deciding what to evict.
+	 * 
+	 * A file that fails to decode is not tried again in the background until
+	 * it has been decoded with {@link #get(String)}, or dropped with
+	 * {@link #remove(String)} or {@link #clear()}.
+	 * 
+	 * @param file path to the sound file
+	 * @return decoded sound, or null if it is not in the bank (yet)
+	 */
+	public synchronized SoundData getOrDecodeLater(String file) {
+		SoundData d = sounds.get(file);
+		if (d != null) {
+			++hits;
+			return d;
+		}
+		++misses;
+		if (!failed.contains(file) && decoding.add(file)) {
+			decoder.execute(() -> decodeLater(file));
+		}
+		return null;
+	}
+
+	/**
+	 * Get the decoded samples of a sound file only if they are in the bank.
+	 * 
+	 * @param file path to the sound file
+	 * @return decoded sound, or null if it is not in the bank
+	 */
+	public synchronized SoundData getIfResident(String file) {
+		return sounds.get(file);
+	}
+
+	/**
+	 * Return true if a sound file is decoded and in the bank.
+	 */
+	public synchronized boolean isResident(String file) {
+		return sounds.containsKey(file);
+	}
+
+	/**
+	 * Drop a sound from the bank. This also forgets that the file failed to
+	 * decode, if it did, so playing it tries again.
+	 * 
+	 * @param file path to the sound file
+	 */
+	public synchronized void remove(String file) {
+		failed.remove(file);
+		SoundData d = sounds.remove(file);
+		if (d != null) {
+			usage -= d.getSizeInBytes();
+		}
+	}
+
+	/**
+	 * Drop all sounds from the bank, and forget which files failed to decode.
+	 */
+	public synchronized void clear() {
+		sounds.clear();
+		failed.clear();
+		usage = 0;
+	}
+
+	/**
+	 * Change the memory budget, evicting sounds straight away if needed.
+	 * 
+	 * @param bytes memory in bytes that decoded sounds may use
+	 */
+	public synchronized void setBudget(long bytes) {
+		budget = bytes;
+		evict(null);
+	}
+
+	/**
+	 * Get the memory budget in bytes.
+	 */
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Get the memory used by decoded sounds in bytes.
+	 */
+	public synchronized long getMemoryUsage() {
+		return usage;
+	}
+
+	/**
+	 * Get the number of sounds in the bank.
+	 */
+	public synchronized int size() {
+		return sounds.size();
+	}
+
+	/**
+	 * Get the number of times a requested sound was already decoded.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of times a requested sound had to be decoded.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of sounds dropped to stay within the budget.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Set the hit, miss and eviction counters back to zero.
+	 */
+	public synchronized void resetCounters() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	private void decodeLater(String file) {
+		try {
+			store(file, SoundData.decode(file));
+		} catch (IOException | UnsupportedAudioFileException e) {
+			System.err.println("Error reading sound " + file);
+			System.err.println(e.getMessage());
+			synchronized (this) {
+				// Don't keep trying a file that can't be read
+				failed.add(file);
+			}
+		} finally {
+			synchronized (this) {
+				decoding.remove(file);
+			}
+		}
+	}
+
+	private synchronized void store(String file, SoundData d) {
+		// The file can be read after all (e.g. it was fixed or put in place)
+		failed.remove(file);
+		SoundData old = sounds.put(file, d);
+		if (old != null) {
+			usage -= old.getSizeInBytes();
+		}
+		usage += d.getSizeInBytes();
+		evict(file);
+	}
+
+	/**
+	 * Drop least recently played sounds until the bank fits its budget.
+	 * 
+	 * @param keep a sound that must stay even if it alone is over budget, or
+	 *             null
+	 */
+	private void evict(String keep) {
+		Iterator<Map.Entry<String, SoundData>> it = sounds.entrySet().iterator();
+		while (usage > budget && it.hasNext()) {
+			Map.Entry<String, SoundData> e = it.next();
+			if (e.getKey().equals(keep)) {
+				continue;
+			}
+			usage -= e.getValue().getSizeInBytes();
+			it.remove();
+			++evictions;
+		}
+	}
+
+}
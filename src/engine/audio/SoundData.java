@@ -0,0 +1,82 @@
+package engine.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Decoded audio, ready for the {@link AudioMixer} to play: 16 bit stereo samples at
+ * {@link AudioMixer#SAMPLE_RATE}, left and right interleaved. SoundData never
+ * changes after it has been created, so it can be shared freely.
+ */
+public class SoundData {
+
+	/**
+	 * Read and decode an audio file completely.
+	 * 
+	 * @param file path to the audio file
+	 * @return a new SoundData object
+	 * @throws IOException                   if the file cannot be read
+	 * @throws UnsupportedAudioFileException if the file format is not supported
+	 */
+	public static SoundData decode(String file) throws IOException, UnsupportedAudioFileException {
+		try (PcmReader reader = new PcmReader(new File(file))) {
+			short[] samples = new short[AudioMixer.SAMPLE_RATE * 2];
+			int frames = 0;
+			int r;
+			while (true) {
+				if (frames * 2 == samples.length) {
+					short[] n = new short[samples.length * 2];
+					System.arraycopy(samples, 0, n, 0, samples.length);
+					samples = n;
+				}
+				r = reader.read(samples, frames, samples.length / 2 - frames);
+				if (r < 0) {
+					break;
+				}
+				frames += r;
+			}
+
+			short[] exact = new short[frames * 2];
+			System.arraycopy(samples, 0, exact, 0, exact.length);
+			return new SoundData(exact);
+		}
+	}
+
+	final short[] samples;
+	final int frames;
+
+	/**
+	 * Create SoundData from samples.
+	 * 
+	 * @param samples interleaved left/right 16 bit samples at
+	 *                {@link AudioMixer#SAMPLE_RATE}
+	 */
+	public SoundData(short[] samples) {
+		this.samples = samples;
+		this.frames = samples.length / 2;
+	}
+
+	/**
+	 * Get the length of the sound in frames (one left and one right sample).
+	 */
+	public int getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Get the length of the sound in seconds.
+	 */
+	public double getDuration() {
+		return frames / (double) AudioMixer.SAMPLE_RATE;
+	}
+
+	/**
+	 * Get the memory used by the samples, in bytes.
+	 */
+	public long getSizeInBytes() {
+		return samples.length * 2l;
+	}
+
+}
@@ -0,0 +1,18 @@
+package engine.collision;
+
+import engine.graphics.GraphicsObject;
+
+/**
+ * Callback for receiving overlapping pairs from a {@link SpatialHash}.
+ */
+public interface PairHandler {
+
+    /**
+     * Called once for every pair of objects whose bounding boxes overlap.
+     * 
+     * @param a a graphics object
+     * @param b another graphics object whose bounding box overlaps that of a
+     */
+    public void overlap(GraphicsObject a, GraphicsObject b);
+
+}
@@ -0,0 +1,629 @@
+package engine.collision;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import engine.graphics.GraphicsObject;
+import engine.graphics.GraphicsObjectListener;
+
+/**
+ * Collision broadphase. Sorts graphics objects into a uniform grid of square
+ * cells by their bounding boxes (see {@link GraphicsObject#getX0()} and
+ * friends), so that finding the objects near some point only has to look at a
+ * few cells instead of every object in the game.
+ * 
+ * Objects added to the hash are kept up to date automatically: whenever an
+ * object is moved with setPosition() or move(), its cells are updated.
+ * 
+ * Only cells that actually contain something are stored, so the world can be
+ * as large as you like. Choose a cell size around the size of your typical
+ * object - e.g. 64 for 32 pixel sprites. Queries and pair finding do not
+ * allocate memory.
+ * 
+ * Objects that would cover a great many cells (e.g. a huge background
+ * collider) are not put into cells at all, but kept in a separate list that
+ * every query checks.
+ */
+public class SpatialHash {
+
+    // Objects covering more cells than this go into the 'everywhere' list
+    private static final int MAX_CELLS_PER_OBJECT = 64;
+
+    /**
+     * Per-object bookkeeping. Doubles as the listener that keeps the object's
+     * cells up to date when it moves.
+     */
+    private final class Entry implements GraphicsObjectListener {
+        final GraphicsObject object;
+        double x0, y0, x1, y1;
+        int cx0, cy0, cx1, cy1;
+        int index;
+        int stamp;
+        boolean everywhere;
+        int everywhereIndex;
+
+        Entry(GraphicsObject object) {
+            this.object = object;
+        }
+
+        @Override
+        public void graphicsObjectChanged(GraphicsObject o) {
+            move(this);
+        }
+    }
+
+    private final double cellSize;
+    private final double invCellSize;
+
+    // All entries, packed at the front of the array
+    private Entry[] entries = new Entry[64];
+    private int entryCount = 0;
+    private final IdentityHashMap<GraphicsObject, Entry> lookup = new IdentityHashMap<>();
+
+    // Entries too large to put into cells
+    private Entry[] everywhere = new Entry[8];
+    private int everywhereCount = 0;
+
+    // Open addressing table of cells; a cell with no entries may stay in
+    // the table until the next rehash
+    private long[] cellKeys;
+    private Entry[][] cells;
+    private int[] cellSizes;
+    private boolean[] cellUsed;
+    private int cellCount = 0;
+    private int mask;
+
+    private int queryStamp = 0;
+
+    /**
+     * Create a new SpatialHash.
+     * 
+     * @param cellSize width and height of a grid cell, in pixels
+     */
+    public SpatialHash(double cellSize) {
+        if (cellSize <= 0.0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSize = cellSize;
+        invCellSize = 1.0 / cellSize;
+        allocateCells(256);
+    }
+
+    /**
+     * Get the cell size of this hash.
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Get the number of objects in this hash.
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Add a graphics object to the hash. Adding an object twice does nothing.
+     * 
+     * @param o a graphics object
+     */
+    public void add(GraphicsObject o) {
+        if (lookup.containsKey(o)) {
+            return;
+        }
+
+        Entry e = new Entry(o);
+        if (entryCount == entries.length) {
+            Entry[] n = new Entry[entries.length * 2];
+            System.arraycopy(entries, 0, n, 0, entryCount);
+            entries = n;
+        }
+        e.index = entryCount;
+        entries[entryCount++] = e;
+        lookup.put(o, e);
+
+        readBounds(e);
+        e.cx0 = cellX(e.x0);
+        e.cy0 = cellY(e.y0);
+        e.cx1 = cellX(e.x1);
+        e.cy1 = cellY(e.y1);
+        insertCells(e);
+
+        o.addListener(e);
+    }
+
+    /**
+     * Remove a graphics object from the hash.
+     * 
+     * @param o a graphics object
+     * @return true if the object was in the hash
+     */
+    public boolean remove(GraphicsObject o) {
+        Entry e = lookup.remove(o);
+        if (e == null) {
+            return false;
+        }
+
+        o.removeListener(e);
+        removeCells(e);
+
+        // Swap the last entry into the hole
+        Entry last = entries[--entryCount];
+        entries[e.index] = last;
+        last.index = e.index;
+        entries[entryCount] = null;
+        return true;
+    }
+
+    /**
+     * Return true if the graphics object is in this hash.
+     */
+    public boolean contains(GraphicsObject o) {
+        return lookup.containsKey(o);
+    }
+
+    /**
+     * Remove all objects from the hash.
+     */
+    public void clear() {
+        for (int i = 0; i < entryCount; ++i) {
+            entries[i].object.removeListener(entries[i]);
+            entries[i] = null;
+        }
+        entryCount = 0;
+        lookup.clear();
+        for (int i = 0; i < everywhereCount; ++i) {
+            everywhere[i] = null;
+        }
+        everywhereCount = 0;
+        allocateCells(256);
+    }
+
+    /**
+     * Re-read the bounding box of an object. This happens automatically when an
+     * object is moved, but needs to be called by hand if the bounding box
+     * changes in some other way the object doesn't report.
+     * 
+     * @param o a graphics object in this hash
+     */
+    public void update(GraphicsObject o) {
+        Entry e = lookup.get(o);
+        if (e != null) {
+            move(e);
+        }
+    }
+
+    /**
+     * Find all pairs of objects whose bounding boxes overlap. Each pair is
+     * reported exactly once.
+     * 
+     * @param handler the callback receiving the pairs
+     */
+    public void findPairs(PairHandler handler) {
+        for (int c = 0; c < cellUsed.length; ++c) {
+            int n = cellSizes[c];
+            if (!cellUsed[c] || n < 2) {
+                continue;
+            }
+
+            Entry[] cell = cells[c];
+            long key = cellKeys[c];
+            int cx = (int) (key >> 32);
+            int cy = (int) key;
+
+            for (int i = 0; i < n - 1; ++i) {
+                Entry a = cell[i];
+                for (int j = i + 1; j < n; ++j) {
+                    Entry b = cell[j];
+                    if (!overlaps(a, b)) {
+                        continue;
+                    }
+
+                    // Objects spanning several cells meet in more than one of
+                    // them. Only report the pair from the cell that holds the
+                    // top left corner of the overlap area.
+                    double ox = a.x0 > b.x0 ? a.x0 : b.x0;
+                    double oy = a.y0 > b.y0 ? a.y0 : b.y0;
+                    if (cellX(ox) == cx && cellY(oy) == cy) {
+                        handler.overlap(a.object, b.object);
+                    }
+                }
+            }
+        }
+
+        // Objects that are in no cell are checked against every object. A
+        // pair of two such objects is reported from the earlier one's turn only.
+        for (int i = 0; i < everywhereCount; ++i) {
+            Entry a = everywhere[i];
+            for (int j = 0; j < entryCount; ++j) {
+                Entry b = entries[j];
+                if (b == a || (b.everywhere && b.everywhereIndex < i)) {
+                    continue;
+                }
+                if (overlaps(a, b)) {
+                    handler.overlap(a.object, b.object);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find all objects whose bounding boxes overlap a rectangle.
+     * 
+     * @param x0  left edge of the rectangle
+     * @param y0  top edge of the rectangle
+     * @param x1  right edge of the rectangle
+     * @param y1  bottom edge of the rectangle
+     * @param out a list the objects found are added to. The list is not cleared
+     *            first.
+     * @return the number of objects found
+     */
+    public int queryRect(double x0, double y0, double x1, double y1, List<GraphicsObject> out) {
+        int found = 0;
+        int stamp = ++queryStamp;
+
+        int qx0 = cellX(x0);
+        int qy0 = cellY(y0);
+        int qx1 = cellX(x1);
+        int qy1 = cellY(y1);
+
+        if (isLargeArea(qx0, qy0, qx1, qy1)) {
+            for (int i = 0; i < entryCount; ++i) {
+                Entry e = entries[i];
+                if (hitsRect(e, x0, y0, x1, y1)) {
+                    out.add(e.object);
+                    ++found;
+                }
+            }
+            return found;
+        }
+
+        for (int cy = qy0; cy <= qy1; ++cy) {
+            for (int cx = qx0; cx <= qx1; ++cx) {
+                int c = findCell(cx, cy);
+                if (c < 0) {
+                    continue;
+                }
+
+                Entry[] cell = cells[c];
+                for (int i = 0, n = cellSizes[c]; i < n; ++i) {
+                    Entry e = cell[i];
+                    if (e.stamp == stamp) {
+                        continue;
+                    }
+                    e.stamp = stamp;
+                    if (hitsRect(e, x0, y0, x1, y1)) {
+                        out.add(e.object);
+                        ++found;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < everywhereCount; ++i) {
+            Entry e = everywhere[i];
+            if (hitsRect(e, x0, y0, x1, y1)) {
+                out.add(e.object);
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find all objects whose bounding boxes contain a point.
+     * 
+     * @param x   X coordinate of the point
+     * @param y   Y coordinate of the point
+     * @param out a list the objects found are added to. The list is not cleared
+     *            first.
+     * @return the number of objects found
+     */
+    public int queryPoint(double x, double y, List<GraphicsObject> out) {
+        int found = 0;
+        int c = findCell(cellX(x), cellY(y));
+        if (c >= 0) {
+            Entry[] cell = cells[c];
+            for (int i = 0, n = cellSizes[c]; i < n; ++i) {
+                Entry e = cell[i];
+                if (hitsRect(e, x, y, x, y)) {
+                    out.add(e.object);
+                    ++found;
+                }
+            }
+        }
+
+        for (int i = 0; i < everywhereCount; ++i) {
+            Entry e = everywhere[i];
+            if (hitsRect(e, x, y, x, y)) {
+                out.add(e.object);
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find all objects whose bounding boxes overlap a circle.
+     * 
+     * @param x      X coordinate of the circle's center
+     * @param y      Y coordinate of the circle's center
+     * @param radius radius of the circle
+     * @param out    a list the objects found are added to. The list is not
+     *               cleared first.
+     * @return the number of objects found
+     */
+    public int queryCircle(double x, double y, double radius, List<GraphicsObject> out) {
+        int found = 0;
+        int stamp = ++queryStamp;
+        double r2 = radius * radius;
+
+        int qx0 = cellX(x - radius);
+        int qy0 = cellY(y - radius);
+        int qx1 = cellX(x + radius);
+        int qy1 = cellY(y + radius);
+
+        if (isLargeArea(qx0, qy0, qx1, qy1)) {
+            for (int i = 0; i < entryCount; ++i) {
+                Entry e = entries[i];
+                if (hitsCircle(e, x, y, r2)) {
+                    out.add(e.object);
+                    ++found;
+                }
+            }
+            return found;
+        }
+
+        for (int cy = qy0; cy <= qy1; ++cy) {
+            for (int cx = qx0; cx <= qx1; ++cx) {
+                int c = findCell(cx, cy);
+                if (c < 0) {
+                    continue;
+                }
+
+                Entry[] cell = cells[c];
+                for (int i = 0, n = cellSizes[c]; i < n; ++i) {
+                    Entry e = cell[i];
+                    if (e.stamp == stamp) {
+                        continue;
+                    }
+                    e.stamp = stamp;
+                    if (hitsCircle(e, x, y, r2)) {
+                        out.add(e.object);
+                        ++found;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < everywhereCount; ++i) {
+            Entry e = everywhere[i];
+            if (hitsCircle(e, x, y, r2)) {
+                out.add(e.object);
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Return true if a query area covers so many cells that it is cheaper to
+     * just check every object.
+     */
+    private boolean isLargeArea(int qx0, int qy0, int qx1, int qy1) {
+        return ((long) qx1 - qx0 + 1) * ((long) qy1 - qy0 + 1) > entryCount;
+    }
+
+    private static boolean hitsRect(Entry e, double x0, double y0, double x1, double y1) {
+        return e.x0 <= x1 && e.x1 >= x0 && e.y0 <= y1 && e.y1 >= y0;
+    }
+
+    private static boolean hitsCircle(Entry e, double x, double y, double r2) {
+        // Distance from the circle center to the closest point of the
+        // bounding box
+        double dx = x < e.x0 ? e.x0 - x : x > e.x1 ? x - e.x1 : 0.0;
+        double dy = y < e.y0 ? e.y0 - y : y > e.y1 ? y - e.y1 : 0.0;
+        return dx * dx + dy * dy <= r2;
+    }
+
+    private static boolean overlaps(Entry a, Entry b) {
+        return a.x0 < b.x1 && b.x0 < a.x1 && a.y0 < b.y1 && b.y0 < a.y1;
+    }
+
+    private int cellX(double x) {
+        return (int) Math.floor(x * invCellSize);
+    }
+
+    private int cellY(double y) {
+        return (int) Math.floor(y * invCellSize);
+    }
+
+    private void readBounds(Entry e) {
+        GraphicsObject o = e.object;
+        e.x0 = o.getX0();
+        e.y0 = o.getY0();
+        e.x1 = o.getX1();
+        e.y1 = o.getY1();
+    }
+
+    /**
+     * Called when an object has moved. Only touches the cell table if the
+     * object actually crossed into a different set of cells.
+     */
+    private void move(Entry e) {
+        readBounds(e);
+        int cx0 = cellX(e.x0);
+        int cy0 = cellY(e.y0);
+        int cx1 = cellX(e.x1);
+        int cy1 = cellY(e.y1);
+        if (cx0 == e.cx0 && cy0 == e.cy0 && cx1 == e.cx1 && cy1 == e.cy1) {
+            return;
+        }
+
+        removeCells(e);
+        e.cx0 = cx0;
+        e.cy0 = cy0;
+        e.cx1 = cx1;
+        e.cy1 = cy1;
+        insertCells(e);
+    }
+
+    private void insertCells(Entry e) {
+        if (((long) e.cx1 - e.cx0 + 1) * ((long) e.cy1 - e.cy0 + 1) > MAX_CELLS_PER_OBJECT) {
+            if (everywhereCount == everywhere.length) {
+                Entry[] n = new Entry[everywhere.length * 2];
+                System.arraycopy(everywhere, 0, n, 0, everywhereCount);
+                everywhere = n;
+            }
+            e.everywhere = true;
+            e.everywhereIndex = everywhereCount;
+            everywhere[everywhereCount++] = e;
+            return;
+        }
+
+        for (int cy = e.cy0; cy <= e.cy1; ++cy) {
+            for (int cx = e.cx0; cx <= e.cx1; ++cx) {
+                int c = findOrCreateCell(cx, cy);
+                Entry[] cell = cells[c];
+                int n = cellSizes[c];
+                if (n == cell.length) {
+                    Entry[] grown = new Entry[n * 2];
+                    System.arraycopy(cell, 0, grown, 0, n);
+                    cells[c] = cell = grown;
+                }
+                cell[n] = e;
+                cellSizes[c] = n + 1;
+            }
+        }
+    }
+
+    private void removeCells(Entry e) {
+        if (e.everywhere) {
+            // Swap the last entry into the hole
+            Entry last = everywhere[--everywhereCount];
+            everywhere[e.everywhereIndex] = last;
+            last.everywhereIndex = e.everywhereIndex;
+            everywhere[everywhereCount] = null;
+            e.everywhere = false;
+            return;
+        }
+
+        for (int cy = e.cy0; cy <= e.cy1; ++cy) {
+            for (int cx = e.cx0; cx <= e.cx1; ++cx) {
+                int c = findCell(cx, cy);
+                if (c < 0) {
+                    continue;
+                }
+                Entry[] cell = cells[c];
+                int n = cellSizes[c];
+                for (int i = 0; i < n; ++i) {
+                    if (cell[i] == e) {
+                        cell[i] = cell[n - 1];
+                        cell[n - 1] = null;
+                        cellSizes[c] = n - 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffl);
+    }
+
+    private static int hash(long key) {
+        // Mix the bits so neighbouring cells end up far apart in the table
+        key *= 0x9E3779B97F4A7C15l;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private int findCell(int cx, int cy) {
+        long k = key(cx, cy);
+        int i = hash(k) & mask;
+        while (cellUsed[i]) {
+            if (cellKeys[i] == k) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findOrCreateCell(int cx, int cy) {
+        long k = key(cx, cy);
+        int i = hash(k) & mask;
+        while (cellUsed[i]) {
+            if (cellKeys[i] == k) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Keep the table at most half full
+        if ((cellCount + 1) * 2 > cellUsed.length) {
+            rehash();
+            return findOrCreateCell(cx, cy);
+        }
+
+        cellUsed[i] = true;
+        cellKeys[i] = k;
+        if (cells[i] == null) {
+            cells[i] = new Entry[4];
+        }
+        cellSizes[i] = 0;
+        ++cellCount;
+        return i;
+    }
+
+    private void allocateCells(int capacity) {
+        cellKeys = new long[capacity];
+        cells = new Entry[capacity][];
+        cellSizes = new int[capacity];
+        cellUsed = new boolean[capacity];
+        cellCount = 0;
+        mask = capacity - 1;
+    }
+
+    /**
+     * Rebuild the cell table, dropping cells that have become empty. The table
+     * only grows if it would still be more than a quarter full afterwards.
+     */
+    private void rehash() {
+        long[] oldKeys = cellKeys;
+        Entry[][] oldCells = cells;
+        int[] oldSizes = cellSizes;
+        boolean[] oldUsed = cellUsed;
+
+        int live = 0;
+        for (int i = 0; i < oldUsed.length; ++i) {
+            if (oldUsed[i] && oldSizes[i] > 0) {
+                ++live;
+            }
+        }
+
+        int capacity = oldUsed.length;
+        while (live * 4 > capacity) {
+            capacity *= 2;
+        }
+        allocateCells(capacity);
+
+        for (int i = 0; i < oldUsed.length; ++i) {
+            if (!oldUsed[i] || oldSizes[i] == 0) {
+                continue;
+            }
+            long k = oldKeys[i];
+            int j = hash(k) & mask;
+            while (cellUsed[j]) {
+                j = (j + 1) & mask;
+            }
+            cellUsed[j] = true;
+            cellKeys[j] = k;
+            cells[j] = oldCells[i];
+            cellSizes[j] = oldSizes[i];
+            ++cellCount;
+        }
+    }
+
+}
@@ -1,13 +1,25 @@
 package engine.core;
 
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.awt.image.ImageObserver;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.function.DoubleSupplier;
 
+import engine.graphics.DirtyRegions;
+import engine.graphics.DisplayList;
 import engine.graphics.Drawable;
+import engine.graphics.GraphicsObject;
+import engine.jobs.JobGraph;
+import engine.jobs.JobSystem;
+import engine.jobs.RangeTask;
+import engine.math.EMath;
+import engine.profiling.Profiler;
 
 /**
  * Main engine logic and abstract base class for user applications.
@@ -27,20 +39,84 @@ public abstract class Application implements ScreenPainter {
 
     private boolean shouldRun = true;
     private boolean shouldPrintFPS = false;
-    private long targetFrameRate = 60;
+    private final FramePacer pacer = new FramePacer(60);
     private int frameRate = 0;
 
-    private ArrayList<Drawable> drawables = new ArrayList<>();
+    private double fixedTimestep = 0.0;
+    private int maxFixedSteps = 5;
+    private double accumulator = 0.0;
+    private double interpolationAlpha = 1.0;
+
+    private DoubleSupplier timeSource = null;
+    private double lastSourceTime = 0.0;
+    private double time = 0.0;
+
+    private InputRecorder recorder = null;
+
+    private final Profiler profiler = new Profiler();
+
+    private final JobSystem jobs = new JobSystem();
+    private final JobGraph frameJobs = new JobGraph(jobs);
+    private int parallelUpdateCount = 0;
+    private int parallelUpdateGrain = 1;
+    private double parallelUpdateDelta = 0.0;
+    private final RangeTask parallelUpdateTask = (from, to) -> updateRange(from, to, parallelUpdateDelta);
+
+    private final DisplayList drawables = new DisplayList();
+    private final Camera camera;
+    private final Rectangle clipBounds = new Rectangle();
+    private DirtyRegions dirty = null;
 
     /**
-     * Constructs an application with a basic screen width and a screen height
+     * Constructs an application with a basic screen width and a screen height.
+     * A window is opened, unless Java is running in headless mode, in which case
+     * the application renders offscreen.
      * 
      * @param screen_width
      * @param screen_height
      */
     protected Application(int screen_width, int screen_height) {
-        screen = new Screen(screen_width, screen_height, this);
+        this(screen_width, screen_height,
+                GraphicsEnvironment.isHeadless() ? ScreenMode.OFFSCREEN : ScreenMode.WINDOWED);
+    }
+
+    /**
+     * Constructs an application with a basic screen width and a screen height,
+     * rendering to the given kind of screen. With {@link ScreenMode#OFFSCREEN}
+     * no window is opened and no keyboard input is received; the game runs until
+     * {@link #exit()} is called.
+     * 
+     * @param screen_width
+     * @param screen_height
+     * @param mode          the kind of screen to render to
+     */
+    protected Application(int screen_width, int screen_height, ScreenMode mode) {
+        if (mode == ScreenMode.OFFSCREEN) {
+            screen = new OffscreenScreen(screen_width, screen_height, this);
+        } else {
+            screen = new WindowScreen(screen_width, screen_height, this);
+        }
         input = new Input(screen.getFrame());
+        camera = new Camera(screen_width, screen_height);
+        screen.setProfiler(profiler);
+
+        // Add default key bindings
+        input.bind("LEFT",  KeyEvent.VK_LEFT);
+        input.bind("RIGHT", KeyEvent.VK_RIGHT);
+        input.bind("UP",    KeyEvent.VK_UP);
+        input.bind("DOWN",  KeyEvent.VK_DOWN);
+        input.bind("FIRE",  KeyEvent.VK_SPACE);
+        input.bind("EXIT",  KeyEvent.VK_ESCAPE);
+
+        // Skip drawing anything that is completely outside of the screen
+        clipBounds.setBounds(0, 0, screen_width, screen_height);
+        drawables.setViewport(0, 0, screen_width, screen_height);
+        drawables.setCulling(true);
+
+        // An offscreen screen has no window that could be closed
+        if (screen.getFrame() == null) {
+            return;
+        }
 
         // Attach a windowlistener to the screen frame to be able to
         // respond to the user closing the game window. We want to
@@ -85,15 +161,6 @@ public abstract class Application implements ScreenPainter {
             public void windowActivated(WindowEvent e) {
             }
         });
-
-        // Add default key bindings
-        input.bind("LEFT",  KeyEvent.VK_LEFT);
-        input.bind("RIGHT", KeyEvent.VK_RIGHT);
-        input.bind("UP",    KeyEvent.VK_UP);
-        input.bind("DOWN",  KeyEvent.VK_DOWN);
-        input.bind("FIRE",  KeyEvent.VK_SPACE);
-        input.bind("EXIT",  KeyEvent.VK_ESCAPE);
-        
     }
 
     /**
@@ -103,7 +170,28 @@ public abstract class Application implements ScreenPainter {
      * @param fps target frame rate
      */
     public void setTargetFrameRate(int fps) {
-        targetFrameRate = fps < 10 ? 10 : fps > 240 ? 240 : fps;
+        pacer.setTargetFrameRate(fps < 10 ? 10 : fps > 240 ? 240 : fps);
+    }
+
+    /**
+     * Get the FramePacer that keeps the main loop running at the target frame
+     * rate. Use it to tune the trade-off between timing precision and CPU use,
+     * or to turn frame limiting off.
+     * 
+     * @return the FramePacer object used by the main loop
+     */
+    public FramePacer getFramePacer() {
+        return pacer;
+    }
+
+    /**
+     * Get the average frame timing jitter, i.e. how far off from the ideal frame
+     * start time each frame started.
+     * 
+     * @return average jitter in seconds
+     */
+    public double getFrameJitter() {
+        return pacer.getAverageJitter() / 1000000000.0;
     }
 
     /**
@@ -126,6 +214,82 @@ public abstract class Application implements ScreenPainter {
         shouldPrintFPS = enable;
     }
 
+    /**
+     * Use another clock than the system clock for working out delta times. For
+     * example, {@code setTimeSource(AudioPlayer.get()::getTime)} runs the game
+     * on the audio clock, so that game time and sound playback can't drift apart
+     * and sounds scheduled with Sound.playAt(getTime() + x) line up exactly.
+     * 
+     * Frame pacing still uses the system clock.
+     * 
+     * @param source a function returning the current time in seconds, or null to
+     *               go back to the system clock
+     */
+    public void setTimeSource(DoubleSupplier source) {
+        timeSource = source;
+        if (source != null) {
+            lastSourceTime = source.getAsDouble();
+        }
+    }
+
+    /**
+     * Get the game time: the sum of all delta values passed to
+     * {@link #update(double)} so far, in seconds.
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Enable fixed timestep mode. In this mode {@link #fixedUpdate(double)} is
+     * called zero or more times per frame, always with the same step length, so
+     * that game logic runs the same way no matter how fast or slow the frames are.
+     * {@link #update(double)} is still called once per frame.
+     * 
+     * Positions of GraphicsObjects are blended between the last two steps when
+     * drawing, so that movement stays smooth even if the step rate and the frame
+     * rate differ.
+     * 
+     * @param seconds length of one step in seconds, e.g. 1.0 / 60.0. Use 0 to
+     *                disable fixed timestep mode (the default).
+     */
+    public void setFixedTimestep(double seconds) {
+        fixedTimestep = seconds > 0.0 ? seconds : 0.0;
+        accumulator = 0.0;
+        interpolationAlpha = 1.0;
+    }
+
+    /**
+     * Get the current fixed timestep length.
+     * 
+     * @return step length in seconds, or 0 if fixed timestep mode is disabled
+     */
+    public double getFixedTimestep() {
+        return fixedTimestep;
+    }
+
+    /**
+     * Set the maximum number of fixed steps run in a single frame. If the game
+     * falls further behind than this, the remaining time is dropped and the game
+     * slows down instead of spending ever more time trying to catch up.
+     * 
+     * @param steps maximum number of steps per frame, at least 1. Default: 5.
+     */
+    public void setMaxFixedSteps(int steps) {
+        maxFixedSteps = steps < 1 ? 1 : steps;
+    }
+
+    /**
+     * Get the interpolation value used for drawing in fixed timestep mode.
+     * 
+     * @return a value between 0 and 1 telling how far the current frame is between
+     *         the previous step and the current step. Always 1 if fixed timestep
+     *         mode is disabled.
+     */
+    public double getInterpolationAlpha() {
+        return interpolationAlpha;
+    }
+
     /**
      * Run the main game loop.
      * 
@@ -139,6 +303,7 @@ public abstract class Application implements ScreenPainter {
 
         // keep looping until the game ends
         while (shouldRun) {
+            profiler.begin(Profiler.FRAME);
 
             // Work out how long its been since the last update
             long now = System.nanoTime();
@@ -150,6 +315,13 @@ public abstract class Application implements ScreenPainter {
             // scale game object movement speed.
             double delta = frameTime / 1000000000.0;
 
+            // An external clock, if set, overrides the measured delta
+            if (timeSource != null) {
+                double t = timeSource.getAsDouble();
+                delta = t - lastSourceTime;
+                lastSourceTime = t;
+            }
+
             // Update FPS counter
             lastFpsTime += frameTime;
             fps++;
@@ -167,40 +339,207 @@ public abstract class Application implements ScreenPainter {
             }
 
             // Update input
+            profiler.begin(Profiler.INPUT);
             input.update();
 
-            // Update game logic, passing in delta timing value
-            // to allow for speed compensation
-            update(delta);
-
-            // Cause screen to redraw. This will call back to our
-            // paint(g) routine.
-            screen.update();
-
-            // Make the thread sleep so we don't burn up unnecessary CPU time but
-            // still keep our frame rate up.
-            try {
-                // Figure out how long our frame should ideally be
-                long targetDuration = 1000000000l / targetFrameRate;
-
-                // Figure out how much time we spent doing updates and painting
-                long elapsed = System.nanoTime() - now;
-
-                // We need to sleep for roughly the amount of time that we didn't spend
-                // Thread.sleep expects a duration in milliseconds, and we're operating in
-                // nanoseconds, so we need to divide the time by that amount...
-                long sleep_tm = (targetDuration - elapsed) / 1000000l;
-
-                // Actually sleep. Add 1 msec to get a somewhat saner sleep time...
-                Thread.sleep(sleep_tm);
-            } catch (Exception ignore) {
-                // We ignore all exceptions, because if this fails, we've got unrecoverable
-                // problems
+            // Write the frame to the input recording, if one is running
+            if (recorder != null) {
+                try {
+                    recorder.recordFrame(delta, input);
+                } catch (IOException e) {
+                    System.err.println("Input recording failed: " + e.getMessage());
+                    stopRecording();
+                }
             }
+            profiler.end(Profiler.INPUT);
+
+            runFrame(delta);
+
+            // Wait for the start of the next frame so we don't burn up
+            // unnecessary CPU time but still keep our frame rate up.
+            profiler.begin(Profiler.SLEEP);
+            pacer.waitForNextFrame();
+            profiler.end(Profiler.SLEEP);
+
+            profiler.end(Profiler.FRAME);
+            profiler.endFrame();
         }
 
+        stopRecording();
+
         // Dispose of the screen, we don't need it anymore...
-        screen.getFrame().dispose();
+        screen.dispose();
+        jobs.shutdown();
+    }
+
+    /**
+     * Play back a session recorded with {@link #startRecording(String)}. Call this
+     * instead of {@link #run()}, on an application in the same starting state as
+     * the recorded one.
+     * 
+     * Every frame gets the recorded delta time and key events, and the random seed
+     * of the recording is restored, so a game that takes its randomness from EMath
+     * behaves exactly as it did when recorded. Frames run back to back as fast as
+     * possible, which makes replays useful as repeatable performance tests: create
+     * the application with ScreenMode.OFFSCREEN to replay without a window.
+     * 
+     * The replay ends at the end of the recording, or when {@link #exit()} is
+     * called.
+     * 
+     * @param file path of a recording
+     * 
+     * @throws IOException if the recording can't be read
+     */
+    public void replay(String file) throws IOException {
+        InputReplay log = new InputReplay(file);
+        EMath.setRandomSeed(log.getSeed());
+
+        try {
+            while (shouldRun) {
+                profiler.begin(Profiler.FRAME);
+                profiler.begin(Profiler.INPUT);
+                double delta = log.nextFrame(input);
+                profiler.end(Profiler.INPUT);
+                if (delta < 0.0) {
+                    break;
+                }
+                runFrame(delta);
+                profiler.end(Profiler.FRAME);
+                profiler.endFrame();
+            }
+        } finally {
+            log.close();
+            screen.dispose();
+            jobs.shutdown();
+        }
+    }
+
+    /**
+     * Start recording delta times and key events to a file, for playing the session
+     * back later with {@link #replay(String)}. Call this before {@link #run()} so
+     * the recording covers the whole session.
+     * 
+     * This also seeds EMath's random numbers with a fresh seed, which is stored in
+     * the recording.
+     * 
+     * @param file path of the file to write; an existing file is overwritten
+     * 
+     * @throws IOException if the file can't be created
+     */
+    public void startRecording(String file) throws IOException {
+        stopRecording();
+        long seed = System.nanoTime();
+        recorder = new InputRecorder(file, seed);
+        EMath.setRandomSeed(seed);
+    }
+
+    /**
+     * Stop the running input recording, if any, and close its file. Also happens
+     * automatically when the game loop ends.
+     */
+    public void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            System.err.println("Could not close input recording: " + e.getMessage());
+        }
+        recorder = null;
+    }
+
+    /**
+     * Get the running input recording.
+     * 
+     * @return the recorder, or null if no recording is running
+     */
+    public InputRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Run the game logic and drawing for one frame. Input has already been
+     * updated at this point.
+     * 
+     * @param delta number of seconds since the last frame
+     */
+    private void runFrame(double delta) {
+        profiler.begin(Profiler.UPDATE);
+        time += delta;
+
+        // Blending between fixed steps moves things every frame without them
+        // telling anyone, so dirty rectangles can't keep track
+        if (dirty != null && fixedTimestep > 0.0) {
+            dirty.markAll();
+        }
+
+        // Run fixed steps for the time that has accumulated, if enabled
+        if (fixedTimestep > 0.0) {
+            runFixedSteps(delta);
+        }
+
+        // Update game logic, passing in delta timing value
+        // to allow for speed compensation
+        update(delta);
+
+        // Run the parallel part of the update and the jobs added during this
+        // frame, and wait for all of them before anything is drawn
+        if (parallelUpdateCount > 0) {
+            parallelUpdateDelta = delta;
+            jobs.parallelFor(0, parallelUpdateCount, parallelUpdateGrain, parallelUpdateTask);
+        }
+        try {
+            frameJobs.run();
+        } finally {
+            frameJobs.clear();
+        }
+
+        // If the camera moved, everything in the world moved on screen
+        if (dirty != null) {
+            dirty.setWorldTransform(camera.getZoom(), camera.getOffsetX(), camera.getOffsetY());
+        }
+        drawables.resetCounts();
+        profiler.end(Profiler.UPDATE);
+
+        // Cause screen to redraw. This will call back to our
+        // paint(g) routine.
+        screen.update();
+    }
+
+    /**
+     * Run as many fixed steps as fit into the accumulated time and work out the
+     * interpolation value for drawing.
+     * 
+     * @param delta number of seconds since the last frame
+     */
+    private void runFixedSteps(double delta) {
+        accumulator += delta;
+
+        int steps = 0;
+        while (accumulator >= fixedTimestep && steps < maxFixedSteps) {
+            // Remember where everything was, so drawing can blend between
+            // the previous and the current step
+            drawables.forEach(Application::storePreviousPosition);
+
+            fixedUpdate(fixedTimestep);
+            accumulator -= fixedTimestep;
+            ++steps;
+        }
+
+        // We hit the step limit; drop the backlog so we don't spiral
+        // into taking longer and longer to catch up
+        if (accumulator >= fixedTimestep) {
+            accumulator %= fixedTimestep;
+        }
+
+        interpolationAlpha = accumulator / fixedTimestep;
+    }
+
+    private static void storePreviousPosition(Drawable d) {
+        if (d instanceof GraphicsObject) {
+            ((GraphicsObject) d).storePreviousPosition();
+        }
     }
 
     /**
@@ -211,12 +550,29 @@ public abstract class Application implements ScreenPainter {
     }
 
     /**
-     * Add a drawable to the screen
+     * Add a drawable to the screen. It goes into layer 0 of the display list, on
+     * top of everything added to that layer before.
      * 
      * @param s a drawable object
+     * 
+     * @return a handle that can be used to remove the drawable again quickly, or to
+     *         change its z order
+     */
+    public DisplayList.Entry addDrawable(Drawable d) {
+        return drawables.add(d);
+    }
+
+    /**
+     * Add a drawable to the screen in a given layer. Higher layers are drawn on top
+     * of lower ones.
+     * 
+     * @param d     a drawable object
+     * @param layer a layer number
+     * 
+     * @return a handle for the drawable
      */
-    public void addDrawable(Drawable d) {
-        drawables.add(d);
+    public DisplayList.Entry addDrawable(Drawable d, int layer) {
+        return drawables.add(d, layer);
     }
 
     /**
@@ -235,6 +591,166 @@ public abstract class Application implements ScreenPainter {
         drawables.clear();
     }
 
+    /**
+     * Get the display list, which holds everything that is drawn each frame. Use
+     * it for layers, z ordering and adding or removing many drawables at once.
+     * 
+     * The display list culls drawables that are invisible or outside of the visible
+     * area. If you draw with your own transforms in paint(), turn that off
+     * with {@code getDisplayList().setCulling(false)}. The number of drawables drawn
+     * and culled in the last frame is available from getDrawnCount() and
+     * getCulledCount().
+     */
+    public DisplayList getDisplayList() {
+        return drawables;
+    }
+
+    /**
+     * Get the profiler, which measures how long each part of every frame takes:
+     * input, update, paint, present (showing the frame on screen) and sleep
+     * (waiting for the next frame), as well as scopes of your own. Measuring is
+     * off until turned on with {@code getProfiler().setEnabled(true)}. Unlike the
+     * frame rate, the profiler's percentiles show the occasional slow frame; see
+     * {@link engine.profiling.ProfilerOverlay} for drawing them on screen.
+     */
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Get the job system, for spreading work over all CPU cores. By default it has
+     * one worker thread per core. Call {@code getJobs().setWorkers(1)} to run all
+     * jobs on the game loop thread in a fixed order, which makes runs exactly
+     * repeatable.
+     */
+    public JobSystem getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Get the job graph for the current frame. Jobs added to it, e.g. from
+     * update(), run in parallel right after update() returns, and are all finished
+     * before the frame is drawn. The graph is emptied after every frame.
+     */
+    public JobGraph getFrameJobs() {
+        return frameJobs;
+    }
+
+    /**
+     * Split part of the update over all CPU cores. Every frame, after update(),
+     * {@link #updateRange(int, int, double)} is called for the indices from 0 up to
+     * count, in pieces of at most grain indices at a time, on several threads at
+     * once. This suits loops over many independent things, like entities.
+     * 
+     * @param count number of indices to update, or 0 to turn this off (default)
+     * @param grain the largest number of indices handed to one thread at a time
+     */
+    public void setParallelUpdate(int count, int grain) {
+        parallelUpdateCount = Math.max(0, count);
+        parallelUpdateGrain = Math.max(1, grain);
+    }
+
+    /**
+     * Get the number of indices updated by updateRange() each frame.
+     */
+    public int getParallelUpdateCount() {
+        return parallelUpdateCount;
+    }
+
+    /**
+     * The parallel part of the game logic, see
+     * {@link #setParallelUpdate(int, int)}. Different ranges run at the same
+     * time on different threads, so this must only change data belonging to its
+     * own indices. Does nothing by default.
+     * 
+     * @param from  first index
+     * @param to    one past the last index
+     * @param delta number of seconds since the last frame
+     */
+    public void updateRange(int from, int to, double delta) {
+    }
+
+    /**
+     * Get the camera. Drawables are positioned in world coordinates, and the camera
+     * decides which part of the world is shown; move it to scroll. Layers marked
+     * as screen space in the display list don't move with the camera and are drawn
+     * on top of the world.
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Turn dirty rectangle rendering on or off. Off by default.
+     * 
+     * Normally the whole screen is cleared and everything is drawn again every
+     * frame. With dirty rectangle rendering, the screen keeps the previous frame,
+     * and only the areas where something changed are cleared and redrawn. Graphics
+     * objects in the display list report their own changes (moving, showing or
+     * hiding, changing image, text or color). For anything else, e.g. drawing of
+     * your own in paint() or a ParticleSystem, call {@link #markDirty} or
+     * {@link #markAllDirty()} when it changes.
+     * 
+     * This saves a lot of work (and battery) in menus, puzzle games and other
+     * scenes where little moves. When too much of the screen changes, the whole
+     * screen is redrawn as usual. In fixed timestep mode, objects move between
+     * steps on their own, so the whole screen is redrawn every frame.
+     * 
+     * @param enabled true to redraw only what changed
+     */
+    public void setDirtyRendering(boolean enabled) {
+        if (enabled == (dirty != null)) {
+            return;
+        }
+        dirty = enabled ? new DirtyRegions(screen.getWidth(), screen.getHeight()) : null;
+        if (dirty != null) {
+            dirty.setWorldTransform(camera.getZoom(), camera.getOffsetX(), camera.getOffsetY());
+        }
+        drawables.setDirtyRegions(dirty);
+        screen.setDirtyRegions(dirty);
+    }
+
+    /**
+     * Check whether dirty rectangle rendering is on.
+     */
+    public boolean isDirtyRendering() {
+        return dirty != null;
+    }
+
+    /**
+     * Mark an area of the screen to be redrawn in dirty rectangle mode. Does
+     * nothing otherwise.
+     * 
+     * @param x      left edge
+     * @param y      top edge
+     * @param width  width of the area
+     * @param height height of the area
+     */
+    public void markDirty(double x, double y, double width, double height) {
+        if (dirty != null) {
+            dirty.add(x, y, x + width, y + height);
+        }
+    }
+
+    /**
+     * Mark the whole screen to be redrawn in dirty rectangle mode. Does nothing
+     * otherwise.
+     */
+    public void markAllDirty() {
+        if (dirty != null) {
+            dirty.markAll();
+        }
+    }
+
+    /**
+     * Get the dirty rectangles, for fine control over dirty rectangle rendering.
+     * 
+     * @return the DirtyRegions, or null if dirty rectangle rendering is off
+     */
+    public DirtyRegions getDirtyRegions() {
+        return dirty;
+    }
+
     /**
      * Main game loop. This gets called once per frame.
      * 
@@ -243,6 +759,16 @@ public abstract class Application implements ScreenPainter {
      */
     public abstract void update(double delta);
 
+    /**
+     * Fixed step game logic. This only gets called if fixed timestep mode has been
+     * enabled with {@link #setFixedTimestep(double)}; it is then called zero or
+     * more times per frame, before {@link #update(double)}. Does nothing by default.
+     * 
+     * @param step the fixed step length in seconds
+     */
+    public void fixedUpdate(double step) {
+    }
+
     /**
      * The actual screen painting routine. This gets called by Screen when graphics
      * need to appear.
@@ -251,11 +777,27 @@ public abstract class Application implements ScreenPainter {
     public void paint(Graphics2D g) {
 
         ImageObserver obs = screen.getObserver();
+        double alpha = fixedTimestep > 0.0 ? interpolationAlpha : 1.0;
 
-        for (int i = 0, l = drawables.size(); i < l; ++i) {
-            drawables.get(i).draw(g, obs);
-        }
+        // Draw the world through the camera. Only what is inside the clip (the
+        // screen, or a dirty rectangle) needs to be drawn; with the camera
+        // applied, the clip bounds are the visible part of the world.
+        AffineTransform screenTransform = g.getTransform();
+        camera.apply(g);
+        setViewport(g);
+        drawables.draw(g, obs, alpha, false);
+        g.setTransform(screenTransform);
+
+        // Then screen space layers on top, in screen pixels
+        setViewport(g);
+        drawables.draw(g, obs, alpha, true);
+
+    }
 
+    private void setViewport(Graphics2D g) {
+        g.getClipBounds(clipBounds);
+        drawables.setViewport(clipBounds.x, clipBounds.y,
+                clipBounds.x + clipBounds.width, clipBounds.y + clipBounds.height);
     }
 
 }
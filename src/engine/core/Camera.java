@@ -0,0 +1,240 @@
+package engine.core;
+
+import java.awt.Graphics2D;
+
+import engine.math.MutableVec2;
+
+/**
+ * A camera looking at the game world. Drawables are positioned in world
+ * coordinates, and the camera decides which part of the world shows up on
+ * screen: its position is the world point shown at the center of the screen,
+ * and its zoom is how many screen pixels one world unit takes.
+ *
+ * Application applies the camera to the Graphics2D context once per frame before
+ * drawing, so scrolling around the world only means moving the camera; nothing
+ * in the world has to be moved. Layers of the display list that should not move
+ * with the camera, like a score display, can be put into screen space with
+ * {@link engine.graphics.DisplayList#setLayerScreenSpace(int, boolean)}.
+ *
+ * By default the camera starts out centered on the screen with a zoom of 1, so
+ * world coordinates are the same as screen coordinates until it is moved.
+ */
+public class Camera {
+
+    private final int width;
+    private final int height;
+
+    private double x;
+    private double y;
+    private double zoom = 1.0;
+    private boolean pixelSnap = true;
+
+    /**
+     * Create a new camera for a screen of the given size, looking at the center
+     * of the screen.
+     *
+     * @param width  screen width in pixels
+     * @param height screen height in pixels
+     */
+    public Camera(int width, int height) {
+        this.width = width;
+        this.height = height;
+        x = width * 0.5;
+        y = height * 0.5;
+    }
+
+    /**
+     * Set the world point shown at the center of the screen.
+     *
+     * @param x world X coordinate
+     * @param y world Y coordinate
+     */
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Move the camera by some amount.
+     *
+     * @param dx distance to move along X, in world units
+     * @param dy distance to move along Y, in world units
+     */
+    public void move(double dx, double dy) {
+        x += dx;
+        y += dy;
+    }
+
+    /**
+     * Get the world X coordinate shown at the center of the screen.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Get the world Y coordinate shown at the center of the screen.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Set the zoom factor. 2 makes everything twice as big, 0.5 half as big.
+     * The zoom centers on the camera position.
+     *
+     * @param zoom a number greater than 0. Default: 1.
+     */
+    public void setZoom(double zoom) {
+        if (zoom <= 0.0) {
+            throw new IllegalArgumentException("Zoom must be greater than 0");
+        }
+        this.zoom = zoom;
+    }
+
+    /**
+     * Get the zoom factor.
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Turn pixel snapping on or off. With pixel snapping, the camera scrolls in
+     * whole screen pixels, so images drawn at whole world coordinates stay sharp
+     * and don't shimmer while the camera moves slowly. On by default.
+     *
+     * @param enabled true to snap to whole pixels
+     */
+    public void setPixelSnap(boolean enabled) {
+        pixelSnap = enabled;
+    }
+
+    /**
+     * Check whether pixel snapping is on.
+     */
+    public boolean isPixelSnap() {
+        return pixelSnap;
+    }
+
+    /**
+     * Get the screen X position of world X coordinate 0.
+     */
+    public double getOffsetX() {
+        double ox = width * 0.5 - x * zoom;
+        return pixelSnap ? Math.floor(ox + 0.5) : ox;
+    }
+
+    /**
+     * Get the screen Y position of world Y coordinate 0.
+     */
+    public double getOffsetY() {
+        double oy = height * 0.5 - y * zoom;
+        return pixelSnap ? Math.floor(oy + 0.5) : oy;
+    }
+
+    /**
+     * Set up a Graphics2D context so that drawing in world coordinates ends up in
+     * the right place on screen. Application does this for you before drawing the
+     * world layers.
+     *
+     * @param g a Graphics2D context set up to draw in screen pixels
+     */
+    public void apply(Graphics2D g) {
+        g.translate(getOffsetX(), getOffsetY());
+        if (zoom != 1.0) {
+            g.scale(zoom, zoom);
+        }
+    }
+
+    /**
+     * Convert a world X coordinate to a screen X coordinate.
+     */
+    public double worldToScreenX(double wx) {
+        return wx * zoom + getOffsetX();
+    }
+
+    /**
+     * Convert a world Y coordinate to a screen Y coordinate.
+     */
+    public double worldToScreenY(double wy) {
+        return wy * zoom + getOffsetY();
+    }
+
+    /**
+     * Convert a screen X coordinate to a world X coordinate.
+     */
+    public double screenToWorldX(double sx) {
+        return (sx - getOffsetX()) / zoom;
+    }
+
+    /**
+     * Convert a screen Y coordinate to a world Y coordinate.
+     */
+    public double screenToWorldY(double sy) {
+        return (sy - getOffsetY()) / zoom;
+    }
+
+    /**
+     * Convert a point from world to screen coordinates, in place.
+     *
+     * @param v a point in world coordinates; receives the screen coordinates
+     * @return v
+     */
+    public MutableVec2 worldToScreen(MutableVec2 v) {
+        return v.set(worldToScreenX(v.x), worldToScreenY(v.y));
+    }
+
+    /**
+     * Convert a point from screen to world coordinates, in place.
+     *
+     * @param v a point in screen coordinates; receives the world coordinates
+     * @return v
+     */
+    public MutableVec2 screenToWorld(MutableVec2 v) {
+        return v.set(screenToWorldX(v.x), screenToWorldY(v.y));
+    }
+
+    /**
+     * Get the left edge of the visible part of the world.
+     */
+    public double getViewX0() {
+        return screenToWorldX(0);
+    }
+
+    /**
+     * Get the top edge of the visible part of the world.
+     */
+    public double getViewY0() {
+        return screenToWorldY(0);
+    }
+
+    /**
+     * Get the right edge of the visible part of the world.
+     */
+    public double getViewX1() {
+        return screenToWorldX(width);
+    }
+
+    /**
+     * Get the bottom edge of the visible part of the world.
+     */
+    public double getViewY1() {
+        return screenToWorldY(height);
+    }
+
+    /**
+     * Get the screen width this camera was made for.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the screen height this camera was made for.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+}
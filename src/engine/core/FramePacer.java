@@ -0,0 +1,194 @@
+package engine.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the main loop running at a steady frame rate.
+ * 
+ * Frames are scheduled against absolute deadlines (start + n * period), so
+ * small errors in one frame are corrected in the next instead of adding up.
+ * Waiting is done in two parts: the thread sleeps until it is close to the
+ * deadline, then busy-waits for the last stretch, since sleeping is only
+ * accurate to a millisecond or so on most systems. The length of the busy
+ * wait is the "spin budget": more spinning means more precise frame timing,
+ * but also more CPU time burnt.
+ * 
+ * The difference between the deadline and the moment the pacer actually
+ * returned is measured every frame and reported as jitter.
+ */
+public class FramePacer {
+
+    private static final long JITTER_WINDOW = 1000000000l;
+
+    private long period;
+    private long spinBudget = 1500000l;
+    private long deadline = 0;
+    private boolean started = false;
+    private boolean enabled = true;
+
+    private long lastJitter = 0;
+    private double averageJitter = 0.0;
+    private long maxJitter = 0;
+    private long windowMaxJitter = 0;
+    private long windowStart = 0;
+    private int missedFrames = 0;
+
+    /**
+     * Create a new FramePacer.
+     * 
+     * @param fps target frame rate
+     */
+    public FramePacer(double fps) {
+        setTargetFrameRate(fps);
+    }
+
+    /**
+     * Set the target frame rate. The schedule restarts on the next frame.
+     * 
+     * @param fps frames per second, must be greater than 0
+     */
+    public void setTargetFrameRate(double fps) {
+        period = (long) (1000000000.0 / fps);
+        started = false;
+    }
+
+    /**
+     * Get the target frame rate.
+     */
+    public double getTargetFrameRate() {
+        return 1000000000.0 / period;
+    }
+
+    /**
+     * Set how long before a deadline the pacer stops sleeping and starts
+     * busy-waiting. Higher values give more precise frame timing at the cost of
+     * CPU time. Zero disables busy-waiting completely.
+     * 
+     * @param nanos spin budget in nanoseconds. Default: 1.5 milliseconds.
+     */
+    public void setSpinBudget(long nanos) {
+        spinBudget = nanos < 0 ? 0 : nanos;
+    }
+
+    /**
+     * Get the current spin budget in nanoseconds.
+     */
+    public long getSpinBudget() {
+        return spinBudget;
+    }
+
+    /**
+     * Turn frame pacing on or off. When off, {@link #waitForNextFrame()} returns
+     * immediately and the game runs as fast as it can.
+     * 
+     * @param b true to pace frames (the default), false to run unthrottled
+     */
+    public void setEnabled(boolean b) {
+        enabled = b;
+        started = false;
+    }
+
+    /**
+     * Return true if frame pacing is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wait until it is time to start the next frame.
+     */
+    public void waitForNextFrame() {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        // First frame after (re)starting: begin the schedule here
+        if (!started) {
+            deadline = now;
+            windowStart = now;
+            started = true;
+        }
+        deadline += period;
+
+        // If we're more than a whole frame late, there's no point in rushing
+        // through frames to catch up; restart the schedule from now instead.
+        if (now - deadline > period) {
+            deadline = now;
+            ++missedFrames;
+            recordJitter(now, 0);
+            return;
+        }
+
+        // Sleep while we're far enough away from the deadline. parkNanos may
+        // return early (or spuriously), so keep checking.
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > spinBudget) {
+            LockSupport.parkNanos(remaining - spinBudget);
+        }
+
+        // Busy-wait for the rest of the way
+        while (deadline - System.nanoTime() > 0) {
+            // spin
+        }
+
+        now = System.nanoTime();
+        recordJitter(now, now - deadline);
+    }
+
+    /**
+     * Update the jitter statistics.
+     * 
+     * @param now current time
+     * @param jitter how late the pacer woke up, in nanoseconds
+     */
+    private void recordJitter(long now, long jitter) {
+        lastJitter = jitter;
+
+        // Exponential moving average over roughly the last 30 frames
+        averageJitter += (Math.abs(jitter) - averageJitter) * (1.0 / 32.0);
+
+        long abs = Math.abs(jitter);
+        if (abs > windowMaxJitter) {
+            windowMaxJitter = abs;
+        }
+        if (now - windowStart >= JITTER_WINDOW) {
+            maxJitter = windowMaxJitter;
+            windowMaxJitter = 0;
+            windowStart = now;
+        }
+    }
+
+    /**
+     * Get how late the pacer woke up for the last frame, in nanoseconds.
+     */
+    public long getLastJitter() {
+        return lastJitter;
+    }
+
+    /**
+     * Get the average frame jitter in nanoseconds.
+     */
+    public double getAverageJitter() {
+        return averageJitter;
+    }
+
+    /**
+     * Get the largest frame jitter measured during the last full second, in
+     * nanoseconds.
+     */
+    public long getMaxJitter() {
+        return maxJitter;
+    }
+
+    /**
+     * Get the number of times the pacer fell more than one frame behind and had
+     * to restart its schedule.
+     */
+    public int getMissedFrames() {
+        return missedFrames;
+    }
+
+}
@@ -3,10 +3,9 @@ package engine.core;
 import java.awt.Frame;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Class for handling user input.
@@ -17,22 +16,116 @@ import java.util.Set;
  * "FIRE" and "EXIT", mapped to left arrow, right arrow, up arrow,
  * down array, space and escape, respectively: this mapping
  * is defined in the Application class.
+ *
+ * Key events arrive on the AWT event thread. They are not applied right away;
+ * instead the listener puts them, with a timestamp, into a lock-free queue that
+ * the game thread empties once per frame in {@link #update()}. That way the key
+ * state never changes in the middle of a frame, and a key that is pressed and
+ * released again before the next frame still shows up as pressed (and released)
+ * for one frame instead of being missed. All events of the current frame can be
+ * read in order with {@link #getEventCount()} and friends.
+ *
+ * Looking up an input by name costs a HashMap lookup each time. In code that
+ * runs every frame, get an {@link Action} handle once with {@link #action(String)}
+ * and ask that instead:
+ *
+ * <pre>
+ * Input.Action fire = input.action("FIRE");
+ * ...
+ * if (fire.isPressed()) { shoot(); }
+ * </pre>
  */
 public class Input {
 
-    private Map<String, Integer> keyMap = new HashMap<>();
-    private Set<Integer> activeKeys     = new HashSet<>();
-    private Set<Integer> currentKeys    = new HashSet<>();
-    private Set<Integer> lastKeys       = new HashSet<>();
-    
+    /**
+     * Number of key codes we track state for. Key codes outside of 0..KEY_COUNT-1
+     * still show up in the event list, but have no down/pressed/released state.
+     */
+    public static final int KEY_COUNT = 65536;
+
+    /**
+     * A pre-resolved handle to a named input. Handles stay valid when the input is
+     * rebound to another key; an unbound handle is never down.
+     */
+    public static final class Action {
+        private final Input input;
+        private final String name;
+        private int key = -1;
+
+        private Action(Input input, String name) {
+            this.input = input;
+            this.name = name;
+        }
+
+        /**
+         * Get the name of this input, e.g. "FIRE".
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the key code this input is bound to, or -1 if it is not bound.
+         */
+        public int getKey() {
+            return key;
+        }
+
+        /**
+         * Check if this input is currently held down.
+         */
+        public boolean isDown() {
+            return input.isKeyDown(key);
+        }
+
+        /**
+         * Check if this input was pressed since the last frame.
+         */
+        public boolean isPressed() {
+            return input.isKeyPressed(key);
+        }
+
+        /**
+         * Check if this input was released since the last frame.
+         */
+        public boolean isReleased() {
+            return input.isKeyReleased(key);
+        }
+    }
+
+    private final Map<String, Action> keyMap = new HashMap<>();
+
+    // Filled by the AWT thread, emptied by update()
+    private final KeyEventRing queue = new KeyEventRing(256);
+    // Keys the AWT thread has queued a press for, so auto-repeat presses of a
+    // held key don't fill the queue (and push out the release) during a stall
+    private final long[] queuedDownKeys = new long[KEY_COUNT / 64];
+
+    // Key state as bit sets: one bit per key code
+    private final long[] downKeys     = new long[KEY_COUNT / 64];
+    private final long[] pressedKeys  = new long[KEY_COUNT / 64];
+    private final long[] releasedKeys = new long[KEY_COUNT / 64];
+
+    // Events applied in the current frame, in order
+    private int eventCount = 0;
+    private int[] eventKeys = new int[16];
+    private boolean[] eventPressed = new boolean[16];
+    private long[] eventTimes = new long[16];
+
     /**
      * Create a new Input object that attaches itself to an AWT Frame. This lets us
      * listen to input events that pass through the Frame.
      * 
-     * @param f an AWT Frame object; see Screen.java for more on that
+     * @param f an AWT Frame object; see Screen.java for more on that. May be null,
+     *          in which case no keyboard events are received.
      */
     public Input(Frame f) {
 
+        // Offscreen screens have no frame to listen to
+        if (f == null) {
+            return;
+        }
+
         // Attach a KeyListener to the window to be able to listen
         // to the keyboard being used
         f.addKeyListener(new KeyListener() {
@@ -43,23 +136,34 @@ public class Input {
 
             @Override
             public void keyPressed(KeyEvent e) {
-                // Add the pressed key to the set of actively pressed keys.
-                activeKeys.add(e.getKeyCode());
+                int key = e.getKeyCode();
+                if (testBit(queuedDownKeys, key)) {
+                    // Auto-repeat of a held key; the game already knows it's down
+                    return;
+                }
+                // Queue the event for the game thread to pick up in update()
+                if (queue.offer(key, true, System.nanoTime()) && key >= 0 && key < KEY_COUNT) {
+                    setBit(queuedDownKeys, key);
+                }
             }
 
             @Override
             public void keyReleased(KeyEvent e) {
-                // Remove the released key's symbol from the set of actively pressed keys.
-                activeKeys.remove(e.getKeyCode());
+                int key = e.getKeyCode();
+                clearBit(queuedDownKeys, key);
+                queue.offer(key, false, System.nanoTime());
             }
         });
     }
     
     /**
-     * Clear all active key bindings.
+     * Clear all active key bindings. Existing {@link Action} handles stay valid, but
+     * are unbound until their input is bound again.
      */
     public void clearBindings() {
-        keyMap.clear();
+        for (Action a : keyMap.values()) {
+            a.key = -1;
+        }
     }
     
     /**
@@ -72,7 +176,7 @@ public class Input {
      * @param keySym  
      */
     public void bind(String inputName, int keySym) {
-        keyMap.put(inputName, keySym);
+        action(inputName).key = keySym;
     }
     
     /**
@@ -81,7 +185,28 @@ public class Input {
      * @param inputName a user defined input name, like "LEFT" or "FIRE".
      */
     public void unbind(String inputName) {
-        keyMap.remove(inputName);
+        Action a = keyMap.get(inputName);
+        if (a != null) {
+            a.key = -1;
+        }
+    }
+
+    /**
+     * Get a handle for an input name. Asking the handle is the same as calling
+     * {@link #isDown(String)} etc. with the name, but without looking the name up
+     * every time. The input does not need to be bound yet.
+     * 
+     * @param inputName a user-defined input name
+     * 
+     * @return the handle for that name; the same object every time
+     */
+    public Action action(String inputName) {
+        Action a = keyMap.get(inputName);
+        if (a == null) {
+            a = new Action(this, inputName);
+            keyMap.put(inputName, a);
+        }
+        return a;
     }
     
     /**
@@ -89,15 +214,15 @@ public class Input {
      * 
      * @param inputName a user-defined input name
      * 
-     * @return an Integer, or 0 if lookup fails
+     * @return a key code, or -1 if lookup fails
      */
-    private Integer getKeyForInput(String inputName) {
-        Integer key = keyMap.get(inputName);
-        if(key == null) {
+    private int getKeyForInput(String inputName) {
+        Action a = keyMap.get(inputName);
+        if (a == null || a.key < 0) {
             System.err.println(String.format("Warning: no key mapped to input \"%s\"", inputName));
-            return 0;
+            return -1;
         }
-        return key;
+        return a.key;
     }
 
     /**
@@ -108,46 +233,183 @@ public class Input {
      * @return true if a input is currently held down
      */
     public boolean isDown(String input) {
-        return currentKeys.contains(getKeyForInput(input));
+        return isKeyDown(getKeyForInput(input));
     }
 
     /**
-     * Check if an input was pressed at the start of this frame, i.e. it is now
-     * down, but was up last frame.
+     * Check if an input was pressed since the last frame, i.e. it went from up to
+     * down. This is also true if the key was released again before this frame, so
+     * short taps are never missed.
      * 
      * @param input an input symbol, see static fields of this class
      * 
      * @return true if button was pressed this frame
      */
     public boolean isPressed(String input) {
-        Integer key = getKeyForInput(input);
-        return currentKeys.contains(key) && !lastKeys.contains(key);
+        return isKeyPressed(getKeyForInput(input));
     }
 
     /**
-     * Check if an input was released at the start of this frame, i.e. if it is now
-     * up, but was down last frame.
+     * Check if an input was released since the last frame, i.e. it went from down
+     * to up.
      * 
      * @param input an input symbol, see static fields of this class
      * 
      * @return true if button was released this frame
      */
     public boolean isReleased(String input) {
-        Integer key = getKeyForInput(input);
-        return !currentKeys.contains(key) && lastKeys.contains(key);
+        return isKeyReleased(getKeyForInput(input));
     }
 
     /**
-     * Update function - this cycles the input states. 
-     * This function should be called once every frame.
+     * Check if a key is currently down.
+     * 
+     * @param key a key code, e.g. KeyEvent.VK_SPACE
+     */
+    public boolean isKeyDown(int key) {
+        return testBit(downKeys, key);
+    }
+
+    /**
+     * Check if a key was pressed since the last frame.
+     * 
+     * @param key a key code, e.g. KeyEvent.VK_SPACE
+     */
+    public boolean isKeyPressed(int key) {
+        return testBit(pressedKeys, key);
+    }
+
+    /**
+     * Check if a key was released since the last frame.
+     * 
+     * @param key a key code, e.g. KeyEvent.VK_SPACE
+     */
+    public boolean isKeyReleased(int key) {
+        return testBit(releasedKeys, key);
+    }
+
+    /**
+     * Get the number of key events that were applied this frame. Key repeats from
+     * holding a key down are not included.
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Get the key code of an event from this frame.
+     * 
+     * @param index 0 for the oldest event, up to getEventCount() - 1
+     */
+    public int getEventKey(int index) {
+        return eventKeys[index];
+    }
+
+    /**
+     * Check if an event from this frame was a key press (true) or a key release
+     * (false).
+     * 
+     * @param index 0 for the oldest event, up to getEventCount() - 1
+     */
+    public boolean isEventPress(int index) {
+        return eventPressed[index];
+    }
+
+    /**
+     * Get the time an event from this frame happened, on the System.nanoTime() clock.
+     * 
+     * @param index 0 for the oldest event, up to getEventCount() - 1
+     */
+    public long getEventTime(int index) {
+        return eventTimes[index];
+    }
+
+    /**
+     * Get the number of key events that were lost because the game did not call
+     * update() for a long time and the event queue filled up.
+     */
+    public int getDroppedEvents() {
+        return queue.getDropped();
+    }
+
+    /**
+     * Update function - this applies all key events that arrived since
+     * the last call. This function should be called once every frame.
      * 
      * This function is package protected so that only
      * Application may call it. 
      */
     void update() {
-        lastKeys.clear();
-        lastKeys.addAll(currentKeys);
-        currentKeys.clear();
-        currentKeys.addAll(activeKeys);
+        beginFrame();
+        queue.drain(this);
+    }
+
+    /**
+     * Forget last frame's events and key transitions. Called by update(), and by
+     * the replay code before it feeds recorded events to handleEvent().
+     */
+    void beginFrame() {
+        // Only keys that had an event last frame can have a bit set,
+        // so we clear just those.
+        for (int i = 0; i < eventCount; ++i) {
+            clearBit(pressedKeys, eventKeys[i]);
+            clearBit(releasedKeys, eventKeys[i]);
+        }
+        eventCount = 0;
+    }
+
+    /**
+     * Apply a single key event to the key state and add it to this frame's
+     * event list. Called for every event drained from the queue.
+     * 
+     * @param key  key code
+     * @param down true for a press, false for a release
+     * @param time event time on the System.nanoTime() clock
+     */
+    void handleEvent(int key, boolean down, long time) {
+        // Holding a key makes the system repeat the press event; a press for a key
+        // that is already down is not a new press.
+        boolean tracked = key >= 0 && key < KEY_COUNT;
+        if (tracked && down == isKeyDown(key)) {
+            return;
+        }
+
+        if (tracked) {
+            if (down) {
+                setBit(downKeys, key);
+                setBit(pressedKeys, key);
+            } else {
+                clearBit(downKeys, key);
+                setBit(releasedKeys, key);
+            }
+        }
+
+        if (eventCount == eventKeys.length) {
+            int n = eventCount * 2;
+            eventKeys = Arrays.copyOf(eventKeys, n);
+            eventPressed = Arrays.copyOf(eventPressed, n);
+            eventTimes = Arrays.copyOf(eventTimes, n);
+        }
+        eventKeys[eventCount] = key;
+        eventPressed[eventCount] = down;
+        eventTimes[eventCount] = time;
+        eventCount++;
+    }
+
+    private static boolean testBit(long[] bits, int key) {
+        if (key < 0 || key >= KEY_COUNT) {
+            return false;
+        }
+        return (bits[key >>> 6] & (1L << key)) != 0;
+    }
+
+    private static void setBit(long[] bits, int key) {
+        bits[key >>> 6] |= 1L << key;
+    }
+
+    private static void clearBit(long[] bits, int key) {
+        if (key >= 0 && key < KEY_COUNT) {
+            bits[key >>> 6] &= ~(1L << key);
+        }
     }
 }
@@ -0,0 +1,92 @@
+package engine.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads a log written by {@link InputRecorder} back one frame at a time. Used by
+ * {@link Application#replay(String)}.
+ */
+final class InputReplay {
+
+    private final DataInputStream in;
+    private final long seed;
+
+    // Clock for the event timestamps, since the log doesn't store them
+    private long clock = 0;
+
+    /**
+     * Open a log file and read its header.
+     *
+     * @param file path of the file to read
+     *
+     * @throws IOException if the file can't be read or is not a recording
+     */
+    InputReplay(String file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        if (in.readInt() != InputRecorder.MAGIC) {
+            in.close();
+            throw new IOException("Not an input recording: " + file);
+        }
+        int version = in.readUnsignedByte();
+        if (version != InputRecorder.VERSION) {
+            in.close();
+            throw new IOException("Unsupported input recording version " + version + ": " + file);
+        }
+        seed = in.readLong();
+    }
+
+    /**
+     * Get the random seed the recorded session used.
+     */
+    long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Read the next frame and apply its key events to an Input.
+     *
+     * @return the frame's delta time in seconds, or -1 at the end of the log
+     */
+    double nextFrame(Input input) throws IOException {
+        double delta;
+        try {
+            delta = in.readDouble();
+        } catch (EOFException e) {
+            return -1.0;
+        }
+
+        // Events get the time of the start of their frame
+        clock += (long) (delta * 1000000000.0);
+
+        input.beginFrame();
+        int count = readVarInt();
+        for (int i = 0; i < count; ++i) {
+            int v = readVarInt();
+            input.handleEvent(v >> 1, (v & 1) != 0, clock);
+        }
+        return delta;
+    }
+
+    /**
+     * Close the log file.
+     */
+    void close() throws IOException {
+        in.close();
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt input recording");
+    }
+}
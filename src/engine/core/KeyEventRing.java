@@ -0,0 +1,86 @@
+package engine.core;
+
+/**
+ * A fixed-size, lock-free queue of timestamped key events, passed from exactly one
+ * producer thread (the AWT event thread) to exactly one consumer thread (the game
+ * loop).
+ *
+ * Each side owns one counter: the producer only ever writes {@code head}, the
+ * consumer only ever writes {@code tail}. Since both counters are volatile, a
+ * write to an array slot followed by a write to {@code head} is guaranteed to be
+ * visible to the consumer once it sees the new {@code head} value. No locks and no
+ * allocation are needed after construction.
+ *
+ * If the game stops draining the queue (e.g. while loading), events that don't fit
+ * are dropped and counted rather than blocking the AWT thread.
+ */
+final class KeyEventRing {
+
+    private final int mask;
+    private final int[] keys;
+    private final boolean[] pressed;
+    private final long[] times;
+
+    // Written by the producer only
+    private volatile long head = 0;
+    // Written by the consumer only
+    private volatile long tail = 0;
+
+    private volatile int dropped = 0;
+
+    /**
+     * Create a new ring.
+     *
+     * @param capacity maximum number of queued events; rounded up to a power of two
+     */
+    KeyEventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        keys = new int[size];
+        pressed = new boolean[size];
+        times = new long[size];
+    }
+
+    /**
+     * Add an event to the queue. May only be called from the producer thread.
+     *
+     * @return false if the queue was full and the event was dropped
+     */
+    boolean offer(int key, boolean down, long time) {
+        long h = head;
+        if (h - tail > mask) {
+            dropped++;
+            return false;
+        }
+        int i = (int) h & mask;
+        keys[i] = key;
+        pressed[i] = down;
+        times[i] = time;
+        head = h + 1; // publishes the slot
+        return true;
+    }
+
+    /**
+     * Move every queued event into the sink, oldest first. May only be called from
+     * the consumer thread.
+     *
+     * @return number of events drained
+     */
+    int drain(Input sink) {
+        long t = tail;
+        long h = head;
+        for (long n = t; n < h; ++n) {
+            int i = (int) n & mask;
+            sink.handleEvent(keys[i], pressed[i], times[i]);
+        }
+        tail = h; // frees the slots for the producer
+        return (int) (h - t);
+    }
+
+    /**
+     * Get the number of events that were dropped because the queue was full.
+     */
+    int getDropped() {
+        return dropped;
+    }
+}
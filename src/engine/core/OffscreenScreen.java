@@ -0,0 +1,124 @@
+package engine.core;
+
+import java.awt.Frame;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.ImageObserver;
+
+/**
+ * Offscreen game screen.
+ * Renders into an in-memory BufferedImage instead of a window,
+ * so it works without a display (java.awt.headless=true). Use
+ * this for automated tests and benchmarks; the pixels of the
+ * last rendered frame can be read back with {@link #getPixels()}.
+ */
+public class OffscreenScreen extends Screen {
+
+    private final BufferedImage image;
+    private final int[] pixels;
+    private String title = "Untitled Game";
+    private long frameCount = 0;
+
+    /**
+     * Create a new OffscreenScreen with the specified width and height.
+     * This method is package-protected so that only Application
+     * may create the Screen.
+     * 
+     * @param width width of the image to render to
+     * @param height height of the image to render to
+     * @param painter the class doing the paint marshalling (i.e. the Application instance).
+     */
+    OffscreenScreen(int width, int height, ScreenPainter painter) {
+        super(width, height, painter);
+
+        // An int-backed image lets us hand out the pixel array directly,
+        // one 0xRRGGBB value per pixel, row by row.
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * An offscreen screen has no window.
+     * 
+     * @return null
+     */
+    @Override
+    public Frame getFrame() {
+        return null;
+    }
+
+    /**
+     * Drawing into a BufferedImage does not need an observer.
+     * 
+     * @return null
+     */
+    @Override
+    public ImageObserver getObserver() {
+        return null;
+    }
+
+    @Override
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Get the image the screen renders to. Its contents are those of
+     * the last completed frame.
+     * 
+     * @return a BufferedImage of type TYPE_INT_RGB
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Get direct access to the pixels of the last completed frame.
+     * The array is live: it is overwritten every time a new frame is
+     * rendered. Pixel (x, y) is at index {@code y * getWidth() + x}.
+     * 
+     * @return the backing int array of the screen image
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Copy the pixels of the last completed frame into an array.
+     * 
+     * @param dst an array of at least {@code getWidth() * getHeight()} ints
+     */
+    public void copyPixels(int[] dst) {
+        System.arraycopy(pixels, 0, dst, 0, pixels.length);
+    }
+
+    /**
+     * Get the number of frames rendered so far.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    void update() {
+        Graphics2D g = image.createGraphics();
+
+        // Clear the previous frame and let the client draw graphics
+        render(g);
+
+        g.dispose();
+        ++frameCount;
+    }
+
+    @Override
+    void dispose() {
+        // Nothing to release; the image is collected with this object
+    }
+
+}
@@ -1,91 +1,58 @@
 package engine.core;
 
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Frame;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Toolkit;
-import java.awt.image.BufferStrategy;
+import java.awt.Rectangle;
 import java.awt.image.ImageObserver;
 
-import javax.swing.JFrame;
+import engine.graphics.DirtyRegions;
+import engine.profiling.Profiler;
 
 /**
- * Game screen. 
- * Handles the game window and displaying
- * graphics on it.
+ * Game screen: the abstract base for the surfaces the engine can draw to.
+ * See {@link WindowScreen} for the normal game window and
+ * {@link OffscreenScreen} for rendering without a display.
  */
-public class Screen {
+public abstract class Screen {
 
-    private Toolkit toolkit;
-    private JFrame frame;
-    private int width;
-    private int height;
-    private int frameWidth;
-    private int frameHeight;
-    private int yoffset;
+    protected final int width;
+    protected final int height;
+    protected final ScreenPainter painter;
 
-    private ScreenPainter painter;
-    private BufferStrategy bufstrat;
+    // Set in dirty rectangle mode; null when the whole screen is redrawn every frame
+    protected DirtyRegions dirty = null;
+    protected Profiler profiler = null;
+    private final Rectangle rect = new Rectangle();
 
     /**
      * Create a new Screen with the specified width and height.
      * This method is package-protected so that only Application
-     * may create the Screen.
+     * may create a Screen.
      *  
      * @param width width of usable screen area
      * @param height height of usable screen area
      * @param painter the class doing the paint marshalling (i.e. the Application instance).
      */
     Screen(int width, int height, ScreenPainter painter) {
-        // Assign painter
-        this.painter = painter;
-
-        // Create a frame (the actual visible app window)
-        frame = new JFrame("Untitled Game");
-
-        // Set the size of the frame and show it. Our app
-        // will run as long as the frame is visible
         this.width = width;
         this.height = height;
-
-        frame.setResizable(false);
-        frame.getContentPane().setPreferredSize(new Dimension(width, height));
-        frame.pack();
-        frame.setVisible(true);
-
-        frameWidth = frame.getWidth() + 1;
-        frameHeight = frame.getHeight() + 1;
-        yoffset = frameHeight - height;
-
-        System.out.println("Screen width " + width + " height " + height + " requested");
-        System.out.println("Window width " + frame.getWidth() + " height " + frame.getHeight());
-
-        // We do _not_ want to repaint the panel contents when the operating system
-        // wants to do so; we want to repaint when _we_ feel like it.
-        // Set up double buffered drawing and store a reference to the buffer strategy
-        // to let us control painting
-        frame.setIgnoreRepaint(true);
-        frame.createBufferStrategy(2);
-        bufstrat = frame.getBufferStrategy();
-
-        toolkit = frame.getToolkit();
+        this.painter = painter;
     }
 
     /**
-     * Get access to the underlying java.awt.Frame object
+     * Get access to the underlying java.awt.Frame object.
+     * 
+     * @return a Frame, or null if this screen has no window
      */
-    public Frame getFrame() {
-        return frame;
-    }
+    public abstract Frame getFrame();
 
     /**
-     * Get access to the ImageObserver object (i.e. the Frame)
+     * Get access to the ImageObserver object used for drawing
+     * 
+     * @return an ImageObserver, or null if none is needed
      */
-    public ImageObserver getObserver() {
-        return frame;
-    }
+    public abstract ImageObserver getObserver();
 
     /**
      * Get the width of the currently displayable area
@@ -105,15 +72,72 @@ public class Screen {
      * Set the title of the application window 
      * @param title a String to use as the window title
      */
-    public void setTitle(String title) {
-        frame.setTitle(title);
-    }
-    
+    public abstract void setTitle(String title);
+
     /**
      * Get the current title of the application window
      */
-    public String getTitle() {
-        return frame.getTitle();
+    public abstract String getTitle();
+
+    /**
+     * Turn dirty rectangle mode on or off. In dirty rectangle mode the screen keeps
+     * the previous frame and only clears and redraws the dirty rectangles.
+     * 
+     * @param regions the dirty rectangles to redraw each frame, or null to redraw
+     *                everything every frame
+     */
+    void setDirtyRegions(DirtyRegions regions) {
+        dirty = regions;
+        if (regions != null) {
+            regions.markAll();
+        }
+    }
+
+    /**
+     * Set the profiler to report painting and presenting times to. Called by
+     * Application.
+     */
+    void setProfiler(Profiler p) {
+        profiler = p;
+    }
+
+    /**
+     * Clear and draw the screen area of a graphics context. The clip is set to the
+     * area being drawn, so painters can read it with Graphics.getClipBounds() and
+     * skip anything outside of it.
+     * 
+     * In dirty rectangle mode, only the dirty rectangles are cleared and drawn,
+     * one after another, and everything else is left as it was. The dirty
+     * rectangles are reset afterwards.
+     * 
+     * @param g a graphics context whose origin is the top left corner of the screen
+     */
+    protected final void render(Graphics2D g) {
+        if (profiler != null) {
+            profiler.begin(Profiler.PAINT);
+        }
+        g.setColor(Color.BLACK);
+
+        if (dirty == null || dirty.isFull()) {
+            g.setClip(0, 0, width, height);
+            g.fillRect(0, 0, width, height);
+            painter.paint(g);
+        } else {
+            for (int i = 0, n = dirty.getCount(); i < n; ++i) {
+                dirty.getRect(i, rect);
+                g.setClip(rect);
+                g.setColor(Color.BLACK);
+                g.fillRect(rect.x, rect.y, rect.width, rect.height);
+                painter.paint(g);
+            }
+        }
+
+        if (dirty != null) {
+            dirty.reset();
+        }
+        if (profiler != null) {
+            profiler.end(Profiler.PAINT);
+        }
     }
 
     /**
@@ -123,37 +147,12 @@ public class Screen {
      * This function is package protected so that only Application
      * may call it.
      */
-    void update() {
+    abstract void update();
 
-        // Get a fresh graphics object from the buffer strategy
-        Graphics g = bufstrat.getDrawGraphics();
-
-        // Set color for clearing the screen
-        g.setColor(Color.BLACK);
-
-        // Translate the graphics context
-        g.translate(0, yoffset);
-
-        // Clear existing stuff on screen
-        // The -10, +20 stuff works around the fact that the coordinates
-        // as used by Java are not exact, and there may well be a one- or
-        // even two pixel error in the actual drawable area.
-        g.fillRect(-10, -10, frameWidth + 20, frameHeight + 20);
-        
-        // Let the client draw graphics to screen
-        painter.paint((Graphics2D) g);
-
-        // We're done painting. Apparently these need
-        // to be disposed of to help the memory manager
-        // work better.
-        g.dispose();
-
-        // Flip buffers to present a fresh new frame
-        bufstrat.show();
-
-        // Request synchronization of OS-side display. This allows
-        // us to run smoothly (and possibly vsynced).
-        toolkit.sync();
-    }
+    /**
+     * Release any resources held by this screen. Called by
+     * Application when the main loop exits.
+     */
+    abstract void dispose();
 
 }
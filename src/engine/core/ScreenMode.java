@@ -0,0 +1,21 @@
+package engine.core;
+
+/**
+ * Selects which kind of Screen an Application renders to.
+ */
+public enum ScreenMode {
+
+    /**
+     * A regular application window. This is the default.
+     */
+    WINDOWED,
+
+    /**
+     * An invisible, in-memory screen. Graphics are rendered into a
+     * BufferedImage instead of a window, which lets the engine run on
+     * machines without a display (e.g. with {@code java.awt.headless=true}),
+     * for automated tests and benchmarks.
+     */
+    OFFSCREEN
+
+}
@@ -0,0 +1,159 @@
+package engine.core;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Frame;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+
+import javax.swing.JFrame;
+
+import engine.profiling.Profiler;
+
+/**
+ * Windowed game screen. 
+ * Handles the game window and displaying
+ * graphics on it.
+ */
+public class WindowScreen extends Screen {
+
+    private Toolkit toolkit;
+    private JFrame frame;
+    private int frameWidth;
+    private int frameHeight;
+    private int yoffset;
+
+    private BufferStrategy bufstrat;
+
+    // Holds the previous frame in dirty rectangle mode
+    private BufferedImage canvas = null;
+
+    /**
+     * Create a new WindowScreen with the specified width and height.
+     * This method is package-protected so that only Application
+     * may create the Screen.
+     *  
+     * @param width width of usable screen area
+     * @param height height of usable screen area
+     * @param painter the class doing the paint marshalling (i.e. the Application instance).
+     */
+    WindowScreen(int width, int height, ScreenPainter painter) {
+        super(width, height, painter);
+
+        // Create a frame (the actual visible app window)
+        frame = new JFrame("Untitled Game");
+
+        // Set the size of the frame and show it. Our app
+        // will run as long as the frame is visible
+        frame.setResizable(false);
+        frame.getContentPane().setPreferredSize(new Dimension(width, height));
+        frame.pack();
+        frame.setVisible(true);
+
+        frameWidth = frame.getWidth() + 1;
+        frameHeight = frame.getHeight() + 1;
+        yoffset = frameHeight - height;
+
+        System.out.println("Screen width " + width + " height " + height + " requested");
+        System.out.println("Window width " + frame.getWidth() + " height " + frame.getHeight());
+
+        // We do _not_ want to repaint the panel contents when the operating system
+        // wants to do so; we want to repaint when _we_ feel like it.
+        // Set up double buffered drawing and store a reference to the buffer strategy
+        // to let us control painting
+        frame.setIgnoreRepaint(true);
+        frame.createBufferStrategy(2);
+        bufstrat = frame.getBufferStrategy();
+
+        toolkit = frame.getToolkit();
+    }
+
+    /**
+     * Get access to the underlying java.awt.Frame object
+     */
+    @Override
+    public Frame getFrame() {
+        return frame;
+    }
+
+    /**
+     * Get access to the ImageObserver object (i.e. the Frame)
+     */
+    @Override
+    public ImageObserver getObserver() {
+        return frame;
+    }
+
+    @Override
+    public void setTitle(String title) {
+        frame.setTitle(title);
+    }
+    
+    @Override
+    public String getTitle() {
+        return frame.getTitle();
+    }
+
+    @Override
+    void update() {
+
+        // Get a fresh graphics object from the buffer strategy
+        Graphics g = bufstrat.getDrawGraphics();
+
+        // Set color for clearing the screen
+        g.setColor(Color.BLACK);
+
+        // Translate the graphics context
+        g.translate(0, yoffset);
+
+        // Clear existing stuff on screen
+        // The -10, +20 stuff works around the fact that the coordinates
+        // as used by Java are not exact, and there may well be a one- or
+        // even two pixel error in the actual drawable area.
+        g.fillRect(-10, -10, frameWidth + 20, frameHeight + 20);
+
+        if (dirty == null) {
+            // Let the client draw graphics to screen
+            render((Graphics2D) g);
+        } else {
+            // The back buffer's contents are gone after a flip, so in dirty
+            // rectangle mode we keep the frame in an image of our own, redraw
+            // only the dirty parts of it, and copy the whole of it to screen.
+            if (canvas == null) {
+                canvas = frame.getGraphicsConfiguration().createCompatibleImage(width, height);
+            }
+            Graphics2D cg = canvas.createGraphics();
+            render(cg);
+            cg.dispose();
+            g.drawImage(canvas, 0, 0, null);
+        }
+
+        // We're done painting. Apparently these need
+        // to be disposed of to help the memory manager
+        // work better.
+        g.dispose();
+
+        // Flip buffers to present a fresh new frame
+        if (profiler != null) {
+            profiler.begin(Profiler.PRESENT);
+        }
+        bufstrat.show();
+
+        // Request synchronization of OS-side display. This allows
+        // us to run smoothly (and possibly vsynced).
+        toolkit.sync();
+        if (profiler != null) {
+            profiler.end(Profiler.PRESENT);
+        }
+    }
+
+    @Override
+    void dispose() {
+        frame.dispose();
+    }
+
+}
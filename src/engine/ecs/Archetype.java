@@ -0,0 +1,206 @@
+package engine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * All entities that have exactly the same set of component types. Their
+ * component data is kept in columns: one plain array per component field, so
+ * e.g. all position X values of the archetype lie next to each other in memory.
+ * Row i of every column belongs to the entity {@code getEntity(i)}.
+ *
+ * Systems go through the archetypes of a {@link Query} and loop over the
+ * columns directly, which is about as fast as Java gets:
+ *
+ * <pre>
+ * double[] x = a.getDoubles(POSITION, 0);
+ * double[] vx = a.getDoubles(VELOCITY, 0);
+ * for (int i = 0, n = a.size(); i &lt; n; ++i) {
+ *     x[i] += vx[i] * delta;
+ * }
+ * </pre>
+ *
+ * The columns are replaced with larger arrays as the archetype grows, so fetch
+ * them again each time rather than keeping them around. Rows are not stable
+ * either: destroying an entity moves the last row into its place.
+ */
+public final class Archetype {
+
+    private static final double[][] NO_DOUBLES = new double[0][];
+    private static final int[][] NO_INTS = new int[0][];
+
+    final int index;
+    final long mask;
+    private final ComponentType[] types;
+
+    // Columns by component type id; empty for types not in this archetype
+    private final double[][][] doubles = new double[64][][];
+    private final int[][][] ints = new int[64][][];
+
+    private int[] entities;
+    private int size = 0;
+
+    // Archetype with a component type added (or removed, if this one has it);
+    // filled in by World as entities change
+    final Archetype[] edges = new Archetype[64];
+
+    Archetype(int index, long mask, ComponentType[] types) {
+        this.index = index;
+        this.mask = mask;
+        this.types = types;
+
+        int capacity = 16;
+        entities = new int[capacity];
+        Arrays.fill(doubles, NO_DOUBLES);
+        Arrays.fill(ints, NO_INTS);
+        for (ComponentType t : types) {
+            doubles[t.id] = new double[t.getDoubleFields()][capacity];
+            ints[t.id] = new int[t.getIntFields()][capacity];
+        }
+    }
+
+    /**
+     * Get the number of entities in this archetype.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the entity in a row.
+     *
+     * @param row a number between 0 and size() - 1
+     */
+    public int getEntity(int row) {
+        return entities[row];
+    }
+
+    /**
+     * Check whether the entities of this archetype have a component.
+     */
+    public boolean has(ComponentType type) {
+        return (mask & type.bit) != 0;
+    }
+
+    /**
+     * Get the component types of this archetype. Do not change the array.
+     */
+    public ComponentType[] getTypes() {
+        return types;
+    }
+
+    /**
+     * Get the column of a double field. Only the first size() values are in use.
+     *
+     * @param type  a component type of this archetype
+     * @param field a field number, from 0 to type.getDoubleFields() - 1
+     */
+    public double[] getDoubles(ComponentType type, int field) {
+        return doubleColumns(type)[field];
+    }
+
+    /**
+     * Get the column of an int field. Only the first size() values are in use.
+     *
+     * @param type  a component type of this archetype
+     * @param field a field number, from 0 to type.getIntFields() - 1
+     */
+    public int[] getInts(ComponentType type, int field) {
+        return intColumns(type)[field];
+    }
+
+    double[][] doubleColumns(ComponentType type) {
+        if ((mask & type.bit) == 0) {
+            throw new IllegalArgumentException("Archetype has no component " + type.getName());
+        }
+        return doubles[type.id];
+    }
+
+    int[][] intColumns(ComponentType type) {
+        if ((mask & type.bit) == 0) {
+            throw new IllegalArgumentException("Archetype has no component " + type.getName());
+        }
+        return ints[type.id];
+    }
+
+    /**
+     * Add a row for an entity, with all fields set to zero.
+     *
+     * @return the new row
+     */
+    int addRow(int entity) {
+        if (size == entities.length) {
+            grow();
+        }
+        int row = size++;
+        entities[row] = entity;
+        for (ComponentType t : types) {
+            for (double[] column : doubles[t.id]) {
+                column[row] = 0.0;
+            }
+            for (int[] column : ints[t.id]) {
+                column[row] = 0;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Remove a row by moving the last row into its place.
+     *
+     * @return the entity that moved into the row, or -1 if the last row was
+     *         removed
+     */
+    int removeRow(int row) {
+        int last = --size;
+        if (row == last) {
+            return -1;
+        }
+        entities[row] = entities[last];
+        for (ComponentType t : types) {
+            for (double[] column : doubles[t.id]) {
+                column[row] = column[last];
+            }
+            for (int[] column : ints[t.id]) {
+                column[row] = column[last];
+            }
+        }
+        return entities[row];
+    }
+
+    /**
+     * Copy the fields of all components this archetype shares with another one.
+     */
+    void copyRow(Archetype from, int fromRow, int toRow) {
+        for (ComponentType t : types) {
+            if ((from.mask & t.bit) == 0) {
+                continue;
+            }
+            double[][] src = from.doubles[t.id];
+            double[][] dst = doubles[t.id];
+            for (int f = 0; f < dst.length; ++f) {
+                dst[f][toRow] = src[f][fromRow];
+            }
+            int[][] isrc = from.ints[t.id];
+            int[][] idst = ints[t.id];
+            for (int f = 0; f < idst.length; ++f) {
+                idst[f][toRow] = isrc[f][fromRow];
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = entities.length * 2;
+        entities = Arrays.copyOf(entities, capacity);
+        for (ComponentType t : types) {
+            double[][] dc = doubles[t.id];
+            for (int f = 0; f < dc.length; ++f) {
+                dc[f] = Arrays.copyOf(dc[f], capacity);
+            }
+            int[][] ic = ints[t.id];
+            for (int f = 0; f < ic.length; ++f) {
+                ic[f] = Arrays.copyOf(ic[f], capacity);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package engine.ecs;
+
+/**
+ * A kind of component, e.g. a position or a velocity. A component is a small,
+ * fixed set of numbers: some double fields and some int fields. Component types
+ * are created with {@link World#registerComponent(String, int, int)}.
+ *
+ * Fields are numbered, so a position component with two double fields has its
+ * X in field 0 and its Y in field 1. It is a good idea to keep those numbers in
+ * named constants next to the component type.
+ */
+public final class ComponentType {
+
+    final int id;
+    final long bit;
+    private final String name;
+    private final int doubleFields;
+    private final int intFields;
+
+    ComponentType(int id, String name, int doubleFields, int intFields) {
+        this.id = id;
+        this.bit = 1L << id;
+        this.name = name;
+        this.doubleFields = doubleFields;
+        this.intFields = intFields;
+    }
+
+    /**
+     * Get the name given to this component type.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of the component type within its World, from 0 to 63.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the number of double fields in this component.
+     */
+    public int getDoubleFields() {
+        return doubleFields;
+    }
+
+    /**
+     * Get the number of int fields in this component.
+     */
+    public int getIntFields() {
+        return intFields;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
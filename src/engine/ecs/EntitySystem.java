@@ -0,0 +1,22 @@
+package engine.ecs;
+
+/**
+ * Game logic that works on entities, e.g. moving everything that has a position
+ * and a velocity. Systems are added to a World with
+ * {@link World#addSystem(EntitySystem)} and run in the order they were added
+ * each time {@link World#update(double)} is called.
+ *
+ * A system usually creates its {@link Query} once and loops over the columns of
+ * the matching archetypes in update().
+ */
+public interface EntitySystem {
+
+    /**
+     * Run this system once.
+     *
+     * @param world the World the system was added to
+     * @param delta number of seconds since the last update
+     */
+    public void update(World world, double delta);
+
+}
@@ -0,0 +1,74 @@
+package engine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * The archetypes whose entities have all of a set of component types. Create
+ * one with {@link World#query(ComponentType...)} once, e.g. in a system's
+ * constructor, and use it every frame; new archetypes are picked up as they
+ * appear, and going through a query does not allocate memory.
+ */
+public final class Query {
+
+    private final World world;
+    private final long mask;
+    private Archetype[] matches = new Archetype[8];
+    private int count = 0;
+    private int checked = 0;
+
+    Query(World world, long mask) {
+        this.world = world;
+        this.mask = mask;
+    }
+
+    /**
+     * Get the number of matching archetypes. Some of them may be empty.
+     */
+    public int getArchetypeCount() {
+        refresh();
+        return count;
+    }
+
+    /**
+     * Get a matching archetype.
+     *
+     * @param i a number between 0 and getArchetypeCount() - 1
+     */
+    public Archetype getArchetype(int i) {
+        return matches[i];
+    }
+
+    /**
+     * Get the number of entities matching this query.
+     */
+    public int getEntityCount() {
+        refresh();
+        int n = 0;
+        for (int i = 0; i < count; ++i) {
+            n += matches[i].size();
+        }
+        return n;
+    }
+
+    /**
+     * Check whether an archetype matches this query.
+     */
+    public boolean matches(Archetype a) {
+        return (a.mask & mask) == mask;
+    }
+
+    private void refresh() {
+        // Archetypes are never removed, so only the new ones need a look
+        int total = world.getArchetypeCount();
+        while (checked < total) {
+            Archetype a = world.getArchetype(checked++);
+            if (matches(a)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = a;
+            }
+        }
+    }
+
+}
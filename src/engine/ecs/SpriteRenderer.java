@@ -0,0 +1,131 @@
+package engine.ecs;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.ImageObserver;
+
+import engine.graphics.Drawable;
+import engine.graphics.Image;
+
+/**
+ * Draws entities as images, the same way {@link engine.graphics.Sprite} draws
+ * itself: the image is centered on the entity's position. Add it to the
+ * Application with addDrawable like any other Drawable.
+ *
+ * Entities are drawn if they have both a position component (field 0 is X,
+ * field 1 is Y) and a sprite component (int field 0 is the number of the image
+ * to draw, see {@link #setImages(Image...)}). Entities outside of the visible
+ * area are skipped. Within an archetype, entities are drawn in row order.
+ */
+public class SpriteRenderer implements Drawable {
+
+    private final ComponentType position;
+    private final ComponentType sprite;
+    private final Query query;
+
+    private Image[] images = new Image[0];
+    private boolean visible = true;
+    private int drawnCount = 0;
+    private final Rectangle clip = new Rectangle();
+
+    /**
+     * Create a new SpriteRenderer.
+     *
+     * @param world    the World holding the entities
+     * @param position a component type with at least two double fields (X and Y)
+     * @param sprite   a component type with at least one int field (the image
+     *                 number)
+     */
+    public SpriteRenderer(World world, ComponentType position, ComponentType sprite) {
+        if (position.getDoubleFields() < 2) {
+            throw new IllegalArgumentException("Position component needs two double fields");
+        }
+        if (sprite.getIntFields() < 1) {
+            throw new IllegalArgumentException("Sprite component needs an int field");
+        }
+        this.position = position;
+        this.sprite = sprite;
+        query = world.query(position, sprite);
+    }
+
+    /**
+     * Set the images entities are drawn with. An entity whose sprite component
+     * holds n is drawn with the n:th image; an entity with a number outside of
+     * the array is not drawn.
+     *
+     * @param images Image objects
+     */
+    public void setImages(Image... images) {
+        this.images = images;
+    }
+
+    /**
+     * Show or hide all entities drawn by this renderer.
+     */
+    public void setVisible(boolean b) {
+        visible = b;
+    }
+
+    /**
+     * Return true if this renderer draws anything.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Get the number of entities drawn in the last call to draw().
+     */
+    public int getDrawnCount() {
+        return drawnCount;
+    }
+
+    @Override
+    public void draw(Graphics2D g, ImageObserver obs) {
+        drawnCount = 0;
+        if (!visible) {
+            return;
+        }
+
+        // Skip entities completely outside of the clip
+        double cx0 = Double.NEGATIVE_INFINITY, cy0 = Double.NEGATIVE_INFINITY;
+        double cx1 = Double.POSITIVE_INFINITY, cy1 = Double.POSITIVE_INFINITY;
+        if (g.getClip() != null) {
+            g.getClipBounds(clip);
+            cx0 = clip.x;
+            cy0 = clip.y;
+            cx1 = clip.x + clip.width;
+            cy1 = clip.y + clip.height;
+        }
+
+        Image[] imgs = images;
+        int drawn = 0;
+        for (int a = 0, na = query.getArchetypeCount(); a < na; ++a) {
+            Archetype arch = query.getArchetype(a);
+            int n = arch.size();
+            if (n == 0) {
+                continue;
+            }
+            double[] px = arch.getDoubles(position, 0);
+            double[] py = arch.getDoubles(position, 1);
+            int[] frame = arch.getInts(sprite, 0);
+
+            for (int i = 0; i < n; ++i) {
+                int f = frame[i];
+                if (f < 0 || f >= imgs.length) {
+                    continue;
+                }
+                Image img = imgs[f];
+                double x0 = px[i] - img.getWidth() * 0.5;
+                double y0 = py[i] - img.getHeight() * 0.5;
+                if (x0 >= cx1 || y0 >= cy1 || x0 + img.getWidth() <= cx0 || y0 + img.getHeight() <= cy0) {
+                    continue;
+                }
+                img.draw(g, (int) (x0 + 0.5), (int) (y0 + 0.5), obs);
+                ++drawn;
+            }
+        }
+        drawnCount = drawn;
+    }
+
+}
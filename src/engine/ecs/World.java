@@ -0,0 +1,392 @@
+package engine.ecs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Holds entities, their components, and the systems that work on them.
+ *
+ * This is an alternative to making every game object a GraphicsObject, for
+ * games with crowds of thousands of similar things. An entity is just an int
+ * number. What an entity is made of is decided by its components: small sets
+ * of numbers, like a position or a velocity (see {@link ComponentType}).
+ * Entities with the same component types are kept together in an
+ * {@link Archetype}, which stores every component field in a plain array. Game
+ * logic goes into systems (see {@link EntitySystem}), which loop over those
+ * arrays; that touches memory in order and creates no garbage, so it is a lot
+ * faster than calling a method on thousands of separate objects.
+ *
+ * A minimal example:
+ *
+ * <pre>
+ * World world = new World();
+ * ComponentType position = world.registerComponent("Position", 2, 0);
+ * ComponentType velocity = world.registerComponent("Velocity", 2, 0);
+ * int e = world.create(position, velocity);
+ * world.setDouble(e, velocity, 0, 50.0);
+ * world.addSystem(new MySystem(world, position, velocity));
+ * ...
+ * world.update(delta); // in Application.update
+ * </pre>
+ *
+ * To draw entities, see {@link SpriteRenderer}.
+ *
+ * Entity numbers are reused after an entity has been destroyed. Adding or
+ * removing components or entities moves rows around inside archetypes, so
+ * systems should not do it while looping over an archetype; use
+ * {@link #destroyLater(int)} instead, or collect the entities first.
+ */
+public class World {
+
+    private static final int MAX_COMPONENT_TYPES = 64;
+
+    private final ArrayList<ComponentType> types = new ArrayList<>();
+    private final ArrayList<Archetype> archetypes = new ArrayList<>();
+    private final HashMap<Long, Archetype> archetypesByMask = new HashMap<>();
+
+    // Per entity number: archetype index (-1 if free) and row
+    private int[] entityArchetype = new int[64];
+    private int[] entityRow = new int[64];
+    private int nextEntity = 0;
+    private int entityCount = 0;
+    private int[] freeEntities = new int[16];
+    private int freeCount = 0;
+
+    private int[] pendingDestroy = new int[16];
+    private int pendingCount = 0;
+
+    private final ArrayList<EntitySystem> systems = new ArrayList<>();
+
+    /**
+     * Create a new, empty World.
+     */
+    public World() {
+        Arrays.fill(entityArchetype, -1);
+        archetypeFor(0L);
+    }
+
+    /**
+     * Create a new component type. A World can have up to 64 component types.
+     *
+     * @param name         a name for the component, for debugging
+     * @param doubleFields number of double values in the component
+     * @param intFields    number of int values in the component
+     * @return the new component type
+     */
+    public ComponentType registerComponent(String name, int doubleFields, int intFields) {
+        if (types.size() == MAX_COMPONENT_TYPES) {
+            throw new IllegalStateException("A World can have at most " + MAX_COMPONENT_TYPES + " component types");
+        }
+        if (doubleFields < 0 || intFields < 0) {
+            throw new IllegalArgumentException("Field counts can't be negative");
+        }
+        ComponentType t = new ComponentType(types.size(), name, doubleFields, intFields);
+        types.add(t);
+        return t;
+    }
+
+    /**
+     * Get the component types registered so far.
+     */
+    public int getComponentTypeCount() {
+        return types.size();
+    }
+
+    /**
+     * Get a component type by its id.
+     */
+    public ComponentType getComponentType(int id) {
+        return types.get(id);
+    }
+
+    /**
+     * Get the archetype for a set of component types, creating it if needed.
+     * Creating entities with {@link #create(Archetype)} avoids working out the
+     * archetype each time.
+     */
+    public Archetype getArchetype(ComponentType... components) {
+        return archetypeFor(maskOf(components));
+    }
+
+    /**
+     * Get the number of archetypes created so far. Archetypes are created when
+     * the first entity with a new set of components appears, and never removed.
+     */
+    public int getArchetypeCount() {
+        return archetypes.size();
+    }
+
+    /**
+     * Get an archetype.
+     *
+     * @param i a number between 0 and getArchetypeCount() - 1
+     */
+    public Archetype getArchetype(int i) {
+        return archetypes.get(i);
+    }
+
+    /**
+     * Create a query for all entities that have (at least) the given component
+     * types.
+     */
+    public Query query(ComponentType... components) {
+        return new Query(this, maskOf(components));
+    }
+
+    /**
+     * Create a new entity with some components. All component fields start out
+     * as zero.
+     *
+     * @param components the entity's component types
+     * @return the new entity
+     */
+    public int create(ComponentType... components) {
+        return create(archetypeFor(maskOf(components)));
+    }
+
+    /**
+     * Create a new entity with the components of an archetype. All component
+     * fields start out as zero.
+     *
+     * @param archetype an archetype of this World
+     * @return the new entity
+     */
+    public int create(Archetype archetype) {
+        int e;
+        if (freeCount > 0) {
+            e = freeEntities[--freeCount];
+        } else {
+            e = nextEntity++;
+            if (e == entityArchetype.length) {
+                int n = e * 2;
+                entityArchetype = Arrays.copyOf(entityArchetype, n);
+                entityRow = Arrays.copyOf(entityRow, n);
+                Arrays.fill(entityArchetype, e, n, -1);
+            }
+        }
+        entityArchetype[e] = archetype.index;
+        entityRow[e] = archetype.addRow(e);
+        ++entityCount;
+        return e;
+    }
+
+    /**
+     * Destroy an entity right away. Its number may be handed out again by a
+     * later create().
+     *
+     * @param entity a live entity
+     */
+    public void destroy(int entity) {
+        Archetype a = archetypeOf(entity);
+        removeFrom(a, entityRow[entity]);
+        entityArchetype[entity] = -1;
+        if (freeCount == freeEntities.length) {
+            freeEntities = Arrays.copyOf(freeEntities, freeCount * 2);
+        }
+        freeEntities[freeCount++] = entity;
+        --entityCount;
+    }
+
+    /**
+     * Destroy an entity once all systems have run in {@link #update(double)}, or
+     * at the next call to {@link #flush()}. Safe to call while looping over
+     * archetypes. Destroying an entity twice this way is harmless.
+     *
+     * @param entity a live entity
+     */
+    public void destroyLater(int entity) {
+        if (pendingCount == pendingDestroy.length) {
+            pendingDestroy = Arrays.copyOf(pendingDestroy, pendingCount * 2);
+        }
+        pendingDestroy[pendingCount++] = entity;
+    }
+
+    /**
+     * Destroy the entities passed to {@link #destroyLater(int)}.
+     */
+    public void flush() {
+        for (int i = 0; i < pendingCount; ++i) {
+            int e = pendingDestroy[i];
+            if (isAlive(e)) {
+                destroy(e);
+            }
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Check whether an entity number belongs to a live entity.
+     */
+    public boolean isAlive(int entity) {
+        return entity >= 0 && entity < nextEntity && entityArchetype[entity] >= 0;
+    }
+
+    /**
+     * Get the number of live entities.
+     */
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * Check whether an entity has a component.
+     */
+    public boolean has(int entity, ComponentType type) {
+        return archetypeOf(entity).has(type);
+    }
+
+    /**
+     * Give an entity a component, with all fields zero. Does nothing if the
+     * entity already has it.
+     */
+    public void add(int entity, ComponentType type) {
+        Archetype from = archetypeOf(entity);
+        if (!from.has(type)) {
+            moveTo(entity, from, neighbour(from, type));
+        }
+    }
+
+    /**
+     * Take a component away from an entity. Does nothing if the entity doesn't
+     * have it.
+     */
+    public void remove(int entity, ComponentType type) {
+        Archetype from = archetypeOf(entity);
+        if (from.has(type)) {
+            moveTo(entity, from, neighbour(from, type));
+        }
+    }
+
+    /**
+     * Get the archetype an entity is currently in.
+     */
+    public Archetype getArchetypeOf(int entity) {
+        return archetypeOf(entity);
+    }
+
+    /**
+     * Get the row of an entity within its archetype.
+     */
+    public int getRow(int entity) {
+        archetypeOf(entity);
+        return entityRow[entity];
+    }
+
+    /**
+     * Get a double field of an entity's component. For going through many
+     * entities, loop over the archetype columns instead.
+     */
+    public double getDouble(int entity, ComponentType type, int field) {
+        return archetypeOf(entity).doubleColumns(type)[field][entityRow[entity]];
+    }
+
+    /**
+     * Set a double field of an entity's component.
+     */
+    public void setDouble(int entity, ComponentType type, int field, double value) {
+        archetypeOf(entity).doubleColumns(type)[field][entityRow[entity]] = value;
+    }
+
+    /**
+     * Get an int field of an entity's component.
+     */
+    public int getInt(int entity, ComponentType type, int field) {
+        return archetypeOf(entity).intColumns(type)[field][entityRow[entity]];
+    }
+
+    /**
+     * Set an int field of an entity's component.
+     */
+    public void setInt(int entity, ComponentType type, int field, int value) {
+        archetypeOf(entity).intColumns(type)[field][entityRow[entity]] = value;
+    }
+
+    /**
+     * Add a system. Systems run in the order they were added.
+     */
+    public void addSystem(EntitySystem system) {
+        systems.add(system);
+    }
+
+    /**
+     * Remove a system.
+     */
+    public void removeSystem(EntitySystem system) {
+        systems.remove(system);
+    }
+
+    /**
+     * Run all systems once, then destroy the entities passed to
+     * {@link #destroyLater(int)}. Call this from your Application's update().
+     *
+     * @param delta number of seconds since the last update
+     */
+    public void update(double delta) {
+        for (int i = 0, n = systems.size(); i < n; ++i) {
+            systems.get(i).update(this, delta);
+        }
+        flush();
+    }
+
+    private Archetype archetypeOf(int entity) {
+        if (!isAlive(entity)) {
+            throw new IllegalArgumentException("No such entity: " + entity);
+        }
+        return archetypes.get(entityArchetype[entity]);
+    }
+
+    private void moveTo(int entity, Archetype from, Archetype to) {
+        int fromRow = entityRow[entity];
+        int toRow = to.addRow(entity);
+        to.copyRow(from, fromRow, toRow);
+        removeFrom(from, fromRow);
+        entityArchetype[entity] = to.index;
+        entityRow[entity] = toRow;
+    }
+
+    private void removeFrom(Archetype a, int row) {
+        int moved = a.removeRow(row);
+        if (moved >= 0) {
+            entityRow[moved] = row;
+        }
+    }
+
+    /**
+     * Find the archetype with one component type more or less than another.
+     */
+    private Archetype neighbour(Archetype a, ComponentType type) {
+        Archetype n = a.edges[type.id];
+        if (n == null) {
+            n = archetypeFor(a.mask ^ type.bit);
+            a.edges[type.id] = n;
+        }
+        return n;
+    }
+
+    private Archetype archetypeFor(long mask) {
+        Archetype a = archetypesByMask.get(mask);
+        if (a == null) {
+            ComponentType[] list = new ComponentType[Long.bitCount(mask)];
+            int n = 0;
+            for (ComponentType t : types) {
+                if ((mask & t.bit) != 0) {
+                    list[n++] = t;
+                }
+            }
+            a = new Archetype(archetypes.size(), mask, list);
+            archetypes.add(a);
+            archetypesByMask.put(mask, a);
+        }
+        return a;
+    }
+
+    private static long maskOf(ComponentType[] components) {
+        long mask = 0L;
+        for (ComponentType t : components) {
+            mask |= t.bit;
+        }
+        return mask;
+    }
+
+}
@@ -0,0 +1,178 @@
+package engine.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Packs individual images into as few texture atlases as possible.
+ * 
+ * Use it while loading, to turn many small images into a few sheets:
+ * 
+ * <pre>
+ * AtlasPacker packer = new AtlasPacker(1024, 1024);
+ * packer.add("ship", "gfx/ship.png");
+ * packer.add("bullet", "gfx/bullet.png");
+ * TextureAtlas atlas = packer.pack().get(0);
+ * Sprite ship = new Sprite(atlas.getRegion("ship"));
+ * </pre>
+ * 
+ * or ahead of time, saving the result with
+ * {@link TextureAtlas#save(String, String)} and shipping only the sheet.
+ * 
+ * Images are packed onto shelves: sorted tallest first, placed left to right
+ * until a row is full, then a new row is started below. Simple, and good
+ * enough for sprites of similar sizes.
+ */
+public class AtlasPacker {
+
+    private static class Entry {
+        final String name;
+        final Image image;
+        int page;
+        int x;
+        int y;
+
+        Entry(String name, Image image) {
+            this.name = name;
+            this.image = image;
+        }
+    }
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private int padding = 1;
+    private final ArrayList<Entry> entries = new ArrayList<>();
+
+    /**
+     * Create a new AtlasPacker.
+     * 
+     * @param maxWidth  maximum width of one sheet in pixels
+     * @param maxHeight maximum height of one sheet in pixels
+     */
+    public AtlasPacker(int maxWidth, int maxHeight) {
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * Set the number of empty pixels left between packed images. Some padding
+     * keeps neighbouring images from bleeding into each other when scaled.
+     * 
+     * @param pixels padding in pixels. Default: 1.
+     */
+    public void setPadding(int pixels) {
+        padding = pixels < 0 ? 0 : pixels;
+    }
+
+    /**
+     * Add an image to be packed.
+     * 
+     * @param name  the name the image will have in the atlas
+     * @param image an Image object (may itself be a region)
+     */
+    public void add(String name, Image image) {
+        if (image.getWidth() > maxWidth || image.getHeight() > maxHeight) {
+            throw new IllegalArgumentException("Image " + name + " is larger than the maximum sheet size");
+        }
+        entries.add(new Entry(name, image));
+    }
+
+    /**
+     * Load an image from disk and add it to be packed. If the image is not
+     * found, the program will exit with an error message.
+     * 
+     * @param name the name the image will have in the atlas
+     * @param file path to the image file
+     */
+    public void add(String name, String file) {
+        add(name, new Image(file));
+    }
+
+    /**
+     * Pack all added images. Each returned atlas has one region per image,
+     * named as given when the image was added.
+     * 
+     * @return a list of TextureAtlas objects; more than one if the images
+     *         didn't fit on a single sheet
+     */
+    public List<TextureAtlas> pack() {
+        ArrayList<Entry> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted, (a, b) -> b.image.getHeight() - a.image.getHeight());
+
+        // Place everything on shelves, page by page, and remember how much
+        // of each page was used
+        ArrayList<int[]> pageSizes = new ArrayList<>();
+        int page = 0;
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        int usedWidth = 0;
+
+        for (Entry e : sorted) {
+            int w = e.image.getWidth();
+            int h = e.image.getHeight();
+
+            if (x + w > maxWidth) {
+                // Start a new shelf
+                x = 0;
+                y += shelfHeight + padding;
+                shelfHeight = 0;
+            }
+            if (y + h > maxHeight) {
+                // Start a new page
+                pageSizes.add(new int[] { usedWidth, y });
+                ++page;
+                x = 0;
+                y = 0;
+                shelfHeight = 0;
+                usedWidth = 0;
+            }
+
+            e.page = page;
+            e.x = x;
+            e.y = y;
+            x += w + padding;
+            shelfHeight = Math.max(shelfHeight, h);
+            usedWidth = Math.max(usedWidth, e.x + w);
+        }
+        pageSizes.add(new int[] { usedWidth, y + shelfHeight });
+
+        // Copy the images onto their sheets
+        ArrayList<BufferedImage> sheets = new ArrayList<>();
+        ArrayList<Graphics2D> graphics = new ArrayList<>();
+        for (int[] size : pageSizes) {
+            BufferedImage sheet = new BufferedImage(Math.max(size[0], 1), Math.max(size[1], 1),
+                    BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = sheet.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            sheets.add(sheet);
+            graphics.add(g);
+        }
+
+        for (Entry e : sorted) {
+            e.image.draw(graphics.get(e.page), e.x, e.y, null);
+        }
+        for (Graphics2D g : graphics) {
+            g.dispose();
+        }
+
+        // Only now that the pixels are in place can the sheets be converted
+        // for fast drawing
+        ArrayList<TextureAtlas> atlases = new ArrayList<>();
+        for (BufferedImage sheet : sheets) {
+            atlases.add(new TextureAtlas(new Image(Image.toCompatible(sheet))));
+        }
+
+        // Define regions in the order the images were added
+        for (Entry e : entries) {
+            atlases.get(e.page).addRegion(e.name, e.x, e.y, e.image.getWidth(), e.image.getHeight());
+        }
+
+        return atlases;
+    }
+
+}
@@ -0,0 +1,495 @@
+package engine.graphics;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A font whose characters have been drawn into a single image (a glyph atlas)
+ * ahead of time. Drawing text with a BitmapFont is just copying small pieces of
+ * that image to screen, which is a lot cheaper than having Java lay out and
+ * render a TrueType font for every string, every frame.
+ *
+ * A BitmapFont can be made from any java.awt.Font with {@link #create(Font)}, or
+ * loaded from a font made with the AngelCode BMFont tool (text format, one page)
+ * with {@link #load(String)}.
+ *
+ * Glyphs are stored in white. Drawing in another color uses a tinted copy of the
+ * glyph atlas, which is made the first time that color is used. Only the
+ * {@link #MAX_TINTS} most recently used colors are kept; another color throws
+ * out the least recently used copy, which has to be made again if that color
+ * comes back. So stick to a handful of colors per font.
+ *
+ * Use a BitmapFont with a {@link Text} object like a java.awt.Font:
+ * {@code new Text(BitmapFont.create(Text.createFont("Arial", Font.BOLD, 24)))}.
+ */
+public class BitmapFont {
+
+    /**
+     * The number of tinted copies of the glyph atlas kept per font, not counting
+     * white.
+     */
+    public static final int MAX_TINTS = 8;
+
+    /**
+     * The characters rasterized by {@link #create(Font)}: printable ASCII and
+     * Latin-1.
+     */
+    public static final String DEFAULT_CHARS;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 32; c < 127; ++c) {
+            sb.append(c);
+        }
+        for (char c = 160; c < 256; ++c) {
+            sb.append(c);
+        }
+        DEFAULT_CHARS = sb.toString();
+    }
+
+    private static final int SHEET_WIDTH = 512;
+    private static final int PADDING = 1;
+
+    /**
+     * Rasterize the printable ASCII and Latin-1 characters of a font.
+     *
+     * @param font a java.awt.Font, at the size the text should be drawn
+     * @return a new BitmapFont
+     */
+    public static BitmapFont create(Font font) {
+        return create(font, DEFAULT_CHARS);
+    }
+
+    /**
+     * Rasterize a set of characters of a font. Characters the font can't display
+     * are left out.
+     *
+     * @param font  a java.awt.Font, at the size the text should be drawn
+     * @param chars every character that should be available
+     * @return a new BitmapFont
+     */
+    public static BitmapFont create(Font font, String chars) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D sg = scratch.createGraphics();
+        setHints(sg);
+        FontMetrics fm = sg.getFontMetrics(font);
+        FontRenderContext frc = sg.getFontRenderContext();
+
+        int count = chars.length();
+        BitmapFont bf = new BitmapFont(count, fm.getHeight(), fm.getAscent(), fm.getDescent());
+
+        // Measure every glyph and place it on a shelf
+        Rectangle[] bounds = new Rectangle[count];
+        int x = 0, y = 0, shelfHeight = 0;
+        for (int i = 0; i < count; ++i) {
+            char c = chars.charAt(i);
+            if (!font.canDisplay(c)) {
+                continue;
+            }
+            Rectangle b = font.createGlyphVector(frc, new char[] { c }).getPixelBounds(frc, 0, 0);
+            bounds[i] = b;
+            int w = b.width, h = b.height;
+            if (x + w + PADDING > SHEET_WIDTH) {
+                x = 0;
+                y += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            bf.addGlyph(c, x, y, w, h, b.x, b.y, fm.charWidth(c));
+            x += w + PADDING;
+            shelfHeight = Math.max(shelfHeight, h);
+        }
+        sg.dispose();
+
+        // Draw the glyphs in white
+        BufferedImage sheet = new BufferedImage(SHEET_WIDTH, Math.max(1, y + shelfHeight),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sheet.createGraphics();
+        setHints(g);
+        g.setFont(font);
+        g.setColor(Color.WHITE);
+        char[] one = new char[1];
+        for (int i = 0; i < count; ++i) {
+            Rectangle b = bounds[i];
+            if (b == null || b.width == 0) {
+                continue;
+            }
+            one[0] = chars.charAt(i);
+            int gi = bf.glyphIndex(one[0]);
+            g.drawChars(one, 0, 1, bf.gx[gi] - b.x, bf.gy[gi] - b.y);
+        }
+        g.dispose();
+
+        bf.setSheet(sheet);
+        return bf;
+    }
+
+    /**
+     * Load a font made with AngelCode BMFont, saved in the text format with a single
+     * page. The page image is looked for next to the font file.
+     *
+     * If the font cannot be loaded, the program will exit with an error message.
+     *
+     * @param file path to the .fnt file
+     * @return a new BitmapFont
+     */
+    public static BitmapFont load(String file) {
+        try {
+            return read(file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load bitmap font " + file);
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Load a font made with AngelCode BMFont. Unlike {@link #load(String)}, this
+     * reports failure with an exception instead of exiting the program.
+     *
+     * @param file path to the .fnt file
+     * @return a new BitmapFont
+     * @throws IOException if the font file or its page image cannot be read
+     */
+    public static BitmapFont read(String file) throws IOException {
+        int lineHeight = 0, base = 0;
+        String page = null;
+        ArrayList<HashMap<String, String>> glyphs = new ArrayList<>();
+
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                HashMap<String, String> tags = parseTags(line);
+                if (line.startsWith("common ")) {
+                    lineHeight = Integer.parseInt(tags.get("lineHeight"));
+                    base = Integer.parseInt(tags.get("base"));
+                    if (tags.containsKey("pages") && !"1".equals(tags.get("pages"))) {
+                        throw new IOException("Only single page fonts are supported");
+                    }
+                } else if (line.startsWith("page ")) {
+                    page = tags.get("file");
+                } else if (line.startsWith("char ")) {
+                    glyphs.add(tags);
+                }
+            }
+        }
+        if (page == null) {
+            throw new IOException("No page image in " + file);
+        }
+
+        File dir = new File(file).getAbsoluteFile().getParentFile();
+        BufferedImage sheet = Image.load(new File(dir, page).getPath()).getData();
+
+        BitmapFont bf = new BitmapFont(glyphs.size(), lineHeight, base, lineHeight - base);
+        for (HashMap<String, String> t : glyphs) {
+            int id = Integer.parseInt(t.get("id"));
+            if (id < 0 || id > Character.MAX_VALUE) {
+                continue;
+            }
+            bf.addGlyph((char) id,
+                    Integer.parseInt(t.get("x")), Integer.parseInt(t.get("y")),
+                    Integer.parseInt(t.get("width")), Integer.parseInt(t.get("height")),
+                    Integer.parseInt(t.get("xoffset")), Integer.parseInt(t.get("yoffset")) - base,
+                    Integer.parseInt(t.get("xadvance")));
+        }
+        bf.setSheet(sheet);
+        return bf;
+    }
+
+    /**
+     * Split a BMFont line like {@code char id=65 x=0 file="a b.png"} into
+     * key/value pairs.
+     */
+    private static HashMap<String, String> parseTags(String line) {
+        HashMap<String, String> tags = new HashMap<>();
+        int i = 0, n = line.length();
+        while (i < n) {
+            while (i < n && line.charAt(i) == ' ') {
+                ++i;
+            }
+            int keyStart = i;
+            while (i < n && line.charAt(i) != '=' && line.charAt(i) != ' ') {
+                ++i;
+            }
+            if (i >= n || line.charAt(i) != '=') {
+                continue; // a bare word, like the line type
+            }
+            String key = line.substring(keyStart, i++);
+            String value;
+            if (i < n && line.charAt(i) == '"') {
+                int end = line.indexOf('"', i + 1);
+                end = end < 0 ? n : end;
+                value = line.substring(i + 1, end);
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < n && line.charAt(end) != ' ') {
+                    ++end;
+                }
+                value = line.substring(i, end);
+                i = end;
+            }
+            tags.put(key, value);
+        }
+        return tags;
+    }
+
+    private static void setHints(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+    }
+
+    private final int lineHeight;
+    private final int ascent;
+    private final int descent;
+
+    // Glyph data, one entry per glyph: position on the sheet, size, offset of the
+    // top left corner from the pen position on the baseline, and advance width
+    private int glyphCount = 0;
+    private final int[] gx, gy, gw, gh, gdx, gdy, gadv;
+
+    // Glyph number + 1 for each character code; 0 for characters without a glyph
+    private int[] charToGlyph = new int[256];
+    private int fallback = -1;
+
+    private BufferedImage white;
+    // Access ordered: iteration starts at the least recently used color
+    private final LinkedHashMap<Color, BufferedImage> tinted = new LinkedHashMap<Color, BufferedImage>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Color, BufferedImage> eldest) {
+            return size() > MAX_TINTS;
+        }
+    };
+
+    private BitmapFont(int capacity, int lineHeight, int ascent, int descent) {
+        this.lineHeight = lineHeight;
+        this.ascent = ascent;
+        this.descent = descent;
+        gx = new int[capacity];
+        gy = new int[capacity];
+        gw = new int[capacity];
+        gh = new int[capacity];
+        gdx = new int[capacity];
+        gdy = new int[capacity];
+        gadv = new int[capacity];
+    }
+
+    private void addGlyph(char c, int x, int y, int w, int h, int dx, int dy, int advance) {
+        if (glyphCount == gx.length) {
+            return;
+        }
+        int i = glyphCount++;
+        gx[i] = x;
+        gy[i] = y;
+        gw[i] = w;
+        gh[i] = h;
+        gdx[i] = dx;
+        gdy[i] = dy;
+        gadv[i] = advance;
+        if (c >= charToGlyph.length) {
+            charToGlyph = Arrays.copyOf(charToGlyph, Math.max(c + 1, charToGlyph.length * 2));
+        }
+        charToGlyph[c] = i + 1;
+        if (c == '?') {
+            fallback = i;
+        }
+    }
+
+    private void setSheet(BufferedImage sheet) {
+        white = Image.toCompatible(sheet);
+        tinted.clear();
+    }
+
+    /**
+     * Find the glyph for a character.
+     *
+     * @return a glyph number, or -1 if the font has no glyph for it (not even '?')
+     */
+    private int glyphIndex(char c) {
+        if (c < charToGlyph.length && charToGlyph[c] != 0) {
+            return charToGlyph[c] - 1;
+        }
+        return fallback;
+    }
+
+    /**
+     * Get the glyph atlas image, in white.
+     */
+    public BufferedImage getSheet() {
+        return white;
+    }
+
+    /**
+     * Get the glyph atlas in a given color. The tinted copy is made the first time
+     * a color is asked for, and kept while it is one of the {@link #MAX_TINTS}
+     * most recently used colors.
+     *
+     * @param color a java.awt.Color
+     * @return the glyph atlas image in that color
+     */
+    public BufferedImage getSheet(Color color) {
+        if (Color.WHITE.equals(color)) {
+            return white;
+        }
+        BufferedImage img = tinted.get(color);
+        if (img == null) {
+            img = tint(white, color);
+            tinted.put(color, img);
+        }
+        return img;
+    }
+
+    private static BufferedImage tint(BufferedImage src, Color color) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        int cr = color.getRed(), cg = color.getGreen(), cb = color.getBlue(), ca = color.getAlpha();
+        int[] px = src.getRGB(0, 0, w, h, null, 0, w);
+        for (int i = 0; i < px.length; ++i) {
+            int p = px[i];
+            int a = (p >>> 24) * ca / 255;
+            int r = ((p >> 16) & 0xFF) * cr / 255;
+            int g = ((p >> 8) & 0xFF) * cg / 255;
+            int b = (p & 0xFF) * cb / 255;
+            px[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        dst.setRGB(0, 0, w, h, px, 0, w);
+        return Image.toCompatible(dst);
+    }
+
+    /**
+     * Get the distance between two lines of text, in pixels.
+     */
+    public int getLineHeight() {
+        return lineHeight;
+    }
+
+    /**
+     * Get how far the tallest characters reach above the baseline, in pixels.
+     */
+    public int getAscent() {
+        return ascent;
+    }
+
+    /**
+     * Get how far the lowest characters reach below the baseline, in pixels.
+     */
+    public int getDescent() {
+        return descent;
+    }
+
+    /**
+     * Return true if the font has a glyph for the given character.
+     */
+    public boolean canDisplay(char c) {
+        return c < charToGlyph.length && charToGlyph[c] != 0;
+    }
+
+    /**
+     * Get how far the pen moves to the right after drawing a character.
+     *
+     * @param c a character
+     * @return advance width in pixels
+     */
+    public int getAdvance(char c) {
+        int gi = glyphIndex(c);
+        return gi < 0 ? 0 : gadv[gi];
+    }
+
+    /**
+     * Get the width of a piece of text.
+     *
+     * @param text   characters
+     * @param offset index of the first character to measure
+     * @param length number of characters to measure
+     * @return width in pixels
+     */
+    public int measure(char[] text, int offset, int length) {
+        int w = 0;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            w += getAdvance(text[i]);
+        }
+        return w;
+    }
+
+    /**
+     * Get the width of a piece of text.
+     *
+     * @param text any text
+     * @return width in pixels
+     */
+    public int measure(CharSequence text) {
+        int w = 0;
+        for (int i = 0, n = text.length(); i < n; ++i) {
+            w += getAdvance(text.charAt(i));
+        }
+        return w;
+    }
+
+    /**
+     * Draw text.
+     *
+     * @param g     a Graphics2D context
+     * @param text  the text to draw
+     * @param x     left edge of the text
+     * @param y     baseline of the text
+     * @param color color of the text
+     */
+    public void draw(Graphics2D g, CharSequence text, int x, int y, Color color) {
+        BufferedImage sheet = getSheet(color);
+        for (int i = 0, n = text.length(); i < n; ++i) {
+            x = drawGlyph(g, sheet, text.charAt(i), x, y);
+        }
+    }
+
+    /**
+     * Draw text from a char array, using a sheet from {@link #getSheet(Color)}.
+     *
+     * @param g      a Graphics2D context
+     * @param sheet  the glyph atlas in the color to draw in
+     * @param text   characters
+     * @param offset index of the first character to draw
+     * @param length number of characters to draw
+     * @param x      left edge of the text
+     * @param y      baseline of the text
+     */
+    public void draw(Graphics2D g, BufferedImage sheet, char[] text, int offset, int length, int x, int y) {
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            x = drawGlyph(g, sheet, text[i], x, y);
+        }
+    }
+
+    private int drawGlyph(Graphics2D g, BufferedImage sheet, char c, int x, int y) {
+        int gi = glyphIndex(c);
+        if (gi < 0) {
+            return x;
+        }
+        int w = gw[gi];
+        if (w > 0) {
+            int dx = x + gdx[gi];
+            int dy = y + gdy[gi];
+            int sx = gx[gi];
+            int sy = gy[gi];
+            int h = gh[gi];
+            g.drawImage(sheet, dx, dy, dx + w, dy + h, sx, sy, sx + w, sy + h, null);
+        }
+        return x + gadv[gi];
+    }
+}
@@ -0,0 +1,41 @@
+package engine.graphics;
+
+/**
+ * Something drawn inside a known rectangle. The display list uses this to skip
+ * drawing things that are hidden or completely outside of the screen, without
+ * calling their draw function at all.
+ *
+ * All GraphicsObjects are Bounded. A Drawable that isn't Bounded is always drawn.
+ */
+public interface Bounded {
+
+    /**
+     * Return true if this object should be drawn at all.
+     */
+    public boolean isVisible();
+
+    /**
+     * Get the left edge coordinate of the area this object draws into.
+     */
+    public double getX0();
+
+    /**
+     * Get the top edge coordinate of the area this object draws into.
+     */
+    public double getY0();
+
+    /**
+     * Get the right edge coordinate of the area this object draws into. If this is
+     * not greater than {@link #getX0()}, the object is taken to have no known size
+     * and is never culled for being offscreen.
+     */
+    public double getX1();
+
+    /**
+     * Get the bottom edge coordinate of the area this object draws into. If this
+     * is not greater than {@link #getY0()}, the object is taken to have no known
+     * size and is never culled for being offscreen.
+     */
+    public double getY1();
+
+}
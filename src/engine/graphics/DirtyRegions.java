@@ -0,0 +1,362 @@
+package engine.graphics;
+
+import java.awt.Rectangle;
+import java.util.IdentityHashMap;
+
+/**
+ * Collects the parts of the screen that need to be redrawn this frame, for
+ * rendering scenes where little changes from one frame to the next.
+ *
+ * Rectangles can be marked by hand with {@link #add(double, double, double, double)}
+ * or {@link #markAll()}. Graphics objects can also be tracked with
+ * {@link #track(GraphicsObject)}: whenever a tracked object moves, changes size,
+ * image, text, color or visibility, both the area it used to cover and the area
+ * it covers now are marked.
+ *
+ * Rectangles are in screen pixels. Things positioned in world coordinates (see
+ * the Application's camera) are marked with {@link #addWorld} instead, which
+ * converts using the transform set with {@link #setWorldTransform}.
+ *
+ * Overlapping rectangles are merged, and the number of rectangles is kept small
+ * by merging the ones that grow the least when combined. Once the rectangles cover
+ * more than a set part of the screen (see {@link #setFullRedrawThreshold(double)}),
+ * it is cheaper to just redraw everything, and {@link #isFull()} becomes true.
+ */
+public class DirtyRegions {
+
+    /**
+     * Remembers where a tracked object was last drawn. Doubles as the listener
+     * that marks the object's old and new area when it changes.
+     */
+    private final class Tracker implements GraphicsObjectListener {
+        final GraphicsObject object;
+        final boolean screenSpace;
+        double x0, y0, x1, y1;
+        boolean shown;
+
+        Tracker(GraphicsObject object, boolean screenSpace) {
+            this.object = object;
+            this.screenSpace = screenSpace;
+        }
+
+        @Override
+        public void graphicsObjectChanged(GraphicsObject o) {
+            markShown(this);
+            readBounds(this);
+            markShown(this);
+        }
+    }
+
+    private static final int MAX_RECTS = 16;
+
+    private final int width;
+    private final int height;
+    private double threshold = 0.5;
+
+    private final int[] rx0 = new int[MAX_RECTS];
+    private final int[] ry0 = new int[MAX_RECTS];
+    private final int[] rx1 = new int[MAX_RECTS];
+    private final int[] ry1 = new int[MAX_RECTS];
+    private int count = 0;
+    private boolean full = true;
+
+    private final IdentityHashMap<GraphicsObject, Tracker> trackers = new IdentityHashMap<>();
+
+    // World to screen: screen = world * scale + offset
+    private double worldScale = 1.0;
+    private double worldX = 0.0;
+    private double worldY = 0.0;
+
+    /**
+     * Create a new DirtyRegions for a screen of the given size. Everything starts
+     * out dirty, so the first frame is drawn in full.
+     *
+     * @param width  screen width in pixels
+     * @param height screen height in pixels
+     */
+    public DirtyRegions(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Set how much of the screen may be dirty before the whole screen is redrawn
+     * instead.
+     *
+     * @param coverage a part of the screen area between 0 and 1. Default: 0.5.
+     */
+    public void setFullRedrawThreshold(double coverage) {
+        threshold = coverage < 0.0 ? 0.0 : coverage > 1.0 ? 1.0 : coverage;
+    }
+
+    /**
+     * Get the coverage above which the whole screen is redrawn.
+     */
+    public double getFullRedrawThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Set how world coordinates map to the screen: screen = world * scale + offset.
+     * If the transform changes, everything is marked dirty, since everything in
+     * the world moves on screen.
+     *
+     * @param scale   zoom factor
+     * @param offsetX screen X position of world X 0
+     * @param offsetY screen Y position of world Y 0
+     */
+    public void setWorldTransform(double scale, double offsetX, double offsetY) {
+        if (scale != worldScale || offsetX != worldX || offsetY != worldY) {
+            worldScale = scale;
+            worldX = offsetX;
+            worldY = offsetY;
+            markAll();
+        }
+    }
+
+    /**
+     * Mark a rectangle given in world coordinates as dirty.
+     *
+     * @param x0 left edge
+     * @param y0 top edge
+     * @param x1 right edge
+     * @param y1 bottom edge
+     */
+    public void addWorld(double x0, double y0, double x1, double y1) {
+        add(x0 * worldScale + worldX, y0 * worldScale + worldY,
+                x1 * worldScale + worldX, y1 * worldScale + worldY);
+    }
+
+    /**
+     * Mark the whole screen as dirty.
+     */
+    public void markAll() {
+        full = true;
+        count = 0;
+    }
+
+    /**
+     * Mark a rectangle as dirty. The rectangle is grown to whole pixels, plus one
+     * pixel on each side to cover rounding when things are drawn.
+     *
+     * @param x0 left edge
+     * @param y0 top edge
+     * @param x1 right edge
+     * @param y1 bottom edge
+     */
+    public void add(double x0, double y0, double x1, double y1) {
+        if (full) {
+            return;
+        }
+
+        int ax0 = Math.max((int) Math.floor(x0) - 1, 0);
+        int ay0 = Math.max((int) Math.floor(y0) - 1, 0);
+        int ax1 = Math.min((int) Math.ceil(x1) + 1, width);
+        int ay1 = Math.min((int) Math.ceil(y1) + 1, height);
+        if (ax1 <= ax0 || ay1 <= ay0) {
+            return; // offscreen
+        }
+
+        // Swallow every rectangle the new one touches, until none is left
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count; ++i) {
+                if (ax0 <= rx1[i] && ax1 >= rx0[i] && ay0 <= ry1[i] && ay1 >= ry0[i]) {
+                    ax0 = Math.min(ax0, rx0[i]);
+                    ay0 = Math.min(ay0, ry0[i]);
+                    ax1 = Math.max(ax1, rx1[i]);
+                    ay1 = Math.max(ay1, ry1[i]);
+                    removeRect(i);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+
+        // Out of room: merge into the rectangle that grows the least
+        if (count == MAX_RECTS) {
+            int best = 0;
+            long bestGrowth = Long.MAX_VALUE;
+            for (int i = 0; i < count; ++i) {
+                long union = (long) (Math.max(ax1, rx1[i]) - Math.min(ax0, rx0[i]))
+                        * (Math.max(ay1, ry1[i]) - Math.min(ay0, ry0[i]));
+                long growth = union - area(i);
+                if (growth < bestGrowth) {
+                    bestGrowth = growth;
+                    best = i;
+                }
+            }
+            int bx0 = Math.min(ax0, rx0[best]);
+            int by0 = Math.min(ay0, ry0[best]);
+            int bx1 = Math.max(ax1, rx1[best]);
+            int by1 = Math.max(ay1, ry1[best]);
+            removeRect(best);
+            // The grown rectangle may now touch others; add it over again
+            add(bx0 + 1, by0 + 1, bx1 - 1, by1 - 1);
+            return;
+        }
+
+        rx0[count] = ax0;
+        ry0[count] = ay0;
+        rx1[count] = ax1;
+        ry1[count] = ay1;
+        count++;
+
+        // Rectangles never overlap, so their areas simply add up
+        long covered = 0;
+        for (int i = 0; i < count; ++i) {
+            covered += area(i);
+        }
+        if (covered > threshold * width * height) {
+            markAll();
+        }
+    }
+
+    /**
+     * Return true if the whole screen needs to be redrawn.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Return true if nothing needs to be redrawn.
+     */
+    public boolean isEmpty() {
+        return !full && count == 0;
+    }
+
+    /**
+     * Get the number of dirty rectangles. Only meaningful if {@link #isFull()} is
+     * false.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get a dirty rectangle.
+     *
+     * @param index a number between 0 and getCount() - 1
+     * @param out   rectangle to store the result in
+     *
+     * @return out
+     */
+    public Rectangle getRect(int index, Rectangle out) {
+        out.setBounds(rx0[index], ry0[index], rx1[index] - rx0[index], ry1[index] - ry0[index]);
+        return out;
+    }
+
+    /**
+     * Forget all dirty rectangles. Called by the screen once a frame has been drawn.
+     */
+    public void reset() {
+        full = false;
+        count = 0;
+    }
+
+    /**
+     * Start tracking a graphics object positioned in world coordinates, and mark
+     * its area dirty so it gets drawn. Tracking an object twice does nothing.
+     *
+     * @param o a graphics object
+     */
+    public void track(GraphicsObject o) {
+        track(o, false);
+    }
+
+    /**
+     * Start tracking a graphics object, and mark its area dirty so it gets drawn.
+     * Tracking an object twice does nothing.
+     *
+     * @param o           a graphics object
+     * @param screenSpace true if the object is positioned in screen pixels rather
+     *                    than world coordinates
+     */
+    public void track(GraphicsObject o, boolean screenSpace) {
+        if (trackers.containsKey(o)) {
+            return;
+        }
+        Tracker t = new Tracker(o, screenSpace);
+        trackers.put(o, t);
+        readBounds(t);
+        markShown(t);
+        o.addListener(t);
+    }
+
+    /**
+     * Stop tracking a graphics object, and mark the area it covered dirty so it
+     * gets drawn over.
+     *
+     * @param o a graphics object
+     */
+    public void untrack(GraphicsObject o) {
+        Tracker t = trackers.remove(o);
+        if (t != null) {
+            o.removeListener(t);
+            markShown(t);
+        }
+    }
+
+    /**
+     * Mark the area of a tracked graphics object dirty, e.g. because something
+     * about how it is drawn changed that it doesn't report.
+     *
+     * @param o a graphics object
+     */
+    public void touch(GraphicsObject o) {
+        Tracker t = trackers.get(o);
+        if (t != null) {
+            markShown(t);
+        }
+    }
+
+    /**
+     * Stop tracking all graphics objects.
+     */
+    public void untrackAll() {
+        for (Tracker t : trackers.values()) {
+            t.object.removeListener(t);
+        }
+        trackers.clear();
+        markAll();
+    }
+
+    private void readBounds(Tracker t) {
+        GraphicsObject o = t.object;
+        t.shown = o.isVisible();
+        t.x0 = o.getX0();
+        t.y0 = o.getY0();
+        t.x1 = o.getX1();
+        t.y1 = o.getY1();
+    }
+
+    private void markShown(Tracker t) {
+        if (!t.shown) {
+            return;
+        }
+        // Without a size we can't tell where the object draws
+        if (t.x1 <= t.x0 || t.y1 <= t.y0) {
+            markAll();
+            return;
+        }
+        if (t.screenSpace) {
+            add(t.x0, t.y0, t.x1, t.y1);
+        } else {
+            addWorld(t.x0, t.y0, t.x1, t.y1);
+        }
+    }
+
+    private long area(int i) {
+        return (long) (rx1[i] - rx0[i]) * (ry1[i] - ry0[i]);
+    }
+
+    private void removeRect(int i) {
+        --count;
+        rx0[i] = rx0[count];
+        ry0[i] = ry0[count];
+        rx1[i] = rx1[count];
+        ry1[i] = ry1[count];
+    }
+}
@@ -0,0 +1,881 @@
+package engine.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import engine.collision.SpatialHash;
+
+/**
+ * A list of Drawables to draw every frame, sorted into layers.
+ *
+ * Layers are numbered; lower numbers are drawn first, so higher layers end up on
+ * top. Layers can also be given names, e.g. {@code defineLayer("hud", 100)}.
+ * Inside a layer, drawables are drawn by their z value, lowest first; drawables
+ * with the same z value are drawn in the order they were added.
+ *
+ * Adding a drawable returns an {@link Entry}, a handle that can be used to change
+ * its z value or remove it again. Removing is cheap no matter how many drawables
+ * there are: the entry is only marked as removed, and all removed entries are
+ * cleared out in one go when the list is drawn next. Likewise, changing z values
+ * only marks the layer as unsorted, and the layer is sorted once before drawing.
+ * A layer that only ever gets drawables added with increasing (or equal) z values
+ * never needs to be sorted at all.
+ *
+ * With culling turned on (see {@link #setCulling(boolean)}), drawables that are
+ * {@link Bounded} are skipped without calling their draw function if they are
+ * invisible or lie completely outside of the viewport rectangle. Once a list holds
+ * many graphics objects, they are also kept in a {@link SpatialHash}, and a single
+ * query per frame finds those inside the viewport instead of testing every one.
+ * (The index knows graphics objects without a size only by their position, so
+ * while it is in use those are culled once their position is offscreen.)
+ * The number of drawables drawn and culled can be read with
+ * {@link #getDrawnCount()} and {@link #getCulledCount()}.
+ */
+public class DisplayList {
+
+    /**
+     * Handle to a drawable in the display list.
+     */
+    public static final class Entry {
+        private final DisplayList list;
+        private final Drawable drawable;
+        private final Bounded bounded;
+        private final GraphicsObject object;
+        private final Layer layer;
+        private double z;
+        private final long order;
+        private boolean removed = false;
+        private int slot = 0;
+
+        private Entry(DisplayList list, Drawable drawable, Layer layer, double z, long order) {
+            this.list = list;
+            this.drawable = drawable;
+            this.bounded = drawable instanceof Bounded ? (Bounded) drawable : null;
+            this.object = drawable instanceof GraphicsObject ? (GraphicsObject) drawable : null;
+            this.layer = layer;
+            this.z = z;
+            this.order = order;
+        }
+
+        /**
+         * Get the drawable this entry is for.
+         */
+        public Drawable getDrawable() {
+            return drawable;
+        }
+
+        /**
+         * Get the number of the layer the drawable is in.
+         */
+        public int getLayer() {
+            return layer.number;
+        }
+
+        /**
+         * Get the z value of the drawable inside its layer.
+         */
+        public double getZ() {
+            return z;
+        }
+
+        /**
+         * Change the z value of the drawable. Drawables with higher z values are drawn
+         * on top of those with lower values in the same layer.
+         *
+         * @param z new z value
+         */
+        public void setZ(double z) {
+            if (z != this.z) {
+                this.z = z;
+                layer.sorted = false;
+                list.markDirty(this);
+            }
+        }
+
+        /**
+         * Check whether the drawable has been removed from the display list.
+         */
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        /**
+         * Remove the drawable from the display list. Does nothing if it was
+         * already removed.
+         */
+        public void remove() {
+            list.remove(this);
+        }
+    }
+
+    /**
+     * One layer: an array of entries, plus bookkeeping for removed entries and
+     * sort state.
+     */
+    private static final class Layer {
+        final int number;
+        Entry[] entries = new Entry[16];
+        int count = 0;
+        int removed = 0;
+        int objects = 0;
+        boolean sorted = true;
+        boolean visible = true;
+        boolean screenSpace = false;
+        int rank = 0;
+
+        Layer(int number) {
+            this.number = number;
+        }
+
+        void add(Entry e) {
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            if (count > 0 && entries[count - 1].z > e.z) {
+                sorted = false;
+            }
+            e.slot = count;
+            entries[count++] = e;
+        }
+
+        /**
+         * Clear out removed entries and sort, if needed.
+         */
+        void prepare() {
+            boolean moved = removed > 0 || !sorted;
+            if (removed > 0) {
+                int n = 0;
+                for (int i = 0; i < count; ++i) {
+                    Entry e = entries[i];
+                    if (!e.removed) {
+                        entries[n++] = e;
+                    }
+                }
+                Arrays.fill(entries, n, count, null);
+                count = n;
+                removed = 0;
+            }
+            if (!sorted) {
+                // Arrays.sort on objects is stable, and fast on nearly sorted data
+                Arrays.sort(entries, 0, count, BY_Z);
+                sorted = true;
+            }
+            // Entries moved; remember where each one is now
+            if (moved) {
+                for (int i = 0; i < count; ++i) {
+                    entries[i].slot = i;
+                }
+            }
+        }
+    }
+
+    // Which layers a draw call draws
+    private static final int ALL_LAYERS = 0;
+    private static final int WORLD_LAYERS = 1;
+    private static final int SCREEN_LAYERS = 2;
+
+    private static final Comparator<Entry> BY_Z = (a, b) -> {
+        int c = Double.compare(a.z, b.z);
+        return c != 0 ? c : Long.compare(a.order, b.order);
+    };
+
+    // Layers, sorted by number
+    private Layer[] layers = new Layer[0];
+    private final Map<String, Integer> layerNames = new HashMap<>();
+    private final IdentityHashMap<Drawable, Entry> entries = new IdentityHashMap<>();
+    private long nextOrder = 0;
+
+    private boolean culling = false;
+    private double viewX0 = 0.0, viewY0 = 0.0, viewX1 = 0.0, viewY1 = 0.0;
+    private double cullMargin = 16.0;
+    private int drawnCount = 0;
+    private int culledCount = 0;
+
+    // Spatial index for culling large lists; null while not in use
+    private SpatialHash index = null;
+    private int indexThreshold = 4096;
+    private double indexCellSize = 128.0;
+    private int objectCount = 0;
+    private final ArrayList<GraphicsObject> queryResult = new ArrayList<>();
+    private long[] drawKeys = new long[256];
+
+    // Receives the areas that change, in dirty rectangle mode; null otherwise
+    private DirtyRegions dirty = null;
+
+    /**
+     * Give a layer number a name, so it can be referred to by name.
+     *
+     * @param name  any name, e.g. "background" or "hud"
+     * @param layer the layer number
+     */
+    public void defineLayer(String name, int layer) {
+        layerNames.put(name, layer);
+    }
+
+    /**
+     * Get the number of a named layer.
+     *
+     * @param name a name given with {@link #defineLayer(String, int)}
+     *
+     * @return the layer number, or 0 (with a warning) if no such layer was defined
+     */
+    public int getLayer(String name) {
+        Integer layer = layerNames.get(name);
+        if (layer == null) {
+            System.err.println(String.format("Warning: no layer named \"%s\"", name));
+            return 0;
+        }
+        return layer;
+    }
+
+    /**
+     * Add a drawable to layer 0 with z value 0.
+     *
+     * @param d a drawable object
+     *
+     * @return a handle for the drawable
+     */
+    public Entry add(Drawable d) {
+        return add(d, 0, 0.0);
+    }
+
+    /**
+     * Add a drawable to a layer with z value 0.
+     *
+     * @param d     a drawable object
+     * @param layer a layer number
+     *
+     * @return a handle for the drawable
+     */
+    public Entry add(Drawable d, int layer) {
+        return add(d, layer, 0.0);
+    }
+
+    /**
+     * Add a drawable to a named layer.
+     *
+     * @param d     a drawable object
+     * @param layer a layer name given with {@link #defineLayer(String, int)}
+     * @param z     z value inside the layer
+     *
+     * @return a handle for the drawable
+     */
+    public Entry add(Drawable d, String layer, double z) {
+        return add(d, getLayer(layer), z);
+    }
+
+    /**
+     * Add a drawable to a layer. A drawable can only be in the display list once;
+     * if it already is, its existing handle is returned and nothing changes.
+     *
+     * @param d     a drawable object
+     * @param layer a layer number
+     * @param z     z value inside the layer
+     *
+     * @return a handle for the drawable
+     */
+    public Entry add(Drawable d, int layer, double z) {
+        Entry e = entries.get(d);
+        if (e != null) {
+            return e;
+        }
+        Layer l = getOrCreateLayer(layer);
+        e = new Entry(this, d, l, z, nextOrder++);
+        l.add(e);
+        entries.put(d, e);
+        if (e.object != null) {
+            objectCount++;
+            l.objects++;
+            if (index != null) {
+                index.add(e.object);
+            }
+            if (dirty != null) {
+                dirty.track(e.object, l.screenSpace);
+            }
+        } else if (dirty != null) {
+            dirty.markAll();
+        }
+        return e;
+    }
+
+    /**
+     * Add a number of drawables to a layer in one go, in collection order.
+     *
+     * @param drawables drawable objects
+     * @param layer     a layer number
+     */
+    public void addAll(Collection<? extends Drawable> drawables, int layer) {
+        Layer l = getOrCreateLayer(layer);
+        int needed = l.count + drawables.size();
+        if (needed > l.entries.length) {
+            l.entries = Arrays.copyOf(l.entries, Math.max(needed, l.entries.length * 2));
+        }
+        for (Drawable d : drawables) {
+            add(d, layer, 0.0);
+        }
+    }
+
+    /**
+     * Remove a drawable from the display list.
+     *
+     * @param d a drawable object
+     *
+     * @return true if the drawable was in the list
+     */
+    public boolean remove(Drawable d) {
+        Entry e = entries.get(d);
+        if (e == null) {
+            return false;
+        }
+        remove(e);
+        return true;
+    }
+
+    /**
+     * Remove a drawable from the display list by its handle.
+     *
+     * @param e a handle returned when the drawable was added
+     */
+    public void remove(Entry e) {
+        if (e.removed || e.list != this) {
+            return;
+        }
+        e.removed = true;
+        e.layer.removed++;
+        entries.remove(e.drawable);
+        if (e.object != null) {
+            objectCount--;
+            e.layer.objects--;
+            if (index != null) {
+                index.remove(e.object);
+            }
+            if (dirty != null) {
+                dirty.untrack(e.object);
+            }
+        } else if (dirty != null) {
+            dirty.markAll();
+        }
+    }
+
+    /**
+     * Remove a number of drawables in one go.
+     *
+     * @param drawables drawable objects; those not in the list are ignored
+     */
+    public void removeAll(Collection<? extends Drawable> drawables) {
+        for (Drawable d : drawables) {
+            remove(d);
+        }
+    }
+
+    /**
+     * Remove all drawables from a layer.
+     *
+     * @param layer a layer number
+     */
+    public void clearLayer(int layer) {
+        Layer l = findLayer(layer);
+        if (l == null) {
+            return;
+        }
+        for (int i = 0; i < l.count; ++i) {
+            Entry e = l.entries[i];
+            if (!e.removed) {
+                remove(e);
+            }
+        }
+    }
+
+    /**
+     * Remove all drawables from all layers.
+     */
+    public void clear() {
+        for (Layer l : layers) {
+            clearLayer(l.number);
+        }
+    }
+
+    /**
+     * Check whether a drawable is in the display list.
+     */
+    public boolean contains(Drawable d) {
+        return entries.containsKey(d);
+    }
+
+    /**
+     * Get the handle of a drawable in the display list.
+     *
+     * @return the handle, or null if the drawable is not in the list
+     */
+    public Entry getEntry(Drawable d) {
+        return entries.get(d);
+    }
+
+    /**
+     * Get the number of drawables in the display list.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Show or hide a whole layer. Hidden layers are skipped when drawing.
+     *
+     * @param layer   a layer number
+     * @param visible true to draw the layer
+     */
+    public void setLayerVisible(int layer, boolean visible) {
+        Layer l = getOrCreateLayer(layer);
+        if (l.visible != visible) {
+            l.visible = visible;
+            if (dirty != null) {
+                dirty.markAll();
+            }
+        }
+    }
+
+    /**
+     * Check whether a layer is drawn.
+     */
+    public boolean isLayerVisible(int layer) {
+        Layer l = findLayer(layer);
+        return l == null || l.visible;
+    }
+
+    /**
+     * Turn culling on or off. With culling on, Bounded drawables that are invisible
+     * or completely outside of the viewport are not drawn. Off by default.
+     *
+     * @param enabled true to cull
+     */
+    public void setCulling(boolean enabled) {
+        culling = enabled;
+        if (!enabled) {
+            dropIndex();
+        }
+    }
+
+    /**
+     * Check whether culling is on.
+     */
+    public boolean isCulling() {
+        return culling;
+    }
+
+    /**
+     * Set the area that is visible on screen, in the same coordinates the
+     * drawables use. Drawables completely outside of it are culled.
+     *
+     * @param x0 left edge
+     * @param y0 top edge
+     * @param x1 right edge
+     * @param y1 bottom edge
+     */
+    public void setViewport(double x0, double y0, double x1, double y1) {
+        viewX0 = x0;
+        viewY0 = y0;
+        viewX1 = x1;
+        viewY1 = y1;
+    }
+
+    /**
+     * Set how far outside of the viewport a drawable's bounds may be before it is
+     * culled. A small margin keeps things from popping in and out at the screen
+     * edge when they are drawn slightly away from their bounds, e.g. when blending
+     * between fixed steps.
+     *
+     * @param margin distance in pixels. Default: 16.
+     */
+    public void setCullMargin(double margin) {
+        cullMargin = margin > 0.0 ? margin : 0.0;
+    }
+
+    /**
+     * Set how many graphics objects the list must hold before culling uses a
+     * spatial index. Below half this number the index is dropped again.
+     *
+     * @param objects number of graphics objects. Default: 4096.
+     * @param cellSize cell size of the index, in pixels. Default: 128.
+     */
+    public void setSpatialIndex(int objects, double cellSize) {
+        if (cellSize != indexCellSize) {
+            dropIndex();
+        }
+        indexThreshold = objects < 1 ? 1 : objects;
+        indexCellSize = cellSize;
+    }
+
+    /**
+     * Check whether culling currently uses a spatial index.
+     */
+    public boolean isSpatialIndexActive() {
+        return index != null;
+    }
+
+    /**
+     * Get the number of drawables drawn since the last call to
+     * {@link #resetCounts()}. Application resets the counts every frame.
+     */
+    public int getDrawnCount() {
+        return drawnCount;
+    }
+
+    /**
+     * Get the number of drawables culled since the last call to
+     * {@link #resetCounts()}.
+     */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * Set the drawn and culled counts back to zero.
+     */
+    public void resetCounts() {
+        drawnCount = 0;
+        culledCount = 0;
+    }
+
+    /**
+     * Report changes to a DirtyRegions, for dirty rectangle rendering. All graphics
+     * objects in the list are tracked (see {@link DirtyRegions#track(GraphicsObject)}),
+     * and adding, removing or reordering them marks their area dirty. Adding or
+     * removing any other kind of drawable marks the whole screen dirty; if such a
+     * drawable changes by itself, mark its area by hand.
+     *
+     * @param regions where to report changes, or null to stop reporting
+     */
+    public void setDirtyRegions(DirtyRegions regions) {
+        if (dirty != null) {
+            dirty.untrackAll();
+        }
+        dirty = regions;
+        if (regions != null) {
+            for (Entry e : entries.values()) {
+                if (e.object != null) {
+                    regions.track(e.object, e.layer.screenSpace);
+                }
+            }
+            regions.markAll();
+        }
+    }
+
+    /**
+     * Get the DirtyRegions changes are reported to.
+     *
+     * @return the DirtyRegions, or null if changes are not reported
+     */
+    public DirtyRegions getDirtyRegions() {
+        return dirty;
+    }
+
+    /**
+     * Clear out removed drawables and sort layers that have changed. This happens
+     * automatically before drawing, so there is usually no need to call it.
+     */
+    public void compact() {
+        for (Layer l : layers) {
+            l.prepare();
+        }
+    }
+
+    /**
+     * Call a function for every drawable, in drawing order, including those in
+     * hidden layers.
+     *
+     * @param action function to call
+     */
+    public void forEach(Consumer<? super Drawable> action) {
+        for (Layer l : layers) {
+            l.prepare();
+            Entry[] list = l.entries;
+            for (int i = 0, n = l.count; i < n; ++i) {
+                if (!list[i].removed) {
+                    action.accept(list[i].drawable);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw all visible layers.
+     *
+     * @param g   a Graphics2D context
+     * @param obs an ImageObserver instance
+     */
+    public void draw(Graphics2D g, ImageObserver obs) {
+        drawLayers(g, obs, 1.0, false, ALL_LAYERS);
+    }
+
+    /**
+     * Draw all visible layers in fixed timestep mode.
+     *
+     * @param g     a Graphics2D context
+     * @param obs   an ImageObserver instance
+     * @param alpha blend value between the previous and the current step
+     */
+    public void draw(Graphics2D g, ImageObserver obs, double alpha) {
+        drawLayers(g, obs, alpha, true, ALL_LAYERS);
+    }
+
+    /**
+     * Draw either the world layers or the screen space layers (see
+     * {@link #setLayerScreenSpace(int, boolean)}). Used by Application to draw the
+     * world through the camera, and the screen space layers on top without it.
+     *
+     * @param g           a Graphics2D context
+     * @param obs         an ImageObserver instance
+     * @param alpha       blend value between the previous and the current fixed
+     *                    step; 1 when not in fixed timestep mode
+     * @param screenSpace true to draw the screen space layers, false to draw the
+     *                    others
+     */
+    public void draw(Graphics2D g, ImageObserver obs, double alpha, boolean screenSpace) {
+        drawLayers(g, obs, alpha, alpha != 1.0, screenSpace ? SCREEN_LAYERS : WORLD_LAYERS);
+    }
+
+    /**
+     * Mark a layer as being in screen space. Screen space layers, e.g. for score
+     * displays and menus, are not moved by the Application's camera; their
+     * drawables are positioned in screen pixels. When drawn by Application, they
+     * go on top of all other layers.
+     *
+     * @param layer       a layer number
+     * @param screenSpace true for screen space, false for world space (default)
+     */
+    public void setLayerScreenSpace(int layer, boolean screenSpace) {
+        Layer l = getOrCreateLayer(layer);
+        if (l.screenSpace == screenSpace) {
+            return;
+        }
+        l.screenSpace = screenSpace;
+        if (dirty != null) {
+            // Re-track the objects in the new space
+            for (int i = 0; i < l.count; ++i) {
+                Entry e = l.entries[i];
+                if (!e.removed && e.object != null) {
+                    dirty.untrack(e.object);
+                    dirty.track(e.object, screenSpace);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a layer is in screen space.
+     */
+    public boolean isLayerScreenSpace(int layer) {
+        Layer l = findLayer(layer);
+        return l != null && l.screenSpace;
+    }
+
+    private static boolean inPass(Layer l, int pass) {
+        return pass == ALL_LAYERS || l.screenSpace == (pass == SCREEN_LAYERS);
+    }
+
+    private void drawLayers(Graphics2D g, ImageObserver obs, double alpha, boolean blend, int pass) {
+        if (culling) {
+            updateIndex();
+        }
+        if (index != null) {
+            drawIndexed(g, obs, alpha, blend, pass);
+            return;
+        }
+
+        int drawn = 0;
+        int culled = 0;
+
+        for (Layer l : layers) {
+            if (!l.visible || !inPass(l, pass)) {
+                continue;
+            }
+            l.prepare();
+            Entry[] list = l.entries;
+            for (int i = 0, n = l.count; i < n; ++i) {
+                Entry e = list[i];
+                // Drawables may remove others while we draw
+                if (e.removed) {
+                    continue;
+                }
+                if (isCulled(e)) {
+                    ++culled;
+                    continue;
+                }
+                if (blend) {
+                    e.drawable.draw(g, obs, alpha);
+                } else {
+                    e.drawable.draw(g, obs);
+                }
+                ++drawn;
+            }
+        }
+
+        drawnCount += drawn;
+        culledCount += culled;
+    }
+
+    /**
+     * Draw using the spatial index: only the graphics objects the index finds
+     * inside the viewport, plus all drawables that aren't graphics objects, are
+     * looked at. They are put back into drawing order by sorting their positions
+     * in the layers.
+     */
+    private void drawIndexed(Graphics2D g, ImageObserver obs, double alpha, boolean blend, int pass) {
+        int total = 0;
+        int keys = 0;
+
+        // Collect the drawables that aren't in the index
+        for (int r = 0; r < layers.length; ++r) {
+            Layer l = layers[r];
+            l.rank = r;
+            if (!l.visible || !inPass(l, pass)) {
+                continue;
+            }
+            l.prepare();
+            total += l.count;
+            if (l.count == l.objects) {
+                continue;
+            }
+            Entry[] list = l.entries;
+            for (int i = 0, n = l.count; i < n; ++i) {
+                if (list[i].object == null) {
+                    keys = addDrawKey(keys, r, i);
+                }
+            }
+        }
+
+        // ...and the graphics objects that are near the viewport
+        queryResult.clear();
+        index.queryRect(viewX0 - cullMargin, viewY0 - cullMargin,
+                viewX1 + cullMargin, viewY1 + cullMargin, queryResult);
+        for (int i = 0, n = queryResult.size(); i < n; ++i) {
+            Entry e = entries.get(queryResult.get(i));
+            if (e != null && e.layer.visible && inPass(e.layer, pass)) {
+                keys = addDrawKey(keys, e.layer.rank, e.slot);
+            }
+        }
+
+        // Layer rank in the high bits, slot in the low bits: sorting the keys
+        // gives drawing order
+        Arrays.sort(drawKeys, 0, keys);
+
+        int drawn = 0;
+        for (int k = 0; k < keys; ++k) {
+            long key = drawKeys[k];
+            Entry e = layers[(int) (key >>> 32)].entries[(int) key];
+            if (e.removed || isCulled(e)) {
+                continue;
+            }
+            if (blend) {
+                e.drawable.draw(g, obs, alpha);
+            } else {
+                e.drawable.draw(g, obs);
+            }
+            ++drawn;
+        }
+
+        drawnCount += drawn;
+        culledCount += total - drawn;
+    }
+
+    private int addDrawKey(int keys, int rank, int slot) {
+        if (keys == drawKeys.length) {
+            drawKeys = Arrays.copyOf(drawKeys, keys * 2);
+        }
+        drawKeys[keys] = ((long) rank << 32) | slot;
+        return keys + 1;
+    }
+
+    /**
+     * Create or drop the spatial index depending on how many graphics objects the
+     * list holds.
+     */
+    private void updateIndex() {
+        if (index == null && objectCount >= indexThreshold) {
+            index = new SpatialHash(indexCellSize);
+            for (Entry e : entries.values()) {
+                if (e.object != null) {
+                    index.add(e.object);
+                }
+            }
+        } else if (index != null && objectCount < indexThreshold / 2) {
+            dropIndex();
+        }
+    }
+
+    private boolean isCulled(Entry e) {
+        Bounded b = e.bounded;
+        if (b == null) {
+            return false;
+        }
+        if (!b.isVisible()) {
+            return true;
+        }
+        if (!culling) {
+            return false;
+        }
+
+        double x0 = b.getX0();
+        double y0 = b.getY0();
+        double x1 = b.getX1();
+        double y1 = b.getY1();
+        if (x1 <= x0 || y1 <= y0) {
+            return false;
+        }
+        return x1 < viewX0 - cullMargin || x0 > viewX1 + cullMargin
+                || y1 < viewY0 - cullMargin || y0 > viewY1 + cullMargin;
+    }
+
+    private void markDirty(Entry e) {
+        if (dirty == null || e.removed) {
+            return;
+        }
+        if (e.object != null) {
+            dirty.touch(e.object);
+        } else {
+            dirty.markAll();
+        }
+    }
+
+    private void dropIndex() {
+        if (index != null) {
+            index.clear();
+            index = null;
+        }
+    }
+
+    private Layer findLayer(int number) {
+        for (Layer l : layers) {
+            if (l.number == number) {
+                return l;
+            }
+        }
+        return null;
+    }
+
+    private Layer getOrCreateLayer(int number) {
+        // Layers are few, so a linear search is plenty fast
+        int i = 0;
+        while (i < layers.length && layers[i].number < number) {
+            ++i;
+        }
+        if (i < layers.length && layers[i].number == number) {
+            return layers[i];
+        }
+        Layer l = new Layer(number);
+        Layer[] grown = new Layer[layers.length + 1];
+        System.arraycopy(layers, 0, grown, 0, i);
+        grown[i] = l;
+        System.arraycopy(layers, i, grown, i + 1, layers.length - i);
+        layers = grown;
+        return l;
+    }
+}
@@ -20,4 +20,19 @@ public interface Drawable {
      */
     public void draw(Graphics2D g, ImageObserver obs);
 
+    /**
+     * Draw graphics of this Drawable, blending movement between the previous and
+     * the current fixed simulation step. This is called instead of
+     * {@link #draw(Graphics2D, ImageObserver)} when the Application runs in fixed
+     * timestep mode. By default the blend value is ignored.
+     * 
+     * @param g     a Graphics2D context, passed in from the engine side.
+     * @param obs   an ImageObserver instance provided by the engine.
+     * @param alpha a value between 0 (draw at the previous step's state) and 1
+     *              (draw at the current step's state).
+     */
+    public default void draw(Graphics2D g, ImageObserver obs, double alpha) {
+        draw(g, obs);
+    }
+
 }
@@ -3,6 +3,7 @@ package engine.graphics;
 import java.awt.Graphics2D;
 import java.awt.image.ImageObserver;
 
+import engine.math.MutableVec2;
 import engine.math.Vec2;
 
 /**
@@ -11,13 +12,20 @@ import engine.math.Vec2;
  * positioning and visibility information, so that the user does not need to
  * replicate the standard boilerplate.
  */
-public abstract class GraphicsObject implements Drawable {
+public abstract class GraphicsObject implements Drawable, Bounded {
+
+    private static final GraphicsObjectListener[] NO_LISTENERS = new GraphicsObjectListener[0];
 
     private double pos_x = 0.0;
     private double pos_y = 0.0;
+    private double prev_x = 0.0;
+    private double prev_y = 0.0;
+    private boolean has_prev = false;
+    private double render_alpha = 1.0;
     private double size_x = 0.0;
     private double size_y = 0.0;
     private boolean visible = true;
+    private GraphicsObjectListener[] listeners = NO_LISTENERS;
 
     public GraphicsObject() {}
 
@@ -29,7 +37,10 @@ public abstract class GraphicsObject implements Drawable {
      * @param b a boolean value
      */
     public void setVisible(boolean b) {
-        visible = b;
+        if (visible != b) {
+            visible = b;
+            notifyChanged();
+        }
     }
 
     /**
@@ -53,6 +64,7 @@ public abstract class GraphicsObject implements Drawable {
     protected void setSize(double width, double height) {
         size_x = width;
         size_y = height;
+        notifyChanged();
     }
 
     /**
@@ -64,6 +76,17 @@ public abstract class GraphicsObject implements Drawable {
         return new Vec2(size_x, size_y);
     }
 
+    /**
+     * Store the size of this graphics object in an existing vector. Unlike
+     * {@link #getSize()}, this does not create a new object.
+     * 
+     * @param out a MutableVec2 object that receives width in x and height in y
+     * @return the out parameter
+     */
+    public MutableVec2 getSize(MutableVec2 out) {
+        return out.set(size_x, size_y);
+    }
+
     /**
      * Return the width of the graphics object
      */
@@ -80,10 +103,12 @@ public abstract class GraphicsObject implements Drawable {
 
     /**
      * Set the position of this graphics object.
-     * The position is in absolute screen coordinates;
-     * 0, 0 is at the top left corner of the screen.
-     * X grows toward the right and Y grows toward the
-     * bottom.
+     * The position is in world coordinates, which the
+     * camera (see engine.core.Camera) turns into screen
+     * coordinates; on a screen space layer of the display
+     * list, it is in screen coordinates, with 0, 0 at the
+     * top left corner of the screen. Either way, X grows
+     * toward the right and Y grows toward the bottom.
      * 
      * @param x a double value
      * @param y a double value
@@ -91,20 +116,24 @@ public abstract class GraphicsObject implements Drawable {
     public void setPosition(double x, double y) {
         pos_x = x;
         pos_y = y;
+        notifyChanged();
     }
 
     /**
      * Set the position of this graphics object using a vector.
-     * The position is in absolute screen coordinates;
-     * 0, 0 is at the top left corner of the screen.
-     * X grows toward the right and Y grows toward the
-     * bottom.
+     * The position is in world coordinates, which the
+     * camera (see engine.core.Camera) turns into screen
+     * coordinates; on a screen space layer of the display
+     * list, it is in screen coordinates, with 0, 0 at the
+     * top left corner of the screen. Either way, X grows
+     * toward the right and Y grows toward the bottom.
      * 
      * @param v a Vec2 object representing the object's new position
      */
     public void setPosition(final Vec2 p) {
         pos_x = p.x;
         pos_y = p.y;
+        notifyChanged();
     }
     
     /**
@@ -117,6 +146,26 @@ public abstract class GraphicsObject implements Drawable {
         return new Vec2(pos_x, pos_y);
     }
 
+    /**
+     * Store the position of this graphics object in an existing vector. Unlike
+     * {@link #getPosition()}, this does not create a new object.
+     * 
+     * @param out a MutableVec2 object that receives the position
+     * @return the out parameter
+     */
+    public MutableVec2 getPosition(MutableVec2 out) {
+        return out.set(pos_x, pos_y);
+    }
+
+    /**
+     * Set the position of this graphics object using a mutable vector.
+     * 
+     * @param p a MutableVec2 object representing the object's new position
+     */
+    public void setPosition(final MutableVec2 p) {
+        setPosition(p.x, p.y);
+    }
+
     /**
      * Change the position of this graphics object. The
      * parameters will be added to the current position values.
@@ -127,6 +176,7 @@ public abstract class GraphicsObject implements Drawable {
     public void move(double dx, double dy) {
         pos_x += dx;
         pos_y += dy;
+        notifyChanged();
     }
 
     /**
@@ -138,6 +188,16 @@ public abstract class GraphicsObject implements Drawable {
     public void move(final Vec2 d) {
         pos_x += d.x;
         pos_y += d.y;
+        notifyChanged();
+    }
+
+    /**
+     * Change the position of this graphics object using a mutable vector.
+     * 
+     * @param d a MutableVec2 representing change in the X and Y direction
+     */
+    public void move(final MutableVec2 d) {
+        move(d.x, d.y);
     }
 
     /**
@@ -154,7 +214,128 @@ public abstract class GraphicsObject implements Drawable {
         return pos_y;
     }
 
+    /**
+     * Get the left edge coordinate of the bounding box of this graphics object.
+     * By default the bounding box starts at the object's position and extends
+     * by its size.
+     */
+    public double getX0() {
+        return pos_x;
+    }
+
+    /**
+     * Get the top edge coordinate of the bounding box of this graphics object
+     */
+    public double getY0() {
+        return pos_y;
+    }
+
+    /**
+     * Get the right edge coordinate of the bounding box of this graphics object
+     */
+    public double getX1() {
+        return getX0() + size_x;
+    }
+
+    /**
+     * Get the bottom edge coordinate of the bounding box of this graphics object
+     */
+    public double getY1() {
+        return getY0() + size_y;
+    }
+
+    /**
+     * Add a listener that gets told whenever this graphics object moves or
+     * changes shape.
+     * 
+     * @param l a GraphicsObjectListener
+     */
+    public void addListener(GraphicsObjectListener l) {
+        GraphicsObjectListener[] n = new GraphicsObjectListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, n, 0, listeners.length);
+        n[listeners.length] = l;
+        listeners = n;
+    }
+
+    /**
+     * Remove a previously added listener.
+     * 
+     * @param l a GraphicsObjectListener
+     */
+    public void removeListener(GraphicsObjectListener l) {
+        for (int i = 0; i < listeners.length; ++i) {
+            if (listeners[i] == l) {
+                GraphicsObjectListener[] n = new GraphicsObjectListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, n, 0, i);
+                System.arraycopy(listeners, i + 1, n, i, n.length - i);
+                listeners = n;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tell all listeners that this graphics object has changed. Subclasses
+     * should call this when something that affects the bounding box or the
+     * look of the object changes.
+     */
+    protected void notifyChanged() {
+        // Plain array loop; this runs on every move, so don't allocate
+        GraphicsObjectListener[] l = listeners;
+        for (int i = 0; i < l.length; ++i) {
+            l[i].graphicsObjectChanged(this);
+        }
+    }
+
+    /**
+     * Remember the current position as the previous position. In fixed timestep
+     * mode the Application calls this before every step, and drawing blends
+     * between the previous and the current position.
+     * 
+     * Call this yourself right after moving an object somewhere far away
+     * (e.g. respawning it) to make it jump there instead of sliding there.
+     */
+    public void storePreviousPosition() {
+        prev_x = pos_x;
+        prev_y = pos_y;
+        has_prev = true;
+    }
+
+    /**
+     * Return the X position this graphics object should be drawn at. This is
+     * the same as {@link #getX()}, except while drawing in fixed timestep mode,
+     * where it is blended between the previous and the current position. An
+     * object that has no previous position yet (it was created since the last
+     * step) is drawn where it is.
+     */
+    public double getDrawX() {
+        if (render_alpha == 1.0 || !has_prev) {
+            return pos_x;
+        }
+        return prev_x + (pos_x - prev_x) * render_alpha;
+    }
+
+    /**
+     * Return the Y position this graphics object should be drawn at. See
+     * {@link #getDrawX()}.
+     */
+    public double getDrawY() {
+        if (render_alpha == 1.0 || !has_prev) {
+            return pos_y;
+        }
+        return prev_y + (pos_y - prev_y) * render_alpha;
+    }
+
     @Override
     public abstract void draw(Graphics2D g, ImageObserver obs);
 
+    @Override
+    public void draw(Graphics2D g, ImageObserver obs, double alpha) {
+        // Subclasses draw at getDrawX()/getDrawY(), which pick up the
+        // blend value for the duration of this call
+        render_alpha = alpha;
+        draw(g, obs);
+        render_alpha = 1.0;
+    }
+
 }
@@ -0,0 +1,18 @@
+package engine.graphics;
+
+/**
+ * Interface for objects that want to know when a GraphicsObject changes, e.g.
+ * a collision broadphase that needs to know when an object has moved.
+ */
+public interface GraphicsObjectListener {
+
+    /**
+     * Called after the position, size, shape or look (visibility, image, text,
+     * color) of a graphics object has changed.
+     * This can be called many times per frame, so keep it cheap.
+     * 
+     * @param o the graphics object that changed
+     */
+    public void graphicsObjectChanged(GraphicsObject o);
+
+}
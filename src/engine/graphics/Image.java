@@ -1,7 +1,16 @@
 package engine.graphics;
 
 import java.io.File;
+import java.io.IOException;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.awt.image.VolatileImage;
 
 import javax.imageio.ImageIO;
 
@@ -11,9 +20,154 @@ import javax.imageio.ImageIO;
  * 
  * You are supposed to load your Images once and share
  * them to the objects that need them, e.g. Sprites.
+ * 
+ * An Image can also be a region of a larger image, e.g. one
+ * frame on a sprite sheet; see {@link #getRegion(int, int, int, int)}
+ * and {@link TextureAtlas}. Regions share the pixel data of the
+ * image they were cut from.
+ * 
+ * Images loaded from disk are converted into the pixel format
+ * the screen uses, so Java can draw them using its fastest
+ * routines, and are classified by how they use transparency
+ * (see {@link #getTransparency()}).
  */
 public class Image {
+
+    /**
+     * Convert a BufferedImage into the pixel format that can be drawn fastest to
+     * the screen. Java's own image loader often returns formats that Java's
+     * graphics pipeline can only draw with slow, generic routines.
+     * 
+     * @param src a BufferedImage object
+     * @return a compatible copy of src, or src itself if it is already in a
+     *         compatible format
+     */
+    public static BufferedImage toCompatible(BufferedImage src) {
+        return toCompatible(src, classify(src));
+    }
+
+    /**
+     * Convert a BufferedImage whose transparency is already known.
+     */
+    private static BufferedImage toCompatible(BufferedImage src, int transparency) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+
+        GraphicsConfiguration gc = getDefaultConfiguration();
+        if (gc != null) {
+            if (src.getColorModel().equals(gc.getColorModel(transparency))) {
+                return src;
+            }
+        } else if (src.getType() == headlessType(transparency)) {
+            return src;
+        }
+        BufferedImage dst = createCompatible(w, h, transparency);
+
+        Graphics2D g = dst.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        return dst;
+    }
+
+    /**
+     * Create an empty image in the format that is fastest to draw to the screen.
+     * 
+     * @param w            width in pixels
+     * @param h            height in pixels
+     * @param transparency {@code Transparency.OPAQUE}, {@code Transparency.BITMASK}
+     *                     or {@code Transparency.TRANSLUCENT}
+     * @return a new BufferedImage; transparent images start out fully transparent
+     */
+    public static BufferedImage createCompatible(int w, int h, int transparency) {
+        GraphicsConfiguration gc = getDefaultConfiguration();
+        if (gc != null) {
+            return gc.createCompatibleImage(w, h, transparency);
+        }
+        return new BufferedImage(w, h, headlessType(transparency));
+    }
+
+    /**
+     * No screen to be compatible with; use the int formats that Java2D has the
+     * fastest software routines for.
+     */
+    private static int headlessType(int transparency) {
+        return transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB
+                : BufferedImage.TYPE_INT_ARGB;
+    }
+
+    /**
+     * Find out how an image uses transparency by looking at the alpha value of
+     * every pixel.
+     * 
+     * @param img a BufferedImage object
+     * @return {@code Transparency.OPAQUE} if all pixels are fully opaque,
+     *         {@code Transparency.BITMASK} if all pixels are either fully opaque
+     *         or fully transparent, or {@code Transparency.TRANSLUCENT} otherwise
+     */
+    public static int classify(BufferedImage img) {
+        if (!img.getColorModel().hasAlpha()) {
+            return Transparency.OPAQUE;
+        }
+
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int[] row = new int[w];
+        boolean transparent = false;
+
+        for (int y = 0; y < h; ++y) {
+            img.getRGB(0, y, w, 1, row, 0, w);
+            for (int x = 0; x < w; ++x) {
+                int a = row[x] >>> 24;
+                if (a == 0) {
+                    transparent = true;
+                } else if (a != 255) {
+                    // Partial transparency anywhere settles it
+                    return Transparency.TRANSLUCENT;
+                }
+            }
+        }
+        return transparent ? Transparency.BITMASK : Transparency.OPAQUE;
+    }
+
+    /**
+     * Load an image from disk. Unlike the {@link #Image(String)} constructor,
+     * this reports failure with an exception instead of exiting the program.
+     * 
+     * @param file path to the image file
+     * @return a new Image object
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public static Image load(String file) throws IOException {
+        BufferedImage raw = ImageIO.read(new File(file));
+        if (raw == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        int transparency = classify(raw);
+        return new Image(toCompatible(raw, transparency), transparency);
+    }
+
+    /**
+     * Get the configuration of the main screen, or null when running headless.
+     */
+    private static GraphicsConfiguration getDefaultConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration();
+    }
+
     private BufferedImage data;
+    private Image root = this;
+    private int transparency;
+    private boolean accelerated = false;
+    private VolatileImage vram = null;
+    private int src_x = 0;
+    private int src_y = 0;
+    private int width;
+    private int height;
+    private boolean region = false;
 
     /**
      * Create a new Image. This function will not return
@@ -27,17 +181,78 @@ public class Image {
      */
     public Image(String file) {
         try {
-            data = ImageIO.read(new File(file));
+            Image img = load(file);
+            data = img.data;
+            transparency = img.transparency;
         } catch (Exception e) {
             System.err.println("Error reading image " + file);
             System.err.println(e.getMessage());
             System.exit(1);
         }
+        width = data.getWidth();
+        height = data.getHeight();
+    }
+
+    /**
+     * Create a new Image wrapping an existing BufferedImage. The BufferedImage is
+     * used as is; pass it through {@link #toCompatible(BufferedImage)} first
+     * for the fastest drawing.
+     * 
+     * @param data a BufferedImage object
+     */
+    public Image(BufferedImage data) {
+        this.data = data;
+        width = data.getWidth();
+        height = data.getHeight();
+        transparency = classify(data);
+    }
+
+    /**
+     * Create a new Image whose transparency is already known.
+     */
+    private Image(BufferedImage data, int transparency) {
+        this.data = data;
+        this.transparency = transparency;
+        width = data.getWidth();
+        height = data.getHeight();
+    }
+
+    /**
+     * Create a region of another image.
+     */
+    private Image(Image parent, int x, int y, int w, int h) {
+        data = parent.data;
+        root = parent.root;
+        transparency = parent.transparency;
+        src_x = parent.src_x + x;
+        src_y = parent.src_y + y;
+        width = w;
+        height = h;
+        region = true;
+    }
+
+    /**
+     * Get a rectangular part of this image as an Image of its own. No pixels are
+     * copied; the region draws straight from this image's data.
+     * 
+     * @param x left edge of the region, relative to this image
+     * @param y top edge of the region, relative to this image
+     * @param w width of the region
+     * @param h height of the region
+     * @return a new Image object
+     */
+    public Image getRegion(int x, int y, int w, int h) {
+        if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > width || y + h > height) {
+            throw new IllegalArgumentException("Region " + x + "," + y + " " + w + "x" + h
+                    + " is outside of the image (" + width + "x" + height + ")");
+        }
+        return new Image(this, x, y, w, h);
     }
 
     /**
      * Gain direct access to the BufferedImage object
-     * that this Image wraps.
+     * that this Image wraps. For a region, this is the
+     * whole image the region was cut from.
      *  
      * @return a BufferedImage object
      */
@@ -45,17 +260,146 @@ public class Image {
         return data;
     }
 
+    /**
+     * Return true if this Image is a region of a larger image.
+     */
+    public boolean isRegion() {
+        return region;
+    }
+
+    /**
+     * Get the left edge of this image within {@link #getData()}, in pixels.
+     * Always 0 unless this image is a region.
+     */
+    public int getSourceX() {
+        return src_x;
+    }
+
+    /**
+     * Get the top edge of this image within {@link #getData()}, in pixels.
+     * Always 0 unless this image is a region.
+     */
+    public int getSourceY() {
+        return src_y;
+    }
+
+    /**
+     * Get how this image uses transparency. For regions, this is the
+     * transparency of the whole image they were cut from.
+     * 
+     * @return {@code java.awt.Transparency.OPAQUE}, {@code BITMASK} or
+     *         {@code TRANSLUCENT}
+     */
+    public int getTransparency() {
+        return transparency;
+    }
+
+    /**
+     * Keep a copy of this image in video memory (a VolatileImage), for hardware
+     * accelerated drawing. Java usually does this by itself for images in a
+     * compatible format, but not on every platform or for every image.
+     * 
+     * Video memory can be lost at any time (e.g. when the screen mode changes);
+     * the copy is restored automatically when that happens. Setting this on a
+     * region affects the whole image the region was cut from. Has no effect when
+     * drawing offscreen.
+     * 
+     * @param b true to keep a video memory copy, false to drop it (the default)
+     */
+    public void setAccelerated(boolean b) {
+        root.accelerated = b;
+        if (!b && root.vram != null) {
+            root.vram.flush();
+            root.vram = null;
+        }
+    }
+
+    /**
+     * Return true if a video memory copy of this image is kept.
+     */
+    public boolean isAccelerated() {
+        return root.accelerated;
+    }
+
+    /**
+     * Get the fastest image to copy pixels from when drawing through g. This
+     * is the video memory copy if there is one and it could be kept valid, or
+     * the BufferedImage otherwise.
+     */
+    private java.awt.Image getBlitSource(Graphics2D g) {
+        if (!accelerated) {
+            return data;
+        }
+
+        GraphicsConfiguration gc = g.getDeviceConfiguration();
+        if (gc.getDevice().getType() != GraphicsDevice.TYPE_RASTER_SCREEN) {
+            // Drawing into an image; video memory doesn't help here
+            return data;
+        }
+
+        if (vram == null) {
+            vram = gc.createCompatibleVolatileImage(data.getWidth(), data.getHeight(), transparency);
+            restore();
+        }
+
+        switch (vram.validate(gc)) {
+        case VolatileImage.IMAGE_INCOMPATIBLE:
+            // Screen changed under us; start over with a new copy
+            vram.flush();
+            vram = gc.createCompatibleVolatileImage(data.getWidth(), data.getHeight(), transparency);
+            restore();
+            break;
+        case VolatileImage.IMAGE_RESTORED:
+            // Contents were lost, but the surface is back
+            restore();
+            break;
+        default:
+            break;
+        }
+
+        return vram.contentsLost() ? data : vram;
+    }
+
+    /**
+     * Copy the pixels into the video memory copy.
+     */
+    private void restore() {
+        Graphics2D g = vram.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(data, 0, 0, null);
+        g.dispose();
+    }
+
     /**
      * Get the width of this image, in pixels
      */
     public int getWidth() {
-        return data.getWidth();
+        return width;
     }
 
     /**
      * Get the height of this image, in pixels
      */
     public int getHeight() {
-        return data.getHeight();
+        return height;
+    }
+
+    /**
+     * Draw this image with its top left corner at the given position.
+     * 
+     * @param g   a Graphics2D context
+     * @param x   X coordinate of the top left corner
+     * @param y   Y coordinate of the top left corner
+     * @param obs an ImageObserver, as passed to Drawable.draw
+     */
+    public void draw(Graphics2D g, int x, int y, ImageObserver obs) {
+        java.awt.Image src = root.getBlitSource(g);
+        if (region) {
+            // Source rectangle overload; only the region's pixels are copied
+            g.drawImage(src, x, y, x + width, y + height,
+                    src_x, src_y, src_x + width, src_y + height, obs);
+        } else {
+            g.drawImage(src, x, y, obs);
+        }
     }
 }
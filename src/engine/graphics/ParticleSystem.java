@@ -0,0 +1,318 @@
+package engine.graphics;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.ImageObserver;
+
+/**
+ * A group of many small, short-lived particles - sparks, smoke, debris and
+ * such - drawn as a single Drawable.
+ * 
+ * Using one Sprite per particle works for a handful of them, but becomes slow
+ * with thousands. A ParticleSystem instead keeps the data of all of its
+ * particles in plain arrays (one array for all X positions, one for all
+ * Y positions, and so on), updates them all in one go, and does not create any
+ * objects while running.
+ * 
+ * Particles are drawn either as small squares of their color, or, if frames
+ * have been set with {@link #setFrames(Image...)}, as the image at their frame
+ * index centered on their position.
+ * 
+ * Call {@link #update(double)} once per frame from your own update function, and
+ * add the system to the Application with addDrawable to have it drawn.
+ */
+public class ParticleSystem implements Drawable {
+
+    private final int capacity;
+    private int count = 0;
+
+    private final double[] px;
+    private final double[] py;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] life;
+    private final int[] color;
+    private final int[] frame;
+
+    private double gravity_x = 0.0;
+    private double gravity_y = 0.0;
+    private double drag = 0.0;
+    private int particleSize = 2;
+    private boolean visible = true;
+
+    private Image[] frames = null;
+
+    // Tiny ARGB -> Color cache, so drawing doesn't allocate a Color per particle
+    private final int[] colorKeys = new int[64];
+    private final Color[] colorValues = new Color[64];
+
+    /**
+     * Create a new ParticleSystem.
+     * 
+     * @param capacity the maximum number of live particles
+     */
+    public ParticleSystem(int capacity) {
+        this.capacity = capacity;
+        px = new double[capacity];
+        py = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        life = new double[capacity];
+        color = new int[capacity];
+        frame = new int[capacity];
+    }
+
+    /**
+     * Spawn a new particle.
+     * 
+     * @param x     X position
+     * @param y     Y position
+     * @param vx    X velocity in pixels per second
+     * @param vy    Y velocity in pixels per second
+     * @param life  how long the particle lives, in seconds
+     * @param argb  the particle's color as a 0xAARRGGBB value
+     * @param frame index of the image to draw for this particle, if frames are
+     *              set
+     * @return the particle's index, or -1 if the system is full
+     */
+    public int spawn(double x, double y, double vx, double vy, double life, int argb, int frame) {
+        if (count == capacity) {
+            return -1;
+        }
+        int i = count++;
+        this.px[i] = x;
+        this.py[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.life[i] = life;
+        this.color[i] = argb;
+        this.frame[i] = frame;
+        return i;
+    }
+
+    /**
+     * Kill a particle. The last particle is moved into its place, so particle
+     * indices are not stable across kills.
+     * 
+     * @param i particle index
+     */
+    public void kill(int i) {
+        int last = --count;
+        px[i] = px[last];
+        py[i] = py[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        life[i] = life[last];
+        color[i] = color[last];
+        frame[i] = frame[last];
+    }
+
+    /**
+     * Kill all particles.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Move all particles and kill the ones that have run out of life.
+     * 
+     * @param delta number of seconds since the last update
+     */
+    public void update(double delta) {
+        double gx = gravity_x * delta;
+        double gy = gravity_y * delta;
+        double damp = drag > 0.0 ? Math.max(0.0, 1.0 - drag * delta) : 1.0;
+
+        int i = 0;
+        while (i < count) {
+            double l = life[i] - delta;
+            if (l <= 0.0) {
+                // The last particle moves into this slot; look at it next
+                kill(i);
+                continue;
+            }
+            life[i] = l;
+
+            double nvx = (vx[i] + gx) * damp;
+            double nvy = (vy[i] + gy) * damp;
+            vx[i] = nvx;
+            vy[i] = nvy;
+            px[i] += nvx * delta;
+            py[i] += nvy * delta;
+            ++i;
+        }
+    }
+
+    /**
+     * Set the acceleration applied to all particles, e.g. {@code (0, 200)} to
+     * make them fall.
+     * 
+     * @param x X acceleration in pixels per second squared
+     * @param y Y acceleration in pixels per second squared
+     */
+    public void setGravity(double x, double y) {
+        gravity_x = x;
+        gravity_y = y;
+    }
+
+    /**
+     * Set how fast particles slow down by themselves.
+     * 
+     * @param d fraction of velocity lost per second, 0 for none (the default)
+     */
+    public void setDrag(double d) {
+        drag = d;
+    }
+
+    /**
+     * Set the width and height of the squares drawn for particles when no
+     * frames are set.
+     * 
+     * @param size size in pixels. Default: 2.
+     */
+    public void setParticleSize(int size) {
+        particleSize = size;
+    }
+
+    /**
+     * Set the images particles are drawn with. A particle with frame index n is
+     * drawn with the n:th image. Pass nothing to draw particles as squares.
+     * 
+     * @param images Image objects
+     */
+    public void setFrames(Image... images) {
+        frames = images.length > 0 ? images : null;
+    }
+
+    /**
+     * Make this particle system visible or invisible.
+     * 
+     * @param b a boolean value
+     */
+    public void setVisible(boolean b) {
+        visible = b;
+    }
+
+    /**
+     * Return true if this particle system is visible.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Get the number of live particles.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the maximum number of live particles.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the X position of a particle.
+     */
+    public double getX(int i) {
+        return px[i];
+    }
+
+    /**
+     * Get the Y position of a particle.
+     */
+    public double getY(int i) {
+        return py[i];
+    }
+
+    /**
+     * Get the remaining life of a particle, in seconds.
+     */
+    public double getLife(int i) {
+        return life[i];
+    }
+
+    /**
+     * Set the velocity of a particle.
+     */
+    public void setVelocity(int i, double x, double y) {
+        vx[i] = x;
+        vy[i] = y;
+    }
+
+    /**
+     * Set the frame index of a particle.
+     */
+    public void setFrame(int i, int f) {
+        frame[i] = f;
+    }
+
+    /**
+     * Set the color of a particle as a 0xAARRGGBB value.
+     */
+    public void setColor(int i, int argb) {
+        color[i] = argb;
+    }
+
+    @Override
+    public void draw(Graphics2D g, ImageObserver obs) {
+        if (!visible || count == 0) {
+            return;
+        }
+
+        if (frames != null) {
+            drawFrames(g, obs);
+        } else {
+            drawSquares(g);
+        }
+    }
+
+    private void drawFrames(Graphics2D g, ImageObserver obs) {
+        Image[] f = frames;
+        for (int i = 0; i < count; ++i) {
+            Image img = f[frame[i]];
+            int x = (int) (px[i] - img.getWidth() * 0.5 + 0.5);
+            int y = (int) (py[i] - img.getHeight() * 0.5 + 0.5);
+            img.draw(g, x, y, obs);
+        }
+    }
+
+    private void drawSquares(Graphics2D g) {
+        int size = particleSize;
+        double half = size * 0.5;
+
+        // Only switch colors when the color actually changes; particles
+        // spawned together usually share one.
+        int current = color[0];
+        g.setColor(lookupColor(current));
+
+        for (int i = 0; i < count; ++i) {
+            int c = color[i];
+            if (c != current) {
+                current = c;
+                g.setColor(lookupColor(c));
+            }
+            g.fillRect((int) (px[i] - half + 0.5), (int) (py[i] - half + 0.5), size, size);
+        }
+    }
+
+    /**
+     * Find the Color object for an ARGB value, creating it only the first time
+     * the value is seen (or when it gets pushed out of the small cache).
+     */
+    private Color lookupColor(int argb) {
+        int slot = (argb ^ (argb >>> 16) ^ (argb >>> 7)) & (colorKeys.length - 1);
+        Color c = colorValues[slot];
+        if (c == null || colorKeys[slot] != argb) {
+            c = new Color(argb, true);
+            colorKeys[slot] = argb;
+            colorValues[slot] = c;
+        }
+        return c;
+    }
+
+}
@@ -1,19 +1,20 @@
 package engine.graphics;
 
 import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 
+import engine.math.MutableVec2;
 import engine.math.Vec2;
 
 /**
  * A Sprite is an image on screen. It takes a source
  * image, and draws it in some position.  
+ * The image may also be a region of a sprite sheet,
+ * see {@link TextureAtlas}.
  */
 public class Sprite extends GraphicsObject {
 
     private Image image;
-    private BufferedImage source;
     private double offset_x = 0;
     private double offset_y = 0;
 
@@ -35,7 +36,6 @@ public class Sprite extends GraphicsObject {
      */
     public void setImage(Image src) {
         image = src;
-        source = src.getData();
         setSize(src.getWidth(), src.getHeight());
     }
     
@@ -66,6 +66,7 @@ public class Sprite extends GraphicsObject {
     public void setOffset(double x, double y) {
         offset_x = x;
         offset_y = y;
+        notifyChanged();
     }
     
     /**
@@ -77,6 +78,16 @@ public class Sprite extends GraphicsObject {
         return new Vec2(offset_x, offset_y);
     }
 
+    /**
+     * Store the current sprite offset in an existing vector.
+     * 
+     * @param out a MutableVec2 object that receives the offset
+     * @return the out parameter
+     */
+    public MutableVec2 getOffset(MutableVec2 out) {
+        return out.set(offset_x, offset_y);
+    }
+
     /**
      * Get the current sprite X offset. See the {@link #setOffset(double, double)}
      * function for an explanation.
@@ -96,6 +107,7 @@ public class Sprite extends GraphicsObject {
     /**
      * Get the left edge coordinate of the bounding box of this Sprite
      */
+    @Override
     public double getX0() {
         return getX() - offset_x;
     }
@@ -103,6 +115,7 @@ public class Sprite extends GraphicsObject {
     /**
      * Get the to edge coordinate of the bounding box of this Sprite
      */
+    @Override
     public double getY0() {
         return getY() - offset_y;
     }
@@ -110,6 +123,7 @@ public class Sprite extends GraphicsObject {
     /**
      * Get the right edge coordinate of the bounding box of this Sprite
      */
+    @Override
     public double getX1() {
         return getX0() + getWidth();
     }
@@ -117,6 +131,7 @@ public class Sprite extends GraphicsObject {
     /**
      * Get the bottom edge coordinate of the bounding edge of this Sprite
      */
+    @Override
     public double getY1() {
         return getY0() + getHeight();
     }
@@ -133,10 +148,10 @@ public class Sprite extends GraphicsObject {
         // We use the offset variables to shift the image such that the
         // sprite's coordinate matches up with the offset position in
         // the image (by default the center of the image).
-        int x = (int) ((getX() - offset_x) + 0.5);
-        int y = (int) ((getY() - offset_y) + 0.5);
+        int x = (int) ((getDrawX() - offset_x) + 0.5);
+        int y = (int) ((getDrawY() - offset_y) + 0.5);
 
-        g.drawImage(source, x, y, obs);
+        image.draw(g, x, y, obs);
     }
 
 }
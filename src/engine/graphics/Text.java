@@ -2,9 +2,11 @@ package engine.graphics;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.FontFormatException;
 import java.awt.Graphics2D;
 import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.io.File;
 import java.io.IOException;
@@ -14,7 +16,13 @@ import java.io.IOException;
  * Useful for things like score counters, short messages, etc.
  * Uses java.awt.Font and TrueType fonts for actual rendering;
  * see the {@link #loadFont(String)} and {@link #createFont(String, int, int)}
- * methods below. 
+ * methods below. For text that changes every frame, draw with a
+ * {@link BitmapFont} instead, and set numbers with {@link #setText(int)},
+ * which does not allocate memory.
+ * 
+ * The size of a Text is the size of its current text, and its bounding box
+ * reaches from the top of the tallest letters to the bottom of the lowest;
+ * the Y position is where the baseline goes.
  */
 public class Text extends GraphicsObject {
 
@@ -23,9 +31,8 @@ public class Text extends GraphicsObject {
      * will exit with an error message. 
      */
     public static void loadFont(String file) {
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
         try {
-            ge.registerFont(Font.createFont(Font.TRUETYPE_FONT, new File(file)));
+            readFont(file);
         } catch (FontFormatException | IOException e) {
             System.err.println("Failed to load font " + file);
             System.err.println(e.getMessage());
@@ -33,6 +40,23 @@ public class Text extends GraphicsObject {
         }
     }
 
+    /**
+     * Load a TrueType font from disk and make it available to the system. Unlike
+     * {@link #loadFont(String)}, this reports failure with an exception instead
+     * of exiting the program.
+     * 
+     * @param file path to the font file
+     * @return the loaded Font, at a size of 1 point; see
+     *         {@link Font#deriveFont(float)}
+     * @throws FontFormatException if the file is not a TrueType font
+     * @throws IOException         if the file cannot be read
+     */
+    public static Font readFont(String file) throws FontFormatException, IOException {
+        Font font = Font.createFont(Font.TRUETYPE_FONT, new File(file));
+        GraphicsEnvironment.getLocalGraphicsEnvironment().registerFont(font);
+        return font;
+    }
+
     /**
      * Create a new Java Font object. The Font needs to be available to
      * the system (i.e. previously loaded) in order for this to work.
@@ -52,11 +76,20 @@ public class Text extends GraphicsObject {
         return new Font(family, style, size);
     }
 
-    private Font font;
+    // Shared context for measuring text drawn with java.awt.Fonts
+    private static Graphics2D measureContext = null;
+
+    private final Font font;
+    private final BitmapFont bitmapFont;
+    private FontMetrics metrics = null;
+    private BufferedImage glyphSheet = null;
     private Color color;
-    private char[] data = null;
+    private char[] data = new char[16];
     private int length = 0;
 
+    // Scratch space for formatting numbers
+    private final char[] digits = new char[20];
+
     /**
      * Create a new Text object, for displaying a string of text on screen.
      * This requires one java.awt.Font object as parameter, as that will be
@@ -66,7 +99,21 @@ public class Text extends GraphicsObject {
      */
     public Text(Font font) {
         this.font = font;
+        this.bitmapFont = null;
+        color = Color.WHITE;
+    }
+
+    /**
+     * Create a new Text object that draws with a bitmap font. This is the fast
+     * choice for text that changes often, like score counters and timers.
+     * 
+     * @param font a BitmapFont, see {@link BitmapFont#create(Font)}
+     */
+    public Text(BitmapFont font) {
+        this.font = null;
+        this.bitmapFont = font;
         color = Color.WHITE;
+        glyphSheet = font.getSheet(color);
     }
 
     /**
@@ -76,19 +123,155 @@ public class Text extends GraphicsObject {
      * @param text
      */
     public void setText(String text) {
-        if (text == null || text.isEmpty()) {
-            data = null;
+        setText((CharSequence) text);
+    }
+
+    /**
+     * Set the text to display. The characters are copied into a buffer the Text
+     * keeps, so this does not allocate memory (unless the text is longer than
+     * any before it), and setting the same text again does nothing at all. Any
+     * CharSequence works, e.g. a StringBuilder that is reused every frame.
+     * 
+     * @param text the text to display, or null for no text
+     */
+    public void setText(CharSequence text) {
+        int n = text == null ? 0 : text.length();
+
+        if (n == length) {
+            int i = 0;
+            while (i < n && data[i] == text.charAt(i)) {
+                ++i;
+            }
+            if (i == n) {
+                return; // nothing changed
+            }
+        }
+
+        if (n > data.length) {
+            data = new char[Math.max(n, data.length * 2)];
+        }
+        if (text instanceof String) {
+            ((String) text).getChars(0, n, data, 0);
+        } else {
+            for (int i = 0; i < n; ++i) {
+                data[i] = text.charAt(i);
+            }
+        }
+        length = n;
+        updateSize();
+    }
+
+    /**
+     * Set the text to display to a number, without allocating memory. Use this for
+     * score counters and the like that change every frame.
+     * 
+     * @param value the number to display
+     */
+    public void setText(int value) {
+        setText((long) value);
+    }
+
+    /**
+     * Set the text to display to a number, without allocating memory.
+     * 
+     * @param value the number to display
+     */
+    public void setText(long value) {
+        // Write the digits backwards from the end of the scratch buffer. Working
+        // with negative numbers avoids overflow for Long.MIN_VALUE.
+        boolean negative = value < 0;
+        long v = negative ? value : -value;
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' - (v % 10));
+            v /= 10;
+        } while (v != 0);
+        if (negative) {
+            digits[--start] = '-';
+        }
+        setChars(digits, start, digits.length - start);
+    }
+
+    /**
+     * Get the number of characters in the current text.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get a character of the current text.
+     * 
+     * @param index a number between 0 and getLength() - 1
+     */
+    public char getChar(int index) {
+        return data[index];
+    }
+
+    /**
+     * Copy characters into the text buffer, if they differ from what is there.
+     */
+    private void setChars(char[] src, int offset, int n) {
+        if (n == length) {
+            int i = 0;
+            while (i < n && data[i] == src[offset + i]) {
+                ++i;
+            }
+            if (i == n) {
+                return;
+            }
+        }
+        if (n > data.length) {
+            data = new char[Math.max(n, data.length * 2)];
+        }
+        System.arraycopy(src, offset, data, 0, n);
+        length = n;
+        updateSize();
+    }
+
+    /**
+     * Work out the size of the text as it will be drawn, and tell listeners
+     * that the text changed.
+     */
+    private void updateSize() {
+        if (length == 0) {
+            setSize(0, 0);
             return;
         }
+        if (bitmapFont != null) {
+            setSize(bitmapFont.measure(data, 0, length), bitmapFont.getAscent() + bitmapFont.getDescent());
+        } else {
+            FontMetrics fm = getMetrics();
+            setSize(fm.charsWidth(data, 0, length), fm.getAscent() + fm.getDescent());
+        }
+    }
 
-        length = text.length();
-        data = text.toCharArray();
+    private FontMetrics getMetrics() {
+        if (metrics == null) {
+            if (measureContext == null) {
+                measureContext = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+            }
+            metrics = measureContext.getFontMetrics(font);
+        }
+        return metrics;
+    }
 
-        // Set width and height to 0 so that they can be updated
-        // when the text is drawn
-        setSize(0, 0);
+    /**
+     * Get the distance from the baseline to the top of the text.
+     */
+    private int getAscent() {
+        return bitmapFont != null ? bitmapFont.getAscent() : getMetrics().getAscent();
     }
-    
+
+    /**
+     * Get the top edge coordinate of the bounding box of this Text. Text is drawn
+     * with its baseline at the Y position, so the box starts above that.
+     */
+    @Override
+    public double getY0() {
+        return getY() - getAscent();
+    }
+
     /**
      * Set the color to use for drawing the text.
      * The parameter takes in a java.awt.Color object;
@@ -100,6 +283,10 @@ public class Text extends GraphicsObject {
     public void setColor(Color color) {
         assert(color != null);
         this.color = color;
+        if (bitmapFont != null) {
+            glyphSheet = bitmapFont.getSheet(color);
+        }
+        notifyChanged();
     }
     
     /**
@@ -121,10 +308,18 @@ public class Text extends GraphicsObject {
             return;
         }
 
-        if (data != null) {
+        if (length == 0) {
+            return;
+        }
+
+        int x = (int) (getDrawX() + 0.5);
+        int y = (int) (getDrawY() + 0.5);
+        if (bitmapFont != null) {
+            bitmapFont.draw(g, glyphSheet, data, 0, length, x, y);
+        } else {
             g.setFont(font);
             g.setColor(color);
-            g.drawChars(data, 0, length, (int) (getX() + 0.5), (int) (getY() + 0.5));
+            g.drawChars(data, 0, length, x, y);
         }
     }
 }
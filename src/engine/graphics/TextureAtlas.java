@@ -0,0 +1,216 @@
+package engine.graphics;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A texture atlas (also known as a sprite sheet) is a single image holding
+ * many smaller images. Loading one sheet is faster than loading hundreds of
+ * small files, and drawing many sprites from the same sheet is friendlier to
+ * Java's graphics pipeline than switching between lots of separate images.
+ * 
+ * The smaller images are handed out as regions: ordinary {@link Image} objects
+ * that can be given to a Sprite, but draw their pixels straight from the sheet.
+ * 
+ * Sheets can be laid out as a grid of equally sized cells (see
+ * {@link #loadGrid(String, int, int)}), or packed with an index file that
+ * lists one region per line (see {@link #load(String, String)}):
+ * 
+ * <pre>
+ * # name x y width height
+ * ship 0 0 32 32
+ * bullet 32 0 8 8
+ * </pre>
+ * 
+ * See {@link AtlasPacker} for creating atlases out of individual images.
+ */
+public class TextureAtlas {
+
+    /**
+     * Load a sheet laid out as a grid of equally sized cells. Regions are
+     * numbered left to right, top to bottom, starting from 0. Partial cells at
+     * the right and bottom edges are ignored.
+     * 
+     * If the image is not found, the program will exit with an error message.
+     * 
+     * @param file       path to the sheet image
+     * @param cellWidth  width of one cell in pixels
+     * @param cellHeight height of one cell in pixels
+     * @return a new TextureAtlas object
+     */
+    public static TextureAtlas loadGrid(String file, int cellWidth, int cellHeight) {
+        TextureAtlas atlas = new TextureAtlas(new Image(file));
+        int columns = atlas.sheet.getWidth() / cellWidth;
+        int rows = atlas.sheet.getHeight() / cellHeight;
+        for (int y = 0; y < rows; ++y) {
+            for (int x = 0; x < columns; ++x) {
+                atlas.addRegion(null, x * cellWidth, y * cellHeight, cellWidth, cellHeight);
+            }
+        }
+        return atlas;
+    }
+
+    /**
+     * Load a packed sheet together with its index file. Each line of the index
+     * holds a region name followed by the region's x, y, width and height.
+     * Empty lines and lines starting with '#' are skipped.
+     * 
+     * If either file cannot be read, the program will exit with an error
+     * message.
+     * 
+     * @param imageFile path to the sheet image
+     * @param indexFile path to the index file
+     * @return a new TextureAtlas object
+     */
+    public static TextureAtlas load(String imageFile, String indexFile) {
+        TextureAtlas atlas = new TextureAtlas(new Image(imageFile));
+        try (BufferedReader in = new BufferedReader(new FileReader(indexFile))) {
+            atlas.readIndex(in);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading atlas index " + indexFile);
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        return atlas;
+    }
+
+    private final Image sheet;
+    private final ArrayList<Image> regions = new ArrayList<>();
+    private final ArrayList<String> names = new ArrayList<>();
+    private final HashMap<String, Image> byName = new HashMap<>();
+
+    /**
+     * Create an atlas with no regions on top of an existing image. Use
+     * {@link #addRegion(String, int, int, int, int)} to define regions.
+     * 
+     * @param sheet the sheet image
+     */
+    public TextureAtlas(Image sheet) {
+        this.sheet = sheet;
+    }
+
+    /**
+     * Parse an index file, one region per line.
+     */
+    void readIndex(BufferedReader in) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            ++lineNumber;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (parts.length != 5) {
+                throw new IOException("Line " + lineNumber + ": expected 'name x y width height'");
+            }
+            addRegion(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+        }
+    }
+
+    /**
+     * Define a new region.
+     * 
+     * @param name a name to look the region up by, or null
+     * @param x    left edge of the region on the sheet
+     * @param y    top edge of the region on the sheet
+     * @param w    width of the region
+     * @param h    height of the region
+     * @return the region as an Image object
+     */
+    public Image addRegion(String name, int x, int y, int w, int h) {
+        Image r = sheet.getRegion(x, y, w, h);
+        regions.add(r);
+        names.add(name);
+        if (name != null) {
+            byName.put(name, r);
+        }
+        return r;
+    }
+
+    /**
+     * Get the sheet image all regions are cut from.
+     */
+    public Image getSheet() {
+        return sheet;
+    }
+
+    /**
+     * Get the number of regions in this atlas.
+     */
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    /**
+     * Get a region by its index. Regions are numbered in the order they were
+     * defined.
+     * 
+     * @param index a region index
+     * @return an Image object
+     */
+    public Image getRegion(int index) {
+        return regions.get(index);
+    }
+
+    /**
+     * Get a region by name.
+     * 
+     * @param name a region name, as given in the index file
+     * @return an Image object, or null if there is no region with that name
+     */
+    public Image getRegion(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Get the name of a region.
+     * 
+     * @param index a region index
+     * @return the region's name, or null if it has none
+     */
+    public String getRegionName(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * Save this atlas as a PNG image and an index file that can later be read
+     * back with {@link #load(String, String)}. Regions without a name are saved
+     * under their index number.
+     * 
+     * @param imageFile path of the PNG file to write
+     * @param indexFile path of the index file to write
+     * @throws IOException if either file cannot be written
+     */
+    public void save(String imageFile, String indexFile) throws IOException {
+        // The index is relative to the sheet, so a sheet that is itself a
+        // region of a larger image is saved on its own
+        BufferedImage pixels = sheet.getData();
+        if (sheet.isRegion()) {
+            pixels = pixels.getSubimage(sheet.getSourceX(), sheet.getSourceY(), sheet.getWidth(), sheet.getHeight());
+        }
+        if (!ImageIO.write(pixels, "png", new File(imageFile))) {
+            throw new IOException("No PNG writer available");
+        }
+        try (PrintWriter out = new PrintWriter(indexFile)) {
+            out.println("# name x y width height");
+            for (int i = 0; i < regions.size(); ++i) {
+                Image r = regions.get(i);
+                String name = names.get(i) != null ? names.get(i) : Integer.toString(i);
+                out.println(name + " " + (r.getSourceX() - sheet.getSourceX()) + " "
+                        + (r.getSourceY() - sheet.getSourceY()) + " " + r.getWidth() + " " + r.getHeight());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,381 @@
+package engine.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.util.Arrays;
+
+/**
+ * A grid of tiles, drawn from the regions of a {@link TextureAtlas}. Use this for
+ * levels instead of one Sprite per tile.
+ *
+ * Each tile is stored as a region number of the atlas (-1 for an empty tile) in a
+ * plain int array. For drawing, the map is split into square chunks of tiles, and
+ * each chunk is drawn once into an image of its own. Every frame, only the chunks
+ * that overlap the visible area (the clip of the Graphics2D context) are copied to
+ * screen, so drawing costs about the same for a huge map as for a screenful.
+ * Changing a tile only redraws its chunk, the next time that chunk is drawn.
+ *
+ * Chunk images take memory (a chunk of 16 by 16 tiles of 32 pixels takes a
+ * megabyte), so only a limited number are kept; chunks that haven't been drawn
+ * in a while are dropped and drawn again when they are needed. See
+ * {@link #setMaxCachedChunks(int)}.
+ */
+public class TileMap implements Drawable, Bounded {
+
+    private final TextureAtlas atlas;
+    private final int columns;
+    private final int rows;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int[] tiles;
+
+    private final int chunkTiles;
+    private final int chunkColumns;
+    private final int chunkRows;
+    private final int chunkTransparency;
+
+    // Per chunk: cached image (or null), whether it must be redrawn, and when it
+    // was last drawn to screen
+    private final BufferedImage[] chunks;
+    private final boolean[] chunkDirty;
+    private final long[] chunkUsed;
+    private int cachedChunks = 0;
+    private int maxCachedChunks = 256;
+    private long drawCount = 0;
+
+    private double x = 0.0;
+    private double y = 0.0;
+    private boolean visible = true;
+    private DirtyRegions dirty = null;
+    private final Rectangle clip = new Rectangle();
+
+    /**
+     * Create a new TileMap with all tiles empty, using chunks of 16 by 16 tiles.
+     *
+     * @param atlas      the atlas holding the tile images; tile numbers are its
+     *                   region numbers
+     * @param columns    width of the map in tiles
+     * @param rows       height of the map in tiles
+     * @param tileWidth  width of a tile in pixels
+     * @param tileHeight height of a tile in pixels
+     */
+    public TileMap(TextureAtlas atlas, int columns, int rows, int tileWidth, int tileHeight) {
+        this(atlas, columns, rows, tileWidth, tileHeight, 16);
+    }
+
+    /**
+     * Create a new TileMap with all tiles empty.
+     *
+     * @param atlas      the atlas holding the tile images
+     * @param columns    width of the map in tiles
+     * @param rows       height of the map in tiles
+     * @param tileWidth  width of a tile in pixels
+     * @param tileHeight height of a tile in pixels
+     * @param chunkTiles width and height of a chunk, in tiles
+     */
+    public TileMap(TextureAtlas atlas, int columns, int rows, int tileWidth, int tileHeight, int chunkTiles) {
+        if (columns <= 0 || rows <= 0 || tileWidth <= 0 || tileHeight <= 0 || chunkTiles <= 0) {
+            throw new IllegalArgumentException("TileMap dimensions must be positive");
+        }
+        this.atlas = atlas;
+        this.columns = columns;
+        this.rows = rows;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.chunkTiles = chunkTiles;
+        tiles = new int[columns * rows];
+        Arrays.fill(tiles, -1);
+
+        chunkColumns = (columns + chunkTiles - 1) / chunkTiles;
+        chunkRows = (rows + chunkTiles - 1) / chunkTiles;
+        int n = chunkColumns * chunkRows;
+        chunks = new BufferedImage[n];
+        chunkDirty = new boolean[n];
+        chunkUsed = new long[n];
+
+        // Empty tiles need transparency even if the tiles themselves have none
+        chunkTransparency = atlas.getSheet().getTransparency() == Transparency.TRANSLUCENT
+                ? Transparency.TRANSLUCENT : Transparency.BITMASK;
+    }
+
+    /**
+     * Set a tile.
+     *
+     * @param column column of the tile, from 0 to getColumns() - 1
+     * @param row    row of the tile, from 0 to getRows() - 1
+     * @param tile   a region number of the atlas, or -1 for an empty tile
+     */
+    public void setTile(int column, int row, int tile) {
+        int i = row * columns + column;
+        if (tiles[i] == tile) {
+            return;
+        }
+        tiles[i] = tile;
+        chunkDirty[(row / chunkTiles) * chunkColumns + column / chunkTiles] = true;
+        if (dirty != null) {
+            double tx = x + column * tileWidth;
+            double ty = y + row * tileHeight;
+            dirty.addWorld(tx, ty, tx + tileWidth, ty + tileHeight);
+        }
+    }
+
+    /**
+     * Get a tile.
+     *
+     * @param column column of the tile, from 0 to getColumns() - 1
+     * @param row    row of the tile, from 0 to getRows() - 1
+     * @return a region number of the atlas, or -1 for an empty tile
+     */
+    public int getTile(int column, int row) {
+        return tiles[row * columns + column];
+    }
+
+    /**
+     * Set all tiles at once, e.g. from a level file.
+     *
+     * @param data tile numbers, row by row; must hold getColumns() * getRows() values
+     */
+    public void setTiles(int[] data) {
+        if (data.length != tiles.length) {
+            throw new IllegalArgumentException("Expected " + tiles.length + " tiles, got " + data.length);
+        }
+        System.arraycopy(data, 0, tiles, 0, tiles.length);
+        invalidate();
+    }
+
+    /**
+     * Set every tile to the same value.
+     *
+     * @param tile a region number of the atlas, or -1 for empty
+     */
+    public void fill(int tile) {
+        Arrays.fill(tiles, tile);
+        invalidate();
+    }
+
+    /**
+     * Redraw all chunks the next time they are drawn, e.g. after the atlas' sheet
+     * image was changed.
+     */
+    public void invalidate() {
+        Arrays.fill(chunkDirty, true);
+        if (dirty != null) {
+            dirty.addWorld(getX0(), getY0(), getX1(), getY1());
+        }
+    }
+
+    /**
+     * Get the tile column at an X coordinate.
+     *
+     * @return a column number; may be outside of the map
+     */
+    public int columnAt(double px) {
+        return (int) Math.floor((px - x) / tileWidth);
+    }
+
+    /**
+     * Get the tile row at a Y coordinate.
+     *
+     * @return a row number; may be outside of the map
+     */
+    public int rowAt(double py) {
+        return (int) Math.floor((py - y) / tileHeight);
+    }
+
+    /**
+     * Set how many chunk images are kept at most. When more are needed, the ones
+     * that were drawn longest ago are dropped. Default: 256.
+     *
+     * @param chunks a number of chunks; should be at least the number of chunks
+     *               that fit on screen at once
+     */
+    public void setMaxCachedChunks(int chunks) {
+        maxCachedChunks = Math.max(1, chunks);
+    }
+
+    /**
+     * Get the number of chunk images currently kept.
+     */
+    public int getCachedChunks() {
+        return cachedChunks;
+    }
+
+    /**
+     * Report tile changes to a DirtyRegions, for dirty rectangle rendering.
+     *
+     * @param regions where to report changes, or null
+     */
+    public void setDirtyRegions(DirtyRegions regions) {
+        dirty = regions;
+    }
+
+    /**
+     * Set the position of the top left corner of the map.
+     */
+    public void setPosition(double x, double y) {
+        if (dirty != null) {
+            dirty.addWorld(getX0(), getY0(), getX1(), getY1());
+        }
+        this.x = x;
+        this.y = y;
+        if (dirty != null) {
+            dirty.addWorld(getX0(), getY0(), getX1(), getY1());
+        }
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public void setVisible(boolean b) {
+        if (b != visible && dirty != null) {
+            dirty.addWorld(getX0(), getY0(), getX1(), getY1());
+        }
+        visible = b;
+    }
+
+    @Override
+    public boolean isVisible() {
+        return visible;
+    }
+
+    @Override
+    public double getX0() {
+        return x;
+    }
+
+    @Override
+    public double getY0() {
+        return y;
+    }
+
+    @Override
+    public double getX1() {
+        return x + columns * tileWidth;
+    }
+
+    @Override
+    public double getY1() {
+        return y + rows * tileHeight;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    public TextureAtlas getAtlas() {
+        return atlas;
+    }
+
+    @Override
+    public void draw(Graphics2D g, ImageObserver obs) {
+        if (!visible) {
+            return;
+        }
+
+        int ox = (int) Math.floor(x + 0.5);
+        int oy = (int) Math.floor(y + 0.5);
+        int chunkWidth = chunkTiles * tileWidth;
+        int chunkHeight = chunkTiles * tileHeight;
+
+        // Work out which chunks overlap the visible area
+        int cx0 = 0, cy0 = 0, cx1 = chunkColumns - 1, cy1 = chunkRows - 1;
+        if (g.getClip() != null) {
+            g.getClipBounds(clip);
+            cx0 = Math.max(cx0, Math.floorDiv(clip.x - ox, chunkWidth));
+            cy0 = Math.max(cy0, Math.floorDiv(clip.y - oy, chunkHeight));
+            cx1 = Math.min(cx1, Math.floorDiv(clip.x + clip.width - 1 - ox, chunkWidth));
+            cy1 = Math.min(cy1, Math.floorDiv(clip.y + clip.height - 1 - oy, chunkHeight));
+        }
+
+        ++drawCount;
+        for (int cy = cy0; cy <= cy1; ++cy) {
+            for (int cx = cx0; cx <= cx1; ++cx) {
+                int c = cy * chunkColumns + cx;
+                BufferedImage img = chunks[c];
+                if (img == null || chunkDirty[c]) {
+                    img = renderChunk(c, cx, cy, obs);
+                }
+                chunkUsed[c] = drawCount;
+                g.drawImage(img, ox + cx * chunkWidth, oy + cy * chunkHeight, obs);
+            }
+        }
+    }
+
+    /**
+     * Draw the tiles of a chunk into its image, creating the image if needed.
+     */
+    private BufferedImage renderChunk(int c, int cx, int cy, ImageObserver obs) {
+        BufferedImage img = chunks[c];
+        if (img == null) {
+            img = takeImage();
+            chunks[c] = img;
+            cachedChunks++;
+        }
+
+        Graphics2D g = img.createGraphics();
+        Composite old = g.getComposite();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        g.setComposite(old);
+
+        int col0 = cx * chunkTiles;
+        int row0 = cy * chunkTiles;
+        int col1 = Math.min(col0 + chunkTiles, columns);
+        int row1 = Math.min(row0 + chunkTiles, rows);
+        for (int row = row0; row < row1; ++row) {
+            int base = row * columns;
+            for (int col = col0; col < col1; ++col) {
+                int tile = tiles[base + col];
+                if (tile >= 0) {
+                    atlas.getRegion(tile).draw(g, (col - col0) * tileWidth, (row - row0) * tileHeight, obs);
+                }
+            }
+        }
+        g.dispose();
+
+        chunkDirty[c] = false;
+        return img;
+    }
+
+    /**
+     * Get an image for a chunk: a new one, or, if the cache is full, the image of
+     * the chunk that was drawn longest ago.
+     */
+    private BufferedImage takeImage() {
+        if (cachedChunks < maxCachedChunks) {
+            return Image.createCompatible(chunkTiles * tileWidth, chunkTiles * tileHeight, chunkTransparency);
+        }
+        int oldest = -1;
+        for (int i = 0; i < chunks.length; ++i) {
+            if (chunks[i] != null && (oldest < 0 || chunkUsed[i] < chunkUsed[oldest])) {
+                oldest = i;
+            }
+        }
+        BufferedImage img = chunks[oldest];
+        chunks[oldest] = null;
+        cachedChunks--;
+        return img;
+    }
+}
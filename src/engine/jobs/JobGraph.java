@@ -0,0 +1,178 @@
+package engine.jobs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of jobs to run in parallel, where a job can depend on other jobs: it
+ * only starts once all of them have finished. For example, physics and AI can
+ * run at the same time, and collision handling after both:
+ *
+ * <pre>
+ * JobGraph.Job physics = graph.add(this::updatePhysics);
+ * JobGraph.Job ai = graph.add(this::updateAI);
+ * graph.add(this::handleCollisions, physics, ai);
+ * graph.run();
+ * </pre>
+ *
+ * A job can only depend on jobs added before it, so there can be no cycles. A
+ * graph can be run any number of times, e.g. once per frame; use
+ * {@link #clear()} to start over with new jobs.
+ *
+ * When the JobSystem has a single worker, jobs run on the calling thread in the
+ * order they were added.
+ */
+public class JobGraph {
+
+    /**
+     * A job in the graph.
+     */
+    public static final class Job {
+        private final Runnable work;
+        private final int dependencies;
+        private Job[] dependents = new Job[0];
+        private int dependentCount = 0;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private Job(Runnable work, int dependencies) {
+            this.work = work;
+            this.dependencies = dependencies;
+        }
+
+        private void addDependent(Job j) {
+            if (dependentCount == dependents.length) {
+                dependents = Arrays.copyOf(dependents, Math.max(4, dependentCount * 2));
+            }
+            dependents[dependentCount++] = j;
+        }
+    }
+
+    /**
+     * Runs one job, then starts the dependents it was the last one to wait for.
+     * All tasks report to the root, which finishes once every job has run.
+     */
+    private static final class JobTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final CountedCompleter<?> root;
+        private final Job job;
+
+        JobTask(CountedCompleter<?> root, Job job) {
+            super(root);
+            this.root = root;
+            this.job = job;
+        }
+
+        @Override
+        public void compute() {
+            job.work.run();
+            for (int i = 0; i < job.dependentCount; ++i) {
+                Job d = job.dependents[i];
+                if (d.waiting.decrementAndGet() == 0) {
+                    root.addToPendingCount(1);
+                    new JobTask(root, d).fork();
+                }
+            }
+            tryComplete();
+        }
+    }
+
+    private final class RootTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void compute() {
+            for (int i = 0, n = jobs.size(); i < n; ++i) {
+                Job j = jobs.get(i);
+                if (j.dependencies == 0) {
+                    addToPendingCount(1);
+                    new JobTask(this, j).fork();
+                }
+            }
+            tryComplete();
+        }
+    }
+
+    private final JobSystem system;
+    private final ArrayList<Job> jobs = new ArrayList<>();
+
+    /**
+     * Create a new, empty JobGraph.
+     *
+     * @param system the JobSystem to run the jobs on
+     */
+    public JobGraph(JobSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Add a job.
+     *
+     * @param work      the work to do
+     * @param dependsOn jobs of this graph that must finish before this one starts
+     * @return the new job, to use as a dependency of later jobs
+     */
+    public Job add(Runnable work, Job... dependsOn) {
+        Job job = new Job(work, dependsOn.length);
+        for (Job d : dependsOn) {
+            d.addDependent(job);
+        }
+        jobs.add(job);
+        return job;
+    }
+
+    /**
+     * Add a job that runs a task over a range of indices with
+     * {@link JobSystem#parallelFor(int, int, int, RangeTask)}.
+     *
+     * @param from      first index
+     * @param to        one past the last index
+     * @param grain     the largest number of indices to process in one piece
+     * @param task      the work to do for each piece
+     * @param dependsOn jobs of this graph that must finish before this one starts
+     * @return the new job
+     */
+    public Job addParallelFor(int from, int to, int grain, RangeTask task, Job... dependsOn) {
+        return add(() -> system.parallelFor(from, to, grain, task), dependsOn);
+    }
+
+    /**
+     * Get the number of jobs in the graph.
+     */
+    public int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Remove all jobs.
+     */
+    public void clear() {
+        jobs.clear();
+    }
+
+    /**
+     * Run all jobs, and wait until they have all finished. If a job throws an
+     * exception, it is thrown from here and the jobs that depend on it are not
+     * run.
+     */
+    public void run() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        if (system.isSerial()) {
+            for (int i = 0, n = jobs.size(); i < n; ++i) {
+                jobs.get(i).work.run();
+            }
+            return;
+        }
+
+        for (int i = 0, n = jobs.size(); i < n; ++i) {
+            Job j = jobs.get(i);
+            j.waiting.set(j.dependencies);
+        }
+        system.invoke(new RootTask());
+    }
+
+}
@@ -0,0 +1,171 @@
+package engine.jobs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs work on several CPU cores at once. The work is spread over a pool of
+ * worker threads; a worker that runs out of work steals some from the others,
+ * so all cores stay busy even if some pieces of work take longer than others.
+ *
+ * There are two ways of handing out work: {@link #parallelFor} splits a loop
+ * over many indices into ranges, and a {@link JobGraph} runs a set of jobs
+ * where some have to wait for others to finish first.
+ *
+ * With a single worker, nothing runs on other threads: all work is done on the
+ * calling thread, in a fixed order. Use that to get exactly repeatable runs,
+ * e.g. when debugging or replaying recorded input.
+ *
+ * The worker threads are only started the first time work is actually run in
+ * parallel, and stopped again with {@link #shutdown()}.
+ *
+ * Application owns a JobSystem, see Application.getJobs().
+ */
+public class JobSystem {
+
+    /**
+     * Splits a range in halves until it is no larger than the grain size.
+     */
+    private static final class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final RangeTask task;
+        final int from;
+        final int to;
+        final int grain;
+
+        RangeAction(RangeTask task, int from, int to, int grain) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                task.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(task, from, mid, grain), new RangeAction(task, mid, to, grain));
+        }
+    }
+
+    private int workers;
+    private ForkJoinPool pool;
+
+    /**
+     * Create a new JobSystem with one worker per CPU core.
+     */
+    public JobSystem() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new JobSystem.
+     *
+     * @param workers number of worker threads; 1 runs everything on the calling
+     *                thread
+     */
+    public JobSystem(int workers) {
+        setWorkers(workers);
+    }
+
+    /**
+     * Change the number of worker threads. Must not be called while work is
+     * running.
+     *
+     * @param workers number of worker threads; 1 runs everything on the calling
+     *                thread
+     */
+    public void setWorkers(int workers) {
+        workers = Math.max(1, workers);
+        if (workers == this.workers) {
+            return;
+        }
+        shutdown();
+        this.workers = workers;
+    }
+
+    /**
+     * Get the number of worker threads.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Return true if work runs on the calling thread only, in a fixed order.
+     */
+    public boolean isSerial() {
+        return workers == 1;
+    }
+
+    /**
+     * Run a task over a range of indices, split into pieces that are processed in
+     * parallel. Returns when the whole range has been processed.
+     *
+     * The grain size is the largest piece handed to one thread at a time. Too
+     * small, and splitting the range up costs more than it saves; too large, and
+     * some cores run out of work early. For simple per-entity updates, a few
+     * hundred to a few thousand indices per piece works well.
+     *
+     * With a single worker, the whole range is processed in order on the calling
+     * thread.
+     *
+     * @param from  first index
+     * @param to    one past the last index
+     * @param grain the largest number of indices to process in one piece
+     * @param task  the work to do for each piece
+     */
+    public void parallelFor(int from, int to, int grain, RangeTask task) {
+        if (to <= from) {
+            return;
+        }
+        grain = Math.max(1, grain);
+        if (workers == 1 || to - from <= grain) {
+            task.run(from, to);
+            return;
+        }
+        invoke(new RangeAction(task, from, to, grain));
+    }
+
+    /**
+     * Run a ForkJoinTask on the pool and wait for it. Used by JobGraph.
+     */
+    void invoke(ForkJoinTask<?> task) {
+        ForkJoinPool pool = getPool();
+        if (ForkJoinTask.getPool() == pool) {
+            // Already on one of our workers: run it here, and help with the
+            // pieces it forks instead of blocking the worker
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Stop the worker threads. Must not be called while work is running. The
+     * JobSystem can still be used afterwards; the threads are started again
+     * when they are next needed.
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Get the pool of worker threads, starting it if needed.
+     */
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(workers);
+        }
+        return pool;
+    }
+
+}
@@ -0,0 +1,21 @@
+package engine.jobs;
+
+/**
+ * Work on a range of indices, e.g. a slice of an array of entities. Used by
+ * {@link JobSystem#parallelFor(int, int, int, RangeTask)}, which splits a large
+ * range into smaller ones and runs them on several threads at once.
+ */
+@FunctionalInterface
+public interface RangeTask {
+
+    /**
+     * Process the indices from {@code from} up to, but not including, {@code to}.
+     * Different ranges may be processed at the same time on different threads, so
+     * this must only change data belonging to its own indices.
+     *
+     * @param from first index
+     * @param to   one past the last index
+     */
+    public void run(int from, int to);
+
+}
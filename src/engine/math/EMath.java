@@ -1,11 +1,26 @@
 package engine.math;
 
+import java.util.Random;
+
 /**
  * Math routines. EMath stands for "Extended Math", the name is chosen so
  * that a clear difference can be drawn between this class and java.lang.Math
  */
 public class EMath {
 
+    private static Random random = new Random();
+
+    /**
+     * Restart the random number sequence used by {@link #rand(double, double)} from
+     * a seed. The same seed always gives the same sequence of random values, which
+     * is what makes recorded games replay exactly.
+     * 
+     * @param seed any number
+     */
+    public static final void setRandomSeed(long seed) {
+        random = new Random(seed);
+    }
+
     /**
      * Make sure that a value is between a minimum and a maximum value.
      * 
@@ -41,7 +56,7 @@ public class EMath {
      */
     public static final double rand(final double min, final double max) {
         final double range = max - min;
-        return Math.random() * range + min;
+        return random.nextDouble() * range + min;
     }
 
     /**
@@ -0,0 +1,271 @@
+package engine.math;
+
+/**
+ * Mutable 2D vector class. Unlike {@link Vec2}, all operations change this
+ * vector in place instead of creating a new one, so they can be used in code
+ * that runs every frame without producing garbage for the memory manager.
+ * 
+ * Operations return this vector, so they can be chained:
+ * {@code v.set(target).sub(position).normalize().mul(speed);}
+ * 
+ * Keep in mind that since the vector changes, it must not be shared between
+ * objects that expect it to stay the same.
+ */
+public class MutableVec2 {
+
+    public double x;
+    public double y;
+
+    public MutableVec2() {
+    }
+
+    public MutableVec2(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public MutableVec2(final Vec2 v) {
+        this.x = v.x;
+        this.y = v.y;
+    }
+
+    /**
+     * Set the components of this vector.
+     * 
+     * @param x X component value
+     * @param y Y component value
+     * @return this vector
+     */
+    public MutableVec2 set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    /**
+     * Copy the components of another vector into this vector.
+     * 
+     * @param v a Vec2 object
+     * @return this vector
+     */
+    public MutableVec2 set(final Vec2 v) {
+        x = v.x;
+        y = v.y;
+        return this;
+    }
+
+    /**
+     * Copy the components of another vector into this vector.
+     * 
+     * @param v a MutableVec2 object
+     * @return this vector
+     */
+    public MutableVec2 set(final MutableVec2 v) {
+        x = v.x;
+        y = v.y;
+        return this;
+    }
+
+    /**
+     * Calculate the length of this vector
+     */
+    public double length() {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Calculate the squared length of this vector. See {@link Vec2#length2()}.
+     */
+    public double length2() {
+        return x * x + y * y;
+    }
+
+    /**
+     * Vector addition. Add the components of another vector to this vector.
+     * 
+     * @param v a Vec2 object
+     * @return this vector
+     */
+    public MutableVec2 add(final Vec2 v) {
+        x += v.x;
+        y += v.y;
+        return this;
+    }
+
+    /**
+     * Vector addition. Add the components of another vector to this vector.
+     * 
+     * @param v a MutableVec2 object
+     * @return this vector
+     */
+    public MutableVec2 add(final MutableVec2 v) {
+        x += v.x;
+        y += v.y;
+        return this;
+    }
+
+    /**
+     * Vector addition. Add X and Y components to this vector.
+     * 
+     * @param x X component value
+     * @param y Y component value
+     * @return this vector
+     */
+    public MutableVec2 add(double x, double y) {
+        this.x += x;
+        this.y += y;
+        return this;
+    }
+
+    /**
+     * Scaled vector addition. Add another vector multiplied by a scalar to this
+     * vector, e.g. {@code position.addScaled(velocity, delta)}.
+     * 
+     * @param v a MutableVec2 object
+     * @param s a scalar value
+     * @return this vector
+     */
+    public MutableVec2 addScaled(final MutableVec2 v, double s) {
+        x += v.x * s;
+        y += v.y * s;
+        return this;
+    }
+
+    /**
+     * Vector subtraction. Subtract the components of another vector from this
+     * vector.
+     * 
+     * @param v a Vec2 object
+     * @return this vector
+     */
+    public MutableVec2 sub(final Vec2 v) {
+        x -= v.x;
+        y -= v.y;
+        return this;
+    }
+
+    /**
+     * Vector subtraction. Subtract the components of another vector from this
+     * vector.
+     * 
+     * @param v a MutableVec2 object
+     * @return this vector
+     */
+    public MutableVec2 sub(final MutableVec2 v) {
+        x -= v.x;
+        y -= v.y;
+        return this;
+    }
+
+    /**
+     * Vector subtraction. Subtract x and y from this vector's components.
+     * 
+     * @param x X component value
+     * @param y Y component value
+     * @return this vector
+     */
+    public MutableVec2 sub(double x, double y) {
+        this.x -= x;
+        this.y -= y;
+        return this;
+    }
+
+    /**
+     * Vector scalar multiplication. Multiply the components of this vector by a
+     * scalar.
+     * 
+     * @param s a scalar value
+     * @return this vector
+     */
+    public MutableVec2 mul(double s) {
+        x *= s;
+        y *= s;
+        return this;
+    }
+
+    /**
+     * Vector multiplication. Multiply the components of this vector by the
+     * components of another vector.
+     * 
+     * @param v a MutableVec2 object
+     * @return this vector
+     */
+    public MutableVec2 mul(final MutableVec2 v) {
+        x *= v.x;
+        y *= v.y;
+        return this;
+    }
+
+    /**
+     * Calculate the dot product between this vector and another vector.
+     * 
+     * @param v a MutableVec2 object
+     * @return the dot product
+     */
+    public double dot(final MutableVec2 v) {
+        return x * v.x + y * v.y;
+    }
+
+    /**
+     * Normalize this vector, i.e. keep its direction but make its length 1.0.
+     * A vector with a length of zero stays zero.
+     * 
+     * @return this vector
+     */
+    public MutableVec2 normalize() {
+        double len = length();
+        if (len == 0.0) {
+            x = 0.0;
+            y = 0.0;
+            return this;
+        }
+        double inv = 1.0 / len;
+        x *= inv;
+        y *= inv;
+        return this;
+    }
+
+    /**
+     * Reflect this vector off a surface indicated by a surface normal. The
+     * surface normal is assumed to be normalized.
+     * 
+     * @param nx X component of the surface normal
+     * @param ny Y component of the surface normal
+     * @return this vector
+     */
+    public MutableVec2 reflect(double nx, double ny) {
+        double d = (x * nx + y * ny) * 2.0;
+        x -= nx * d;
+        y -= ny * d;
+        return this;
+    }
+
+    /**
+     * Reflect this vector off a surface indicated by a surface normal. The
+     * surface normal is assumed to be normalized.
+     * 
+     * @param normal a MutableVec2 object indicating the "outward" direction of
+     *               the surface
+     * @return this vector
+     */
+    public MutableVec2 reflect(final MutableVec2 normal) {
+        return reflect(normal.x, normal.y);
+    }
+
+    /**
+     * Create an immutable copy of this vector.
+     * 
+     * @return a new Vec2 object
+     */
+    public Vec2 toVec2() {
+        return new Vec2(x, y);
+    }
+
+    /**
+     * Overridden toString method for convenience.
+     */
+    public String toString() {
+        return "(" + x + ", " + y + ")";
+    }
+
+}
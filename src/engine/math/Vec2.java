@@ -4,6 +4,9 @@ package engine.math;
  * Immutable 2D vector class. While having mutable vectors results in more
  * efficient code in a professional setting, immutable vectors help eliminate
  * math mistakes for beginners.
+ * 
+ * See {@link MutableVec2} and {@link Vec2Array} for variants that do not
+ * allocate memory.
  */
 public class Vec2 {
 
@@ -75,7 +78,7 @@ public class Vec2 {
      * @return a new Vec2 object
      */
     public Vec2 sub(double x, double y) {
-    	return new Vec2(this.x + x, this.y + y);
+    	return new Vec2(this.x - x, this.y - y);
     }
 
     /**
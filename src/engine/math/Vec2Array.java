@@ -0,0 +1,165 @@
+package engine.math;
+
+/**
+ * Vector operations over many 2D vectors at once. The vectors are stored in
+ * two parallel arrays, one holding all X components and one holding all Y
+ * components, so vector number i is {@code (xs[i], ys[i])}.
+ * 
+ * Keeping lots of positions or velocities in plain arrays like this instead of
+ * in one object each is a lot faster when processing thousands of them every
+ * frame, and does not allocate any memory. All operations work on the first
+ * {@code count} vectors of the arrays and change them in place.
+ */
+public class Vec2Array {
+
+    /**
+     * Add the same vector to every vector.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param dx    X component to add
+     * @param dy    Y component to add
+     * @param count number of vectors to process
+     */
+    public static final void add(double[] xs, double[] ys, double dx, double dy, int count) {
+        for (int i = 0; i < count; ++i) {
+            xs[i] += dx;
+            ys[i] += dy;
+        }
+    }
+
+    /**
+     * Add vectors from other arrays to every vector, i.e.
+     * {@code xs[i] += vxs[i]; ys[i] += vys[i];}
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param vxs   X components to add
+     * @param vys   Y components to add
+     * @param count number of vectors to process
+     */
+    public static final void add(double[] xs, double[] ys, double[] vxs, double[] vys, int count) {
+        for (int i = 0; i < count; ++i) {
+            xs[i] += vxs[i];
+            ys[i] += vys[i];
+        }
+    }
+
+    /**
+     * Add vectors from other arrays multiplied by a scalar to every vector, i.e.
+     * {@code xs[i] += vxs[i] * s; ys[i] += vys[i] * s;}. This is the usual way of
+     * moving things: {@code addScaled(px, py, vx, vy, delta, count)}.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param vxs   X components to add
+     * @param vys   Y components to add
+     * @param s     a scalar value
+     * @param count number of vectors to process
+     */
+    public static final void addScaled(double[] xs, double[] ys, double[] vxs, double[] vys, double s,
+            int count) {
+        for (int i = 0; i < count; ++i) {
+            xs[i] += vxs[i] * s;
+            ys[i] += vys[i] * s;
+        }
+    }
+
+    /**
+     * Subtract the same vector from every vector.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param dx    X component to subtract
+     * @param dy    Y component to subtract
+     * @param count number of vectors to process
+     */
+    public static final void sub(double[] xs, double[] ys, double dx, double dy, int count) {
+        for (int i = 0; i < count; ++i) {
+            xs[i] -= dx;
+            ys[i] -= dy;
+        }
+    }
+
+    /**
+     * Multiply every vector by a scalar.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param s     a scalar value
+     * @param count number of vectors to process
+     */
+    public static final void mul(double[] xs, double[] ys, double s, int count) {
+        for (int i = 0; i < count; ++i) {
+            xs[i] *= s;
+            ys[i] *= s;
+        }
+    }
+
+    /**
+     * Normalize every vector. Vectors with a length of zero stay zero.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param count number of vectors to process
+     */
+    public static final void normalize(double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; ++i) {
+            double x = xs[i];
+            double y = ys[i];
+            double len = Math.sqrt(x * x + y * y);
+            double inv = len == 0.0 ? 0.0 : 1.0 / len;
+            xs[i] = x * inv;
+            ys[i] = y * inv;
+        }
+    }
+
+    /**
+     * Reflect every vector off a surface indicated by a surface normal. The
+     * surface normal is assumed to be normalized.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param nx    X component of the surface normal
+     * @param ny    Y component of the surface normal
+     * @param count number of vectors to process
+     */
+    public static final void reflect(double[] xs, double[] ys, double nx, double ny, int count) {
+        for (int i = 0; i < count; ++i) {
+            double d = (xs[i] * nx + ys[i] * ny) * 2.0;
+            xs[i] -= nx * d;
+            ys[i] -= ny * d;
+        }
+    }
+
+    /**
+     * Calculate the length of every vector.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param out   array receiving the lengths
+     * @param count number of vectors to process
+     */
+    public static final void length(double[] xs, double[] ys, double[] out, int count) {
+        for (int i = 0; i < count; ++i) {
+            out[i] = Math.sqrt(xs[i] * xs[i] + ys[i] * ys[i]);
+        }
+    }
+
+    /**
+     * Calculate the dot product of every vector with the same vector.
+     * 
+     * @param xs    X components
+     * @param ys    Y components
+     * @param vx    X component of the other vector
+     * @param vy    Y component of the other vector
+     * @param out   array receiving the dot products
+     * @param count number of vectors to process
+     */
+    public static final void dot(double[] xs, double[] ys, double vx, double vy, double[] out, int count) {
+        for (int i = 0; i < count; ++i) {
+            out[i] = xs[i] * vx + ys[i] * vy;
+        }
+    }
+
+}
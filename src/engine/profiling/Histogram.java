@@ -0,0 +1,172 @@
+package engine.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Counts how often values of each size were seen, for working out percentiles
+ * like "99% of frames took at most this long". Meant for durations in
+ * nanoseconds, but works for any non-negative whole numbers.
+ *
+ * Averages hide the occasional slow frame that players notice as a stutter;
+ * the 99th percentile and the maximum show it. Values are sorted into buckets
+ * that grow with the value (in the style of an HDR histogram): every value is
+ * kept to within about 3% of what was recorded, from nanoseconds up to minutes,
+ * using a fixed, small array. Recording a value is a few instructions and never
+ * allocates memory, so it can be done many times per frame.
+ */
+public class Histogram {
+
+    // Each doubling of the value range is split into 2^SUB_BITS buckets
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final long[] counts = new long[bucketOf(MAX_VALUE) + 1];
+    private long count = 0;
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * Record a value. Negative values count as 0; values above about 18 minutes
+     * worth of nanoseconds count as that.
+     *
+     * @param value a value, usually a duration in nanoseconds
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts[bucketOf(value)]++;
+        count++;
+        total += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Forget all recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Get the number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the smallest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    /**
+     * Get the largest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the average of the recorded values, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        return count > 0 ? (double) total / count : 0.0;
+    }
+
+    /**
+     * Get the value below which a given percentage of the recorded values lie.
+     * E.g. getPercentile(99) is a value that 99% of all recorded values are less
+     * than or equal to.
+     *
+     * @param percent a percentage between 0 and 100
+     * @return the value (accurate to within about 3%), or 0 if nothing was
+     *         recorded
+     */
+    public long getPercentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(Math.min(Math.max(percent, 0.0), 100.0) / 100.0 * count);
+        target = Math.max(target, 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.max(Math.min(highestIn(i), max), getMin());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the median, i.e. getPercentile(50).
+     */
+    public long getP50() {
+        return getPercentile(50.0);
+    }
+
+    /**
+     * Get the 95th percentile.
+     */
+    public long getP95() {
+        return getPercentile(95.0);
+    }
+
+    /**
+     * Get the 99th percentile.
+     */
+    public long getP99() {
+        return getPercentile(99.0);
+    }
+
+    /**
+     * Add all values recorded in another histogram to this one.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+        // Keep the top SUB_BITS + 1 bits of the value
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    /**
+     * Get the largest value that falls into a bucket.
+     */
+    private static long highestIn(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long lowest = (long) (bucket % SUB_COUNT + SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}
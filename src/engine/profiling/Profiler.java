@@ -0,0 +1,239 @@
+package engine.profiling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Measures how long each part of a frame takes. Application measures its own
+ * phases (see {@link #INPUT}, {@link #UPDATE}, {@link #PAINT}, {@link #PRESENT},
+ * {@link #SLEEP} and {@link #FRAME}) once profiling is turned on, and game code
+ * can measure its own parts, called scopes:
+ *
+ * <pre>
+ * int ai = profiler.addScope("AI");
+ * ...
+ * profiler.begin(ai);
+ * updateAI();
+ * profiler.end(ai);
+ * </pre>
+ *
+ * The time spent in a scope is added up over a frame (a scope may be entered
+ * several times), and at the end of the frame the total goes into the scope's
+ * {@link Histogram}, from which percentiles can be read, e.g.
+ * {@code getHistogram(Profiler.FRAME).getP99()}. The last {@link #HISTORY}
+ * frames are also kept for drawing graphs, see {@link ProfilerOverlay}.
+ *
+ * Measuring costs two calls to System.nanoTime() per scope and allocates no
+ * memory. The profiler is meant to be used from the game loop thread only.
+ */
+public class Profiler {
+
+    /** Reading keyboard input. */
+    public static final int INPUT = 0;
+    /** Game logic: fixed steps, update(), and the parallel update and frame jobs. */
+    public static final int UPDATE = 1;
+    /** Drawing the frame. */
+    public static final int PAINT = 2;
+    /** Showing the drawn frame on screen: flipping buffers and syncing with the display. */
+    public static final int PRESENT = 3;
+    /** Waiting for the next frame to start. */
+    public static final int SLEEP = 4;
+    /** The whole frame. */
+    public static final int FRAME = 5;
+
+    /** Number of frames kept for graphs. */
+    public static final int HISTORY = 256;
+
+    private static final class Scope {
+        final String name;
+        final Histogram histogram = new Histogram();
+        final long[] history = new long[HISTORY];
+        long start = -1;
+        long frameTotal = 0;
+        boolean used = false;
+
+        Scope(String name) {
+            this.name = name;
+        }
+    }
+
+    private final ArrayList<Scope> scopes = new ArrayList<>();
+    private boolean enabled = false;
+    private long frames = 0;
+
+    /**
+     * Create a new Profiler with the standard phases. It starts out disabled.
+     */
+    public Profiler() {
+        addScope("input");
+        addScope("update");
+        addScope("paint");
+        addScope("present");
+        addScope("sleep");
+        addScope("frame");
+    }
+
+    /**
+     * Turn measuring on or off. While off, begin() and end() do nothing.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Check whether measuring is on.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add a scope of your own.
+     *
+     * @param name a name to show in reports
+     * @return the scope's number, for begin() and end()
+     */
+    public int addScope(String name) {
+        scopes.add(new Scope(name));
+        return scopes.size() - 1;
+    }
+
+    /**
+     * Find a scope by name.
+     *
+     * @return the scope's number, or -1 if there is no such scope
+     */
+    public int getScope(String name) {
+        for (int i = 0; i < scopes.size(); ++i) {
+            if (scopes.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of scopes, including the standard phases.
+     */
+    public int getScopeCount() {
+        return scopes.size();
+    }
+
+    /**
+     * Get the name of a scope.
+     */
+    public String getName(int scope) {
+        return scopes.get(scope).name;
+    }
+
+    /**
+     * Start measuring a scope.
+     *
+     * @param scope a scope number
+     */
+    public void begin(int scope) {
+        if (enabled) {
+            scopes.get(scope).start = System.nanoTime();
+        }
+    }
+
+    /**
+     * Stop measuring a scope, adding the time since begin() to this frame's total.
+     *
+     * @param scope a scope number
+     */
+    public void end(int scope) {
+        if (!enabled) {
+            return;
+        }
+        Scope s = scopes.get(scope);
+        if (s.start >= 0) {
+            s.frameTotal += System.nanoTime() - s.start;
+            s.start = -1;
+            s.used = true;
+        }
+    }
+
+    /**
+     * Finish a frame: the time of every scope used during the frame goes into its
+     * histogram and history. Application calls this at the end of every frame.
+     */
+    public void endFrame() {
+        if (!enabled) {
+            return;
+        }
+        int slot = (int) (frames % HISTORY);
+        for (int i = 0, n = scopes.size(); i < n; ++i) {
+            Scope s = scopes.get(i);
+            if (s.used) {
+                s.histogram.record(s.frameTotal);
+            }
+            s.history[slot] = s.frameTotal;
+            s.frameTotal = 0;
+            s.used = false;
+        }
+        ++frames;
+    }
+
+    /**
+     * Get the number of frames measured so far.
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Get the histogram of a scope's time per frame, in nanoseconds.
+     */
+    public Histogram getHistogram(int scope) {
+        return scopes.get(scope).histogram;
+    }
+
+    /**
+     * Get the time spent in a scope during a recent frame.
+     *
+     * @param scope     a scope number
+     * @param framesAgo 0 for the last finished frame, up to HISTORY - 1
+     * @return a time in nanoseconds, 0 if the scope wasn't used or the frame is
+     *         too old
+     */
+    public long getHistory(int scope, int framesAgo) {
+        if (framesAgo < 0 || framesAgo >= HISTORY || framesAgo >= frames) {
+            return 0;
+        }
+        return scopes.get(scope).history[(int) ((frames - 1 - framesAgo) % HISTORY)];
+    }
+
+    /**
+     * Forget all measurements.
+     */
+    public void reset() {
+        for (Scope s : scopes) {
+            s.histogram.reset();
+            Arrays.fill(s.history, 0);
+            s.frameTotal = 0;
+            s.used = false;
+            s.start = -1;
+        }
+        frames = 0;
+    }
+
+    /**
+     * Get a table of the p50, p95, p99 and maximum time of every scope, in
+     * milliseconds, e.g. for printing when the game exits.
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-12s %8s %8s %8s %8s%n", "scope (ms)", "p50", "p95", "p99", "max"));
+        for (Scope s : scopes) {
+            Histogram h = s.histogram;
+            if (h.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format("%-12s %8.3f %8.3f %8.3f %8.3f%n", s.name,
+                    h.getP50() / 1e6, h.getP95() / 1e6, h.getP99() / 1e6, h.getMax() / 1e6));
+        }
+        return sb.toString();
+    }
+
+}
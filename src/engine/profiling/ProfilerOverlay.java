@@ -0,0 +1,158 @@
+package engine.profiling;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.ImageObserver;
+
+import engine.graphics.Drawable;
+
+/**
+ * Draws a graph of recent frame times on screen, with one column per frame split
+ * into the standard phases (input, update, paint, present and sleep), and the
+ * p50, p99 and maximum frame time below it. Spikes show up as tall columns, and
+ * their colors tell which part of the frame was slow.
+ *
+ * Add it to a screen space layer of the display list so it doesn't move with the
+ * camera, e.g.:
+ *
+ * <pre>
+ * getProfiler().setEnabled(true);
+ * getDisplayList().setLayerScreenSpace(100, true);
+ * addDrawable(new ProfilerOverlay(getProfiler(), 8, 8), 100);
+ * </pre>
+ */
+public class ProfilerOverlay implements Drawable {
+
+    private static final int[] PHASES = {
+        Profiler.INPUT, Profiler.UPDATE, Profiler.PAINT, Profiler.PRESENT, Profiler.SLEEP
+    };
+    private static final Color[] COLORS = {
+        new Color(0x4FC3F7), new Color(0x81C784), new Color(0xFFB74D), new Color(0xE57373), new Color(0x616161)
+    };
+    private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private static final int LEGEND_SPACING = 60;
+
+    private final Profiler profiler;
+    private double x;
+    private double y;
+    private int height = 64;
+    private double scaleMillis = 40.0;
+    private boolean visible = true;
+
+    // The text is only rebuilt now and then, so drawing doesn't create strings
+    // every frame
+    private String text = "";
+    private long textFrame = -1;
+
+    /**
+     * Create a new ProfilerOverlay.
+     *
+     * @param profiler the profiler to show
+     * @param x        X position of the top left corner, in screen pixels
+     * @param y        Y position of the top left corner, in screen pixels
+     */
+    public ProfilerOverlay(Profiler profiler, double x, double y) {
+        this.profiler = profiler;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Set the position of the top left corner.
+     */
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Set the frame time shown at the top of the graph; longer frames are cut
+     * off. Lines are drawn at 60 and 30 frames per second.
+     *
+     * @param millis a time in milliseconds. Default: 40.
+     */
+    public void setScale(double millis) {
+        scaleMillis = millis;
+    }
+
+    /**
+     * Set the height of the graph in pixels. Default: 64.
+     */
+    public void setHeight(int pixels) {
+        height = pixels;
+    }
+
+    public void setVisible(boolean b) {
+        visible = b;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    @Override
+    public void draw(Graphics2D g, ImageObserver obs) {
+        if (!visible) {
+            return;
+        }
+
+        int left = (int) x;
+        int top = (int) y;
+        int width = Profiler.HISTORY;
+        double pixelsPerNano = height / (scaleMillis * 1e6);
+
+        g.setColor(BACKGROUND);
+        g.fillRect(left, top, Math.max(width, PHASES.length * LEGEND_SPACING + 4), height + 30);
+
+        // One column per frame, newest on the right, phases stacked bottom up
+        int bottom = top + height;
+        for (int p = 0; p < PHASES.length; ++p) {
+            g.setColor(COLORS[p]);
+            for (int f = 0; f < width; ++f) {
+                long below = 0;
+                for (int q = 0; q < p; ++q) {
+                    below += profiler.getHistory(PHASES[q], f);
+                }
+                long t = profiler.getHistory(PHASES[p], f);
+                if (t == 0) {
+                    continue;
+                }
+                int y0 = bottom - (int) Math.min(height, (below + t) * pixelsPerNano);
+                int y1 = bottom - (int) Math.min(height, below * pixelsPerNano);
+                if (y1 > y0) {
+                    int col = left + width - 1 - f;
+                    g.drawLine(col, y0, col, y1 - 1);
+                }
+            }
+        }
+
+        // Frame budget lines for 60 and 30 frames per second
+        g.setColor(Color.WHITE);
+        drawBudgetLine(g, left, bottom, width, 1000.0 / 60.0);
+        drawBudgetLine(g, left, bottom, width, 1000.0 / 30.0);
+
+        if (profiler.getFrameCount() - textFrame >= 30 || textFrame < 0) {
+            Histogram h = profiler.getHistogram(Profiler.FRAME);
+            text = String.format("frame p50 %.1f  p99 %.1f  max %.1f ms",
+                    h.getP50() / 1e6, h.getP99() / 1e6, h.getMax() / 1e6);
+            textFrame = profiler.getFrameCount();
+        }
+        g.setFont(FONT);
+        g.drawString(text, left + 4, bottom + 13);
+        for (int p = 0; p < PHASES.length; ++p) {
+            g.setColor(COLORS[p]);
+            g.fillRect(left + 4 + p * LEGEND_SPACING, bottom + 19, 8, 8);
+            g.drawString(profiler.getName(PHASES[p]), left + 14 + p * LEGEND_SPACING, bottom + 27);
+        }
+    }
+
+    private void drawBudgetLine(Graphics2D g, int left, int bottom, int width, double millis) {
+        if (millis <= scaleMillis) {
+            int ly = bottom - (int) (millis / scaleMillis * height);
+            g.drawLine(left, ly, left + width - 1, ly);
+        }
+    }
+
+}
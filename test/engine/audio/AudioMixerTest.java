@@ -0,0 +1,132 @@
+package engine.audio;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the mixer by hand against a {@link MemorySink}, without a thread or
+ * any audio hardware.
+ */
+public class AudioMixerTest {
+
+	private static final int BLOCK = 64;
+
+	private MemorySink sink;
+	private AudioMixer mixer;
+
+	@Before
+	public void setUp() {
+		sink = new MemorySink();
+		mixer = new AudioMixer(sink, 2, BLOCK);
+	}
+
+	/**
+	 * A sound where every sample has the same value.
+	 */
+	private static SoundData constant(int frames, int value) {
+		short[] s = new short[frames * 2];
+		for (int i = 0; i < s.length; ++i) {
+			s[i] = (short) value;
+		}
+		return new SoundData(s);
+	}
+
+	private void process(int blocks) {
+		for (int i = 0; i < blocks; ++i) {
+			mixer.process();
+		}
+	}
+
+	@Test
+	public void voicesAreAddedTogether() {
+		mixer.play(constant(BLOCK, 1000), 1.0f, 0.0f);
+		mixer.play(constant(BLOCK, 2000), 1.0f, 0.0f);
+		process(1);
+
+		assertEquals(BLOCK, sink.getFrameCount());
+		for (int f = 0; f < BLOCK; ++f) {
+			assertEquals(3000, sink.getSample(f, 0));
+			assertEquals(3000, sink.getSample(f, 1));
+		}
+		assertEquals(BLOCK, mixer.getFramePosition());
+	}
+
+	@Test
+	public void gainAndPanAreApplied() {
+		mixer.play(constant(BLOCK, 1000), 0.5f, -1.0f);
+		process(1);
+
+		assertEquals(500, sink.getSample(0, 0));
+		assertEquals(0, sink.getSample(0, 1));
+	}
+
+	@Test
+	public void outputIsClipped() {
+		mixer.play(constant(BLOCK, 30000), 1.0f, 0.0f);
+		mixer.play(constant(BLOCK, 30000), 1.0f, 0.0f);
+		process(1);
+
+		assertEquals(Short.MAX_VALUE, sink.getSample(0, 0));
+	}
+
+	@Test
+	public void finishedVoicesAreRemoved() {
+		mixer.play(constant(BLOCK / 2, 1000), 1.0f, 0.0f);
+		process(1);
+
+		assertEquals(1000, sink.getSample(BLOCK / 2 - 1, 0));
+		assertEquals(0, sink.getSample(BLOCK / 2, 0));
+		assertEquals(0, mixer.getActiveVoices());
+	}
+
+	@Test
+	public void oldestVoiceIsStolen() {
+		mixer.play(constant(BLOCK * 4, 1), 1.0f, 0.0f);
+		mixer.play(constant(BLOCK * 4, 10), 1.0f, 0.0f);
+		mixer.play(constant(BLOCK * 4, 100), 1.0f, 0.0f);
+		process(1);
+
+		// Only two voices: the first sound made room for the third
+		assertEquals(110, sink.getSample(0, 0));
+		assertEquals(2, mixer.getActiveVoices());
+		assertEquals(1, mixer.getStolenVoices());
+	}
+
+	@Test
+	public void scheduledSoundStartsAtItsFrame() {
+		process(1);
+		mixer.playAt(constant(10, 500), 1.0f, 0.0f, 100);
+		process(2);
+
+		assertEquals(0, sink.getSample(99, 0));
+		for (int f = 100; f < 110; ++f) {
+			assertEquals(500, sink.getSample(f, 0));
+		}
+		assertEquals(0, sink.getSample(110, 0));
+	}
+
+	@Test
+	public void scheduledSoundCanSpanBlocks() {
+		mixer.playAt(constant(BLOCK, 700), 1.0f, 0.0f, BLOCK + BLOCK / 2);
+		process(3);
+
+		assertEquals(0, sink.getSample(BLOCK + BLOCK / 2 - 1, 1));
+		for (int f = BLOCK + BLOCK / 2; f < 2 * BLOCK + BLOCK / 2; ++f) {
+			assertEquals(700, sink.getSample(f, 1));
+		}
+		assertEquals(0, sink.getSample(2 * BLOCK + BLOCK / 2, 1));
+	}
+
+	@Test
+	public void lateScheduledSoundStartsAtOnce() {
+		process(2);
+		mixer.playAt(constant(BLOCK, 300), 1.0f, 0.0f, 10);
+		process(1);
+
+		assertEquals(0, sink.getSample(2 * BLOCK - 1, 0));
+		assertEquals(300, sink.getSample(2 * BLOCK, 0));
+	}
+
+}